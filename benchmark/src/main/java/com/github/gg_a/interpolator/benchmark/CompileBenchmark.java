@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.tools.JavaFileObject;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.github.gg_a.interpolator.InterpolationMode;
+
+/**
+ * Compile-time overhead of {@code InterpolatorProcessor}: compiles generated sources with
+ * {@code -proc:none} and with the processor. <br>
+ * The {@code literals} counter is the throughput in string literals per second, run with
+ * {@code -prof gc} for the allocation per compilation ({@code gc.alloc.rate.norm}):
+ * <pre>
+ * java -jar target/benchmarks.jar CompileBenchmark -prof gc
+ * </pre>
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {
+        "-XX:+IgnoreUnrecognizedVMOptions",
+        "--add-exports=jdk.compiler/com.sun.tools.javac.api=ALL-UNNAMED",
+        "--add-exports=jdk.compiler/com.sun.tools.javac.code=ALL-UNNAMED",
+        "--add-exports=jdk.compiler/com.sun.tools.javac.comp=ALL-UNNAMED",
+        "--add-exports=jdk.compiler/com.sun.tools.javac.jvm=ALL-UNNAMED",
+        "--add-exports=jdk.compiler/com.sun.tools.javac.main=ALL-UNNAMED",
+        "--add-exports=jdk.compiler/com.sun.tools.javac.model=ALL-UNNAMED",
+        "--add-exports=jdk.compiler/com.sun.tools.javac.parser=ALL-UNNAMED",
+        "--add-exports=jdk.compiler/com.sun.tools.javac.processing=ALL-UNNAMED",
+        "--add-exports=jdk.compiler/com.sun.tools.javac.tree=ALL-UNNAMED",
+        "--add-exports=jdk.compiler/com.sun.tools.javac.util=ALL-UNNAMED"})
+@State(Scope.Benchmark)
+public class CompileBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int classes;
+
+    @Param({"10", "50"})
+    public int literalsPerMethod;
+
+    @Param({"1", "5"})
+    public int placeholdersPerLiteral;
+
+    @Param({"EXPRESSION", "IDENTIFIER"})
+    public InterpolationMode parseMode;
+
+    private InMemoryCompiler compiler;
+    private List<JavaFileObject> sources;
+
+    @Setup
+    public void setup() {
+        compiler = new InMemoryCompiler();
+        sources = SourceGenerator.generate(classes, literalsPerMethod, placeholdersPerLiteral, parseMode);
+    }
+
+    @Benchmark
+    public void procNone(LiteralCounter counter) {
+        compiler.compile(sources, false);
+        counter.literals += classes * literalsPerMethod;
+    }
+
+    @Benchmark
+    public void interpolator(LiteralCounter counter) {
+        compiler.compile(sources, true);
+        counter.literals += classes * literalsPerMethod;
+    }
+
+    /**
+     * Number of compiled string literals, reported as literals per second.
+     */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class LiteralCounter {
+        public long literals;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            literals = 0;
+        }
+    }
+}
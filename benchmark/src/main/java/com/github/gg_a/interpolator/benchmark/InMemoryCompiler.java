@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.tools.*;
+
+import com.github.gg_a.interpolator.InterpolatorProcessor;
+
+/**
+ * Compiles in-memory sources with the system java compiler, class files are discarded.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+final class InMemoryCompiler {
+
+    private final JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+    private final JavaFileManager fileManager =
+            new DiscardingFileManager(javac.getStandardFileManager(null, null, StandardCharsets.UTF_8));
+    private final String interpolatorPath = pathOf(InterpolatorProcessor.class);
+
+    /**
+     * @param sources      sources to compile
+     * @param interpolator {@code true} to run {@link InterpolatorProcessor}, {@code false} for {@code -proc:none}
+     * @param options      additional javac options
+     */
+    void compile(List<? extends JavaFileObject> sources, boolean interpolator, String... options) {
+        List<String> javacOptions = new ArrayList<>(Arrays.asList("-classpath", interpolatorPath, "-nowarn"));
+        if (interpolator) {
+            javacOptions.addAll(Arrays.asList("-processorpath", interpolatorPath,
+                    "-processor", InterpolatorProcessor.class.getName()));
+        } else {
+            javacOptions.add("-proc:none");
+        }
+        javacOptions.addAll(Arrays.asList(options));
+
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        Boolean success = javac.getTask(null, fileManager, diagnostics, javacOptions, null, sources).call();
+        if (!success) throw new IllegalStateException("Compilation failed: " + diagnostics.getDiagnostics());
+    }
+
+    static JavaFileObject source(String className, String code) {
+        return new SimpleJavaFileObject(URI.create("string:///" + className.replace('.', '/') + ".java"), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return code;
+            }
+        };
+    }
+
+    private static String pathOf(Class<?> c) {
+        try {
+            return new File(c.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class DiscardingFileManager extends ForwardingJavaFileManager<JavaFileManager> {
+
+        DiscardingFileManager(JavaFileManager fileManager) {
+            super(fileManager);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind, FileObject sibling) {
+            return new SimpleJavaFileObject(URI.create("mem:///" + className.replace('.', '/') + kind.extension), kind) {
+                @Override
+                public OutputStream openOutputStream() {
+                    return new ByteArrayOutputStream();
+                }
+            };
+        }
+
+        @Override
+        public FileObject getFileForOutput(Location location, String packageName, String relativeName, FileObject sibling) {
+            return getJavaFileForOutput(location, packageName + "." + relativeName, JavaFileObject.Kind.OTHER, sibling);
+        }
+    }
+}
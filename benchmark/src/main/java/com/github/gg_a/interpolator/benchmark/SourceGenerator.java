@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.tools.JavaFileObject;
+
+import com.github.gg_a.interpolator.InterpolationMode;
+
+/**
+ * Generates {@code @StringInterpolator} classes for {@link CompileBenchmark}.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+final class SourceGenerator {
+
+    private static final String[] IDENTIFIERS = {"v0", "v1", "v2", "v3", "v4"};
+    private static final String[] EXPRESSIONS = {"v0", "v1", "v2 + i", "v1.length()", "v3 * 100"};
+
+    private SourceGenerator() {
+    }
+
+    static List<JavaFileObject> generate(int classes, int literalsPerMethod, int placeholdersPerLiteral, InterpolationMode parseMode) {
+        String[] placeholders = parseMode == InterpolationMode.IDENTIFIER ? IDENTIFIERS : EXPRESSIONS;
+        List<JavaFileObject> sources = new ArrayList<>(classes);
+        for (int c = 0; c < classes; c++) {
+            StringBuilder code = new StringBuilder()
+                    .append("package gen;\n")
+                    .append("import com.github.gg_a.interpolator.*;\n")
+                    .append("@StringInterpolator(parseMode = InterpolationMode.").append(parseMode).append(")\n")
+                    .append("public class Gen").append(c).append(" {\n")
+                    .append("    int v0 = 1; String v1 = \"a\"; long v2 = 2L; double v3 = 0.5; Object v4 = null;\n")
+                    .append("    public String m(int i) {\n")
+                    .append("        String s;\n");
+            for (int l = 0; l < literalsPerMethod; l++) {
+                code.append("        s = \"literal ").append(l);
+                for (int p = 0; p < placeholdersPerLiteral; p++) {
+                    code.append(" p").append(p).append(": ${").append(placeholders[(l + p) % placeholders.length]).append('}');
+                }
+                code.append("\";\n");
+            }
+            code.append("        return s;\n")
+                    .append("    }\n")
+                    .append("}\n");
+            sources.add(InMemoryCompiler.source("gen.Gen" + c, code.toString()));
+        }
+        return sources;
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator.benchmark.runtime;
+
+import java.text.MessageFormat;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.github.gg_a.interpolator.StringInterpolator;
+
+/**
+ * Message with 20 placeholders.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+@StringInterpolator
+public class ManyPlaceholdersBenchmark {
+
+    public String s0 = "value0";
+    public String s1 = "value1";
+    public String s2 = "value2";
+    public String s3 = "value3";
+    public String s4 = "value4";
+    public String s5 = "value5";
+    public String s6 = "value6";
+    public String s7 = "value7";
+    public String s8 = "value8";
+    public String s9 = "value9";
+    public String s10 = "value10";
+    public String s11 = "value11";
+    public String s12 = "value12";
+    public String s13 = "value13";
+    public String s14 = "value14";
+    public String s15 = "value15";
+    public String s16 = "value16";
+    public String s17 = "value17";
+    public String s18 = "value18";
+    public String s19 = "value19";
+
+    @Benchmark
+    public String interpolator() {
+        return "k0=${s0} k1=${s1} k2=${s2} k3=${s3} k4=${s4} k5=${s5} k6=${s6} k7=${s7} k8=${s8} k9=${s9} k10=${s10} k11=${s11} k12=${s12} k13=${s13} k14=${s14} k15=${s15} k16=${s16} k17=${s17} k18=${s18} k19=${s19}";
+    }
+
+    @Benchmark
+    public String stringBuilder() {
+        return new StringBuilder()
+                .append("k0=").append(s0)
+                .append(" k1=").append(s1)
+                .append(" k2=").append(s2)
+                .append(" k3=").append(s3)
+                .append(" k4=").append(s4)
+                .append(" k5=").append(s5)
+                .append(" k6=").append(s6)
+                .append(" k7=").append(s7)
+                .append(" k8=").append(s8)
+                .append(" k9=").append(s9)
+                .append(" k10=").append(s10)
+                .append(" k11=").append(s11)
+                .append(" k12=").append(s12)
+                .append(" k13=").append(s13)
+                .append(" k14=").append(s14)
+                .append(" k15=").append(s15)
+                .append(" k16=").append(s16)
+                .append(" k17=").append(s17)
+                .append(" k18=").append(s18)
+                .append(" k19=").append(s19)
+                .toString();
+    }
+
+    @Benchmark
+    public String stringFormat() {
+        return String.format("k0=%s k1=%s k2=%s k3=%s k4=%s k5=%s k6=%s k7=%s k8=%s k9=%s k10=%s k11=%s k12=%s k13=%s k14=%s k15=%s k16=%s k17=%s k18=%s k19=%s",
+                s0, s1, s2, s3, s4, s5, s6, s7, s8, s9, s10, s11, s12, s13, s14, s15, s16, s17, s18, s19);
+    }
+
+    @Benchmark
+    public String messageFormat() {
+        return MessageFormat.format("k0={0} k1={1} k2={2} k3={3} k4={4} k5={5} k6={6} k7={7} k8={8} k9={9} k10={10} k11={11} k12={12} k13={13} k14={14} k15={15} k16={16} k17={17} k18={18} k19={19}",
+                s0, s1, s2, s3, s4, s5, s6, s7, s8, s9, s10, s11, s12, s13, s14, s15, s16, s17, s18, s19);
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator.benchmark.runtime;
+
+import java.text.MessageFormat;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.github.gg_a.interpolator.StringInterpolator;
+
+/**
+ * Line where most of the values are {@code null}.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+@StringInterpolator
+public class NullsBenchmark {
+
+    public String name = "GG-A";
+    public String email = null;
+    public String phone = null;
+    public Object address = null;
+    public Integer age = null;
+
+    @Benchmark
+    public String interpolator() {
+        return "name=${name}, email=${email}, phone=${phone}, address=${address}, age=${age}";
+    }
+
+    @Benchmark
+    public String stringBuilder() {
+        return new StringBuilder().append("name=").append(name).append(", email=").append(email)
+                .append(", phone=").append(phone).append(", address=").append(address)
+                .append(", age=").append(age).toString();
+    }
+
+    @Benchmark
+    public String stringFormat() {
+        return String.format("name=%s, email=%s, phone=%s, address=%s, age=%s", name, email, phone, address, age);
+    }
+
+    @Benchmark
+    public String messageFormat() {
+        return MessageFormat.format("name={0}, email={1}, phone={2}, address={3}, age={4}",
+                name, email, phone, address, age);
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator.benchmark.runtime;
+
+import java.text.MessageFormat;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.github.gg_a.interpolator.StringInterpolator;
+
+/**
+ * Line of primitive values only. <br>
+ * {@link MessageFormat} formats numbers with the grouping and precision of the default locale.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+@StringInterpolator
+public class PrimitivesBenchmark {
+
+    public int count = 123456;
+    public long total = 9876543210L;
+    public double ratio = 0.731;
+    public char grade = 'A';
+    public boolean ok = true;
+    public int errors = 7;
+
+    @Benchmark
+    public String interpolator() {
+        return "count=${count}, total=${total}, ratio=${ratio}, grade=${grade}, ok=${ok}, errors=${errors}";
+    }
+
+    @Benchmark
+    public String stringBuilder() {
+        return new StringBuilder().append("count=").append(count).append(", total=").append(total)
+                .append(", ratio=").append(ratio).append(", grade=").append(grade).append(", ok=").append(ok)
+                .append(", errors=").append(errors).toString();
+    }
+
+    @Benchmark
+    public String stringFormat() {
+        return String.format("count=%d, total=%d, ratio=%s, grade=%c, ok=%b, errors=%d",
+                count, total, ratio, grade, ok, errors);
+    }
+
+    @Benchmark
+    public String messageFormat() {
+        return MessageFormat.format("count={0}, total={1}, ratio={2}, grade={3}, ok={4}, errors={5}",
+                count, total, ratio, grade, ok, errors);
+    }
+}
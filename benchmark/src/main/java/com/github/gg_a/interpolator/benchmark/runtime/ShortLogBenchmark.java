@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator.benchmark.runtime;
+
+import java.text.MessageFormat;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.github.gg_a.interpolator.ConcatStrategy;
+import com.github.gg_a.interpolator.StringInterpolator;
+
+/**
+ * Short log line with 3 placeholders.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+@StringInterpolator
+public class ShortLogBenchmark {
+
+    public String user = "GG-A";
+    public int orderId = 1024;
+    public long costMillis = 35L;
+
+    @Benchmark
+    public String interpolator() {
+        return "user ${user} submitted order ${orderId} in ${costMillis} ms";
+    }
+
+    @Benchmark
+    @StringInterpolator(concat = ConcatStrategy.POOLED)
+    public String pooled() {
+        return "user ${user} submitted order ${orderId} in ${costMillis} ms";
+    }
+
+    @Benchmark
+    @StringInterpolator(concat = ConcatStrategy.POOLED_STRIPED)
+    public String pooledStriped() {
+        return "user ${user} submitted order ${orderId} in ${costMillis} ms";
+    }
+
+    @Benchmark
+    public String stringBuilder() {
+        return new StringBuilder().append("user ").append(user).append(" submitted order ").append(orderId)
+                .append(" in ").append(costMillis).append(" ms").toString();
+    }
+
+    @Benchmark
+    public String stringFormat() {
+        return String.format("user %s submitted order %d in %d ms", user, orderId, costMillis);
+    }
+
+    @Benchmark
+    public String messageFormat() {
+        return MessageFormat.format("user {0} submitted order {1} in {2} ms", user, orderId, costMillis);
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator.benchmark.runtime;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.github.gg_a.interpolator.template.Template;
+import com.github.gg_a.interpolator.template.TemplateCache;
+
+/**
+ * Runtime {@link Template} against a regex replace renderer, the template is not in the source code.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TemplateBenchmark {
+
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\$\\{([^}]+)}");
+
+    public String source = "user ${user.name} submitted order ${orderId} in ${costMillis} ms";
+    private final Map<String, Object> model = new HashMap<>();
+    private final TemplateCache cache = new TemplateCache();
+    private Template template;
+
+    public static class User {
+        private final String name;
+
+        public User(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        model.put("user", new User("GG-A"));
+        model.put("orderId", 1024);
+        model.put("costMillis", 35L);
+        template = Template.compile(source);
+    }
+
+    @Benchmark
+    public String template() {
+        return template.render(model);
+    }
+
+    @Benchmark
+    public String templateCache() {
+        return cache.render(source, model);
+    }
+
+    @Benchmark
+    public String regexReplace() {
+        Matcher matcher = PLACEHOLDER.matcher(source);
+        StringBuffer sb = new StringBuffer();
+        while (matcher.find()) {
+            String path = matcher.group(1);
+            Object value = path.equals("user.name") ? ((User) model.get("user")).getName() : model.get(path);
+            matcher.appendReplacement(sb, Matcher.quoteReplacement(String.valueOf(value)));
+        }
+        return matcher.appendTail(sb).toString();
+    }
+}
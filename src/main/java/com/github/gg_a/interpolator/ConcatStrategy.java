@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator;
+
+/**
+ * Code generated for a string literal with interpolations, e.g. {@code "a ${x} b ${y}"}
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+public enum ConcatStrategy {
+    /**
+     * use the {@code -Ainterpolator.concat} option of the compilation, {@link #VALUE_OF} if the option is absent.
+     */
+    DEFAULT,
+    /**
+     * {@code "a " + String.valueOf(x) + " b " + String.valueOf(y)}, every value is converted to a {@code String} first.
+     */
+    VALUE_OF,
+    /**
+     * {@code "a " + x + " b " + y}, values keep their own types, so javac compiles the literal to a single
+     * {@code StringConcatFactory.makeConcatWithConstants} call on Java 9+ targets. <br>
+     * Values which may be a {@code char[]} (unknown types, e.g. method calls) are still converted with
+     * {@code String.valueOf}, the types are only known for literals, operators and declared variables and fields.
+     */
+    INLINE,
+    /**
+     * {@code new StringBuilder(capacity).append("a ").append(x).append(" b ").append(y).toString()},
+     * the initial capacity is computed from the lengths of the literal parts.
+     */
+    BUILDER,
+    /**
+     * {@link #BUILDER} with a {@link StringBuilder} reused by the current thread, kept in a {@link ThreadLocal}:
+     * {@code PooledBuilders.release(PooledBuilders.acquire(capacity).append("a ").append(x)...)}. <br>
+     * Builders which grew over 8192 chars ({@code -Dinterpolator.pool.maxCapacity}) are discarded.
+     * A {@code ThreadLocal} pool grows with the number of threads, use {@link #POOLED_STRIPED} with virtual threads.
+     *
+     * @since 0.0.3
+     */
+    POOLED,
+    /**
+     * {@link #POOLED} with a fixed number of builders (2 * processors) shared by all threads instead of a
+     * {@code ThreadLocal}, so the memory stays bounded with any number of (virtual) threads.
+     *
+     * @since 0.0.3
+     */
+    POOLED_STRIPED,
+    /**
+     * {@link #INLINE} on Java 9+ targets, {@link #BUILDER} on Java 8 targets.
+     */
+    AUTO
+}
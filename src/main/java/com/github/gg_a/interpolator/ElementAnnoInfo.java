@@ -27,11 +27,32 @@ public class ElementAnnoInfo {
     private Element element;
     private String parentClassName;
     private InterpolationMode interpolationMode;
+    private ConcatStrategy concatStrategy;
+    private StringInterpolator annotation;
 
     public ElementAnnoInfo(Element element, String parentClassName, InterpolationMode interpolationMode) {
+        this(element, parentClassName, interpolationMode, ConcatStrategy.VALUE_OF);
+    }
+
+    /**
+     * @param concatStrategy resolved strategy, one of VALUE_OF, INLINE, BUILDER
+     * @since 0.0.3
+     */
+    public ElementAnnoInfo(Element element, String parentClassName, InterpolationMode interpolationMode, ConcatStrategy concatStrategy) {
         this.element = element;
         this.parentClassName = parentClassName;
         this.interpolationMode = interpolationMode;
+        this.concatStrategy = concatStrategy;
+    }
+
+    /**
+     * @param annotation     annotation of the element, or inherited from the enclosing class
+     * @param concatStrategy resolved strategy, one of VALUE_OF, INLINE, BUILDER
+     * @since 0.0.3
+     */
+    public ElementAnnoInfo(Element element, String parentClassName, StringInterpolator annotation, ConcatStrategy concatStrategy) {
+        this(element, parentClassName, annotation.parseMode(), concatStrategy);
+        this.annotation = annotation;
     }
 
     public Element getElement() {
@@ -46,12 +67,45 @@ public class ElementAnnoInfo {
         return interpolationMode;
     }
 
+    public ConcatStrategy getConcatStrategy() {
+        return concatStrategy;
+    }
+
+    /**
+     * @return annotation of the element, may be {@code null}
+     * @since 0.0.3
+     */
+    public StringInterpolator getAnnotation() {
+        return annotation;
+    }
+
+    public boolean isFormat() {
+        return annotation != null && annotation.format();
+    }
+
+    public FormatLocale getFormatLocale() {
+        return annotation == null ? FormatLocale.ROOT : annotation.formatLocale();
+    }
+
+    public Escape getEscape() {
+        return annotation == null ? Escape.NONE : annotation.escape();
+    }
+
+    /**
+     * @return capacity of the cache of each literal, 0 if literals are not memoized
+     * @since 0.0.3
+     */
+    public int getMemoize() {
+        return annotation == null ? 0 : Math.max(annotation.memoize(), 0);
+    }
+
     @Override
     public String toString() {
         return "ElementAnnoInfo{" +
                 "element=" + element +
                 ", \t\tparentClassName='" + parentClassName + '\'' +
                 ", \t\tinterpolationMode=" + interpolationMode +
+                ", \t\tconcatStrategy=" + concatStrategy +
                 '}';
     }
 }
@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator;
+
+/**
+ * Escaping of the values of ${} in a string literal, the literal parts are not escaped.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+public enum Escape {
+    /**
+     * values are not escaped
+     */
+    NONE,
+    /**
+     * JSON string content: {@code "}, {@code \}, control chars, U+2028 and U+2029, e.g. {@code "{\"name\": \"${name}\"}"}
+     */
+    JSON,
+    /**
+     * HTML text and quoted attribute values: {@code & < > " '}
+     */
+    HTML,
+    /**
+     * CSV field (RFC 4180): a value with {@code , " CR LF} is quoted and its {@code "} are doubled, e.g. {@code "${id},${name}"}
+     */
+    CSV,
+    /**
+     * URL component (RFC 3986): chars other than {@code A-Z a-z 0-9 - . _ ~} are percent-encoded as UTF-8,
+     * a space is {@code %20}
+     */
+    URL
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator;
+
+/**
+ * Locale of format specifiers in ${}, e.g. {@code ${price%.2f}}
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+public enum FormatLocale {
+    /**
+     * {@code Locale.ROOT}: decimal separator {@code .}, grouping separator {@code ,}. <br>
+     * Output does not depend on the locale of the JVM, constant values are formatted at compile time.
+     */
+    ROOT,
+    /**
+     * {@code Locale.getDefault(Locale.Category.FORMAT)} at runtime, same as {@code String.format(String, Object...)}
+     */
+    DEFAULT
+}
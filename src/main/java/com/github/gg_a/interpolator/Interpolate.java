@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Intrinsics of String Interpolator: calls with a string literal argument, e.g.
+ * {@code Interpolate.lazy("user: ${user}")}, are rewritten by the processor in elements
+ * annotated with {@link StringInterpolator}. <br>
+ * The generated code uses classes of {@code com.github.gg_a.interpolator.runtime}, so string-interpolator
+ * must be a runtime dependency (not {@code provided}) to use intrinsics.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+public final class Interpolate {
+
+    private Interpolate() {
+    }
+
+    /**
+     * Deferred interpolation: the values in ${} are evaluated where {@code lazy} is called,
+     * the string is only built when {@code toString()} is called for the first time, e.g.
+     * <pre>
+     * log.debug("{}", Interpolate.lazy("user: ${user}, order: ${order}"));
+     * </pre>
+     *
+     * @param template string literal
+     * @return a {@code com.github.gg_a.interpolator.runtime.LazyString}; {@code template} itself if it is not rewritten
+     */
+    public static CharSequence lazy(String template) {
+        return template;
+    }
+
+    /**
+     * Appends the interpolated string to {@code target} without creating the string, e.g.
+     * <pre>
+     * Interpolate.into(sb, "id: ${id}, name: ${name}\n");
+     * </pre>
+     * is rewritten to appends of {@code "id: "}, {@code id}, {@code ", name: "}, {@code name} and {@code "\n"}.
+     *
+     * @param target   target to append to
+     * @param template string literal
+     * @return {@code target}
+     */
+    public static StringBuilder into(StringBuilder target, String template) {
+        return target.append(template);
+    }
+
+    /**
+     * @see #into(StringBuilder, String)
+     */
+    public static StringBuffer into(StringBuffer target, String template) {
+        return target.append(template);
+    }
+
+    /**
+     * Appends the interpolated string to {@code target}, e.g. a {@link java.io.Writer}.
+     *
+     * @see #into(StringBuilder, String)
+     */
+    public static Appendable into(Appendable target, String template) throws IOException {
+        target.append(template);
+        return target;
+    }
+
+    /**
+     * UTF-8 bytes of the interpolated string, the literal parts are encoded once and only the
+     * values are encoded by each call, e.g.
+     * <pre>
+     * byte[] line = Interpolate.utf8("HTTP/1.1 ${status} ${reason}\r\n");
+     * </pre>
+     *
+     * @param template string literal
+     * @return UTF-8 bytes
+     */
+    public static byte[] utf8(String template) {
+        return template.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes the UTF-8 bytes of the interpolated string to {@code out} by a single {@code write} call.
+     *
+     * @see #utf8(String)
+     */
+    public static OutputStream utf8(OutputStream out, String template) throws IOException {
+        out.write(template.getBytes(StandardCharsets.UTF_8));
+        return out;
+    }
+
+    /**
+     * Puts the UTF-8 bytes of the interpolated string into {@code buffer} (heap or direct) without creating
+     * an intermediate string or array.
+     *
+     * @throws java.nio.BufferOverflowException if the buffer is too small, the bytes before the value
+     *                                          which does not fit have been written
+     * @see #utf8(String)
+     */
+    public static ByteBuffer utf8(ByteBuffer buffer, String template) {
+        return buffer.put(template.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * SQL text with a {@code ?} placeholder for each ${}, and the values as its parameters, e.g.
+     * <pre>
+     * Interpolate.sql("SELECT * FROM t WHERE id = ${id}").prepare(connection)
+     * </pre>
+     * Constants are bound too, only {@link SqlQuery#identifier(String) SqlQuery.identifier(TABLE)} is written into
+     * the SQL text. A ${} in a quoted string or identifier, or in a comment, is a compile error.
+     *
+     * @param template string literal
+     * @return the query
+     * @throws IllegalStateException always, the call is replaced at compile time; it is not if the argument is not a
+     *                               string literal, or the processor does not run on the code
+     */
+    public static SqlQuery sql(String template) {
+        throw new IllegalStateException("Interpolate.sql(...) was not rewritten by the annotation processor, "
+                + "its argument must be a string literal in an element annotated with @StringInterpolator");
+    }
+}
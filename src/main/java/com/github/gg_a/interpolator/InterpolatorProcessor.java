@@ -15,22 +15,42 @@
  */
 package com.github.gg_a.interpolator;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 import javax.annotation.processing.*;
 import javax.lang.model.SourceVersion;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.PackageElement;
 import javax.lang.model.element.TypeElement;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
 
 import com.sun.source.util.Trees;
 import com.sun.tools.javac.api.JavacTrees;
+import com.sun.tools.javac.code.Symbol;
+import com.sun.tools.javac.jvm.Target;
 import com.sun.tools.javac.tree.JCTree;
 import com.sun.tools.javac.util.Context;
 import com.sun.tools.javac.processing.JavacProcessingEnvironment;
+import com.github.gg_a.interpolator.ast.ExpressionCache;
+import com.github.gg_a.interpolator.ast.ExpressionParser;
 import com.github.gg_a.interpolator.ast.InterpolatorTranslator;
+import com.github.gg_a.interpolator.ast.LiteralTokenizer;
+import com.github.gg_a.interpolator.ast.SourceIndex;
+import com.github.gg_a.interpolator.token.StringToken;
 
 import static javax.tools.Diagnostic.Kind.*;
 
@@ -42,38 +62,121 @@ import static javax.tools.Diagnostic.Kind.*;
  */
 @SupportedAnnotationTypes("com.github.gg_a.interpolator.StringInterpolator")
 @SupportedSourceVersion(SourceVersion.RELEASE_8)
+@SupportedOptions({InterpolatorProcessor.CACHE_SIZE_OPTION,
+        InterpolatorProcessor.THREADS_OPTION,
+        InterpolatorProcessor.STATS_OPTION,
+        InterpolatorProcessor.CONCAT_OPTION,
+        InterpolatorProcessor.METRICS_OPTION,
+        InterpolatorProcessor.FAST_NUMBERS_OPTION})
 public class InterpolatorProcessor extends AbstractProcessor {
 
+    /**
+     * Maximum number of parsed expressions kept in the {@link ExpressionCache}, e.g. {@code -Ainterpolator.cacheSize=4096}
+     * @since 0.0.3
+     */
+    public static final String CACHE_SIZE_OPTION = "interpolator.cacheSize";
+    /**
+     * Number of threads which split string literals into tokens, e.g. {@code -Ainterpolator.threads=8}.
+     * Default is 1: literals are split on the compiler thread.
+     * @since 0.0.3
+     */
+    public static final String THREADS_OPTION = "interpolator.threads";
+    /**
+     * Write compile-time statistics per class to {@code interpolator-stats.json} (or {@code .csv})
+     * in the class output directory, e.g. {@code -Ainterpolator.stats} or {@code -Ainterpolator.stats=csv},
+     * and print the hits and misses of the {@link ExpressionCache} and the peak heap used as notes.
+     * The report covers every class of the module, so it can not have exactly one originating element as Gradle
+     * requires from an isolating processor: Gradle recompiles the whole module while it is enabled.
+     * @since 0.0.3
+     */
+    public static final String STATS_OPTION = "interpolator.stats";
+    /**
+     * {@link ConcatStrategy} of {@code @StringInterpolator(concat = ConcatStrategy.DEFAULT)}, e.g. {@code -Ainterpolator.concat=AUTO}.
+     * Default is VALUE_OF.
+     * @since 0.0.3
+     */
+    public static final String CONCAT_OPTION = "interpolator.concat";
+    /**
+     * Count the strings created by each interpolated literal at runtime, e.g. {@code -Ainterpolator.metrics},
+     * see {@link com.github.gg_a.interpolator.metrics.InterpolatorMetrics}.
+     * @since 0.0.3
+     */
+    public static final String METRICS_OPTION = "interpolator.metrics";
+    /**
+     * Convert {@code float} and {@code double} values with few fraction digits without {@code FloatingDecimal},
+     * e.g. {@code -Ainterpolator.fastNumbers}, see {@link com.github.gg_a.interpolator.runtime.Numbers}.
+     * Only values between 0.001 and 10<sup>7</sup> with at most 3 fraction digits are fast, all others still go
+     * through {@code Double.toString} or {@code Float.toString}; the output is that of {@code String.valueOf},
+     * not the shortest round trip representation.
+     * @since 0.0.3
+     */
+    public static final String FAST_NUMBERS_OPTION = "interpolator.fastNumbers";
+
     private JavacProcessingEnvironment env;
     private Messager messager;
+    private ExpressionCache expressionCache;
+    private ForkJoinPool tokenizerPool;
+    private InterpolatorStats stats;
+    private ConcatStrategy defaultConcatStrategy;
+    private boolean indyStringConcat;
+    private int compilationUnitCount;
+    /**
+     * heap used by the compiler, sampled after each compilation unit with {@link #STATS_OPTION}
+     */
+    private long peakHeapUsed;
 
     @Override
     public synchronized void init(ProcessingEnvironment processingEnv) {
         messager = processingEnv.getMessager();
         messager.printMessage(NOTE, ">>> StringInterpolator is running!");
-        env = (JavacProcessingEnvironment) processingEnv;
+        env = getJavacProcessingEnvironment(processingEnv);
         super.init(processingEnv);
+        expressionCache = new ExpressionCache(getIntOption(CACHE_SIZE_OPTION, ExpressionCache.DEFAULT_MAXIMUM_SIZE));
+        int threads = getIntOption(THREADS_OPTION, 1);
+        if (threads > 1) tokenizerPool = new ForkJoinPool(threads);
+        if (processingEnv.getOptions().containsKey(STATS_OPTION)) stats = new InterpolatorStats();
+        defaultConcatStrategy = getConcatOption();
+        indyStringConcat = Target.instance(env.getContext()).compareTo(Target.JDK1_8) > 0;
     }
 
     @Override
     public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
 
-        if (roundEnv.processingOver()) return false;
+        if (stats != null) stats.incrementRounds();
+
+        if (roundEnv.processingOver()) {
+            if (stats != null && expressionCache.getMissCount() > 0)
+                messager.printMessage(NOTE, ">>> StringInterpolator " + expressionCache);
+            if (stats != null && compilationUnitCount > 0)
+                messager.printMessage(NOTE, ">>> StringInterpolator processed " + compilationUnitCount
+                        + " compilation units, peak heap used: " + (peakHeapUsed >> 20) + " MB");
+            if (tokenizerPool != null) tokenizerPool.shutdown();
+            if (stats != null) writeStats();
+            return false;
+        }
 
         if (!annotations.isEmpty()) {
             Context context = env.getContext();
             Trees trees = Trees.instance(env);
+            ExpressionParser expressionParser = new ExpressionParser(context, expressionCache);
 
-            Set<Element> elements = new HashSet<>();
-            List<ElementAnnoInfo> elementAnnoInfos = new ArrayList<>();
-
-            Set<? extends Element> elementsAnno = roundEnv.getElementsAnnotatedWith(StringInterpolator.class);
-
-            elementsAnno.forEach(e -> getElements(elements, elementAnnoInfos, e, null));
-            elementAnnoInfos.forEach(e -> {
-                JCTree tree = ((JavacTrees) trees).getTree(e.getElement());
-                InterpolatorTranslator.translate(context, tree, e);
-            });
+            // the elements of a compilation unit are expanded, tokenized and translated together,
+            // so only the state of one unit is live at a time
+            Map<Object, List<Element>> units = new LinkedHashMap<>();
+            for (Element e : roundEnv.getElementsAnnotatedWith(StringInterpolator.class)) {
+                units.computeIfAbsent(compilationUnit(e), k -> new ArrayList<>()).add(e);
+            }
+            for (Iterator<Map.Entry<Object, List<Element>>> it = units.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<Object, List<Element>> unit = it.next();
+                it.remove();
+                SourceIndex sourceIndex = unit.getKey() instanceof JavaFileObject ? SourceIndex.of((JavaFileObject) unit.getKey()) : null;
+                processCompilationUnit(unit.getValue(), sourceIndex, context, (JavacTrees) trees, expressionParser);
+                compilationUnitCount++;
+                if (stats != null) {
+                    Runtime runtime = Runtime.getRuntime();
+                    peakHeapUsed = Math.max(peakHeapUsed, runtime.totalMemory() - runtime.freeMemory());
+                }
+            }
 
             return true;
         }
@@ -81,43 +184,178 @@ public class InterpolatorProcessor extends AbstractProcessor {
         return false;
     }
 
-    private void getElements(Set<Element> elements, List<ElementAnnoInfo> elementAnnoInfos, Element e, InterpolationMode parentParseMode) {
+    /**
+     * @param sourceIndex index of the source file, elements without hits are skipped; {@code null} to translate every element
+     */
+    private void processCompilationUnit(List<Element> unitElements, SourceIndex sourceIndex, Context context,
+                                        JavacTrees trees, ExpressionParser expressionParser) {
+        Set<Element> elements = new HashSet<>();
+        List<ElementAnnoInfo> elementAnnoInfos = new ArrayList<>();
+        unitElements.forEach(e -> getElements(elements, elementAnnoInfos, e, null));
+
+        List<JCTree> elementTrees = new ArrayList<>(elementAnnoInfos.size());
+        if (sourceIndex == null) {
+            elementAnnoInfos.forEach(e -> elementTrees.add(trees.getTree(e.getElement())));
+        } else {
+            Map<Element, Integer> classEnds = new HashMap<>();
+            for (Iterator<ElementAnnoInfo> it = elementAnnoInfos.iterator(); it.hasNext(); ) {
+                Element e = it.next().getElement();
+                JCTree tree = trees.getTree(e);
+                if (tree == null || sourceIndex.hasHits(tree, elementEnd(sourceIndex, trees, classEnds, e))) elementTrees.add(tree);
+                else it.remove();
+            }
+        }
+        // phase 1: split literals, may run in parallel
+        Map<JCTree.JCLiteral, List<StringToken>> literalTokens =
+                new LiteralTokenizer(tokenizerPool, stats).tokenize(elementAnnoInfos, elementTrees, sourceIndex);
+        // phase 2: rewrite trees on the compiler thread
+        for (int i = 0; i < elementAnnoInfos.size(); i++) {
+            ElementAnnoInfo e = elementAnnoInfos.get(i);
+            InterpolatorStats.ClassStats classStats = stats == null ? null : stats.forClass(e.getParentClassName());
+            long start = System.nanoTime();
+            InterpolatorTranslator.translate(context, expressionParser, literalTokens, classStats, sourceIndex, elementTrees.get(i), e);
+            if (classStats != null) classStats.addElement(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * @param classEnds ends of the classes whose members have ends in the {@link SourceIndex}
+     * @return end of the source of a member, see {@link SourceIndex#ends}
+     */
+    private static int elementEnd(SourceIndex sourceIndex, JavacTrees trees, Map<Element, Integer> classEnds, Element e) {
+        Element owner = e.getEnclosingElement();
+        if (!(owner instanceof TypeElement)) return sourceIndex.length();   // top level or local class
+        if (!classEnds.containsKey(owner)) {
+            JCTree.JCClassDecl ownerTree = trees.getTree((TypeElement) owner);
+            if (ownerTree == null) return sourceIndex.length();
+            int ownerEnd = elementEnd(sourceIndex, trees, classEnds, owner);
+            sourceIndex.ends(ownerTree.defs, ownerEnd);
+            classEnds.put(owner, ownerEnd);
+        }
+        JCTree tree = trees.getTree(e);
+        return tree == null ? sourceIndex.length() : sourceIndex.end(tree);
+    }
+
+    /**
+     * @return source file of the top level class of the element, without searching the trees
+     */
+    private static Object compilationUnit(Element e) {
+        Element topLevel = e;
+        while (topLevel.getEnclosingElement() != null && !(topLevel.getEnclosingElement() instanceof PackageElement)) {
+            topLevel = topLevel.getEnclosingElement();
+        }
+        if (topLevel instanceof Symbol.ClassSymbol && ((Symbol.ClassSymbol) topLevel).sourcefile != null)
+            return ((Symbol.ClassSymbol) topLevel).sourcefile;
+        return topLevel;
+    }
+
+    private void getElements(Set<Element> elements, List<ElementAnnoInfo> elementAnnoInfos, Element e, StringInterpolator parentAnno) {
         StringInterpolator annotation = e.getAnnotation(StringInterpolator.class);
         if (annotation != null) {
             if (annotation.value())
-                getElementsWithAnno(elements, elementAnnoInfos, e, annotation.parseMode());
+                getElementsWithAnno(elements, elementAnnoInfos, e, annotation);
         } else {
-            if (parentParseMode != null)
-                getElementsWithAnno(elements, elementAnnoInfos, e, parentParseMode);
+            if (parentAnno != null)
+                getElementsWithAnno(elements, elementAnnoInfos, e, parentAnno);
         }
     }
 
-    private void getElementsWithAnno(Set<Element> elements, List<ElementAnnoInfo> elementAnnoInfos, Element e, InterpolationMode parentParseMode) {
+    private void getElementsWithAnno(Set<Element> elements, List<ElementAnnoInfo> elementAnnoInfos, Element e, StringInterpolator parentAnno) {
         if (isType(e)) {
             List<? extends Element> enclosedElements = e.getEnclosedElements();
             for (Element enclosedElement : enclosedElements) {
                 if (isType(enclosedElement)) {
-                    getElements(elements, elementAnnoInfos, enclosedElement, parentParseMode);
+                    getElements(elements, elementAnnoInfos, enclosedElement, parentAnno);
                 } else {
                     StringInterpolator anno = enclosedElement.getAnnotation(StringInterpolator.class);
                     if (anno == null) {
-                        addElementToSet(elements, elementAnnoInfos, enclosedElement, parentParseMode);
+                        addElementToSet(elements, elementAnnoInfos, enclosedElement, parentAnno);
                     } else {
                         if (anno.value())
-                            addElementToSet(elements, elementAnnoInfos, enclosedElement, anno.parseMode());
+                            addElementToSet(elements, elementAnnoInfos, enclosedElement, anno);
                     }
                 }
             }
         } else {
-            addElementToSet(elements, elementAnnoInfos, e, parentParseMode);
+            addElementToSet(elements, elementAnnoInfos, e, parentAnno);
         }
     }
 
-    private void addElementToSet(Set<Element> elements, List<ElementAnnoInfo> elementAnnoInfos, Element e, InterpolationMode interpolationMode) {
+    private void addElementToSet(Set<Element> elements, List<ElementAnnoInfo> elementAnnoInfos, Element e, StringInterpolator anno) {
         if (!elements.contains(e)) {
             Element enclosingElement = e.getEnclosingElement();
             elements.add(e);
-            elementAnnoInfos.add(new ElementAnnoInfo(e, enclosingElement.toString(), interpolationMode));
+            elementAnnoInfos.add(new ElementAnnoInfo(e, enclosingElement.toString(), anno, resolveConcatStrategy(anno.concat())));
+        }
+    }
+
+    /**
+     * DEFAULT is replaced by the {@link #CONCAT_OPTION}, AUTO by INLINE (Java 9+ targets) or BUILDER (Java 8 targets).
+     */
+    private ConcatStrategy resolveConcatStrategy(ConcatStrategy concatStrategy) {
+        if (concatStrategy == ConcatStrategy.DEFAULT) concatStrategy = defaultConcatStrategy;
+        if (concatStrategy == ConcatStrategy.AUTO) concatStrategy = indyStringConcat ? ConcatStrategy.INLINE : ConcatStrategy.BUILDER;
+        return concatStrategy;
+    }
+
+    private void writeStats() {
+        String format = processingEnv.getOptions().get(STATS_OPTION);
+        boolean csv = "csv".equalsIgnoreCase(format);
+        stats.setCacheStats(expressionCache.size(), expressionCache.getHitCount(), expressionCache.getMissCount());
+        try {
+            FileObject report = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "",
+                    csv ? "interpolator-stats.csv" : "interpolator-stats.json");
+            try (Writer writer = report.openWriter()) {
+                if (csv) stats.writeCsv(writer);
+                else stats.writeJson(writer);
+            }
+            messager.printMessage(NOTE, ">>> StringInterpolator stats: " + report.toUri());
+        } catch (IOException e) {
+            messager.printMessage(WARNING, ">>> StringInterpolator can not write stats: " + e);
+        }
+    }
+
+    /**
+     * Build tools may wrap the ProcessingEnvironment, e.g. Gradle's IncrementalProcessingEnvironment
+     * when the processor runs as an incremental (isolating) annotation processor.
+     */
+    private static JavacProcessingEnvironment getJavacProcessingEnvironment(Object processingEnv) {
+        if (processingEnv instanceof JavacProcessingEnvironment) return (JavacProcessingEnvironment) processingEnv;
+
+        for (Class<?> c = processingEnv.getClass(); c != null; c = c.getSuperclass()) {
+            try {
+                Field delegate = c.getDeclaredField("delegate");
+                delegate.setAccessible(true);
+                return getJavacProcessingEnvironment(delegate.get(processingEnv));
+            } catch (NoSuchFieldException ignored) {
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Can not unwrap ProcessingEnvironment: " + processingEnv.getClass().getName(), e);
+            }
+        }
+        throw new IllegalStateException("StringInterpolator only supports javac, unsupported ProcessingEnvironment: "
+                + processingEnv.getClass().getName());
+    }
+
+    private int getIntOption(String name, int defaultValue) {
+        String value = processingEnv.getOptions().get(name);
+        if (value == null) return defaultValue;
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            messager.printMessage(WARNING, ">>> StringInterpolator: invalid value of -A" + name + ": " + value);
+            return defaultValue;
+        }
+    }
+
+    private ConcatStrategy getConcatOption() {
+        String value = processingEnv.getOptions().get(CONCAT_OPTION);
+        if (value == null) return ConcatStrategy.VALUE_OF;
+        try {
+            ConcatStrategy concatStrategy = ConcatStrategy.valueOf(value.trim().toUpperCase(Locale.ROOT));
+            return concatStrategy == ConcatStrategy.DEFAULT ? ConcatStrategy.VALUE_OF : concatStrategy;
+        } catch (IllegalArgumentException e) {
+            messager.printMessage(WARNING, ">>> StringInterpolator: invalid value of -A" + CONCAT_OPTION + ": " + value);
+            return ConcatStrategy.VALUE_OF;
         }
     }
 
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compile-time statistics of {@link InterpolatorProcessor}, enabled by {@code -Ainterpolator.stats}
+ * and written as JSON or CSV at the end of processing.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+public class InterpolatorStats {
+
+    private final Map<String, ClassStats> classes = new TreeMap<>();
+    private int rounds;
+    private long cacheSize;
+    private long cacheHits;
+    private long cacheMisses;
+
+    public ClassStats forClass(String className) {
+        return classes.computeIfAbsent(className, ClassStats::new);
+    }
+
+    public void incrementRounds() {
+        rounds++;
+    }
+
+    public void setCacheStats(long size, long hits, long misses) {
+        this.cacheSize = size;
+        this.cacheHits = hits;
+        this.cacheMisses = misses;
+    }
+
+    public void writeJson(Writer writer) throws IOException {
+        writer.write("{\n");
+        writer.write("  \"rounds\": " + rounds + ",\n");
+        writer.write("  \"expressionCache\": {\"size\": " + cacheSize + ", \"hits\": " + cacheHits
+                + ", \"misses\": " + cacheMisses + "},\n");
+        writer.write("  \"classes\": [");
+        String separator = "\n";
+        for (ClassStats c : classes.values()) {
+            writer.write(separator);
+            writer.write("    {\"class\": \"" + escapeJson(c.className) + "\""
+                    + ", \"elements\": " + c.elements
+                    + ", \"literals\": " + c.literals
+                    + ", \"interpolatedLiterals\": " + c.interpolatedLiterals
+                    + ", \"expressions\": " + c.expressions
+                    + ", \"parseFailures\": " + c.parseFailures
+                    + ", \"extractionNanos\": " + c.extractionNanos
+                    + ", \"parseNanos\": " + c.parseNanos
+                    + ", \"translationNanos\": " + c.translationNanos + "}");
+            separator = ",\n";
+        }
+        writer.write("\n  ]\n}\n");
+    }
+
+    public void writeCsv(Writer writer) throws IOException {
+        writer.write("class,elements,literals,interpolatedLiterals,expressions,parseFailures,"
+                + "extractionNanos,parseNanos,translationNanos,rounds\n");
+        for (ClassStats c : classes.values()) {
+            writer.write(c.className + "," + c.elements + "," + c.literals + "," + c.interpolatedLiterals + ","
+                    + c.expressions + "," + c.parseFailures + "," + c.extractionNanos + "," + c.parseNanos + ","
+                    + c.translationNanos + "," + rounds + "\n");
+        }
+    }
+
+    private static String escapeJson(String s) {
+        return s.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    /**
+     * Counters of one class, {@code translationNanos} includes {@code parseNanos}.
+     */
+    public static class ClassStats {
+        private final String className;
+        private long elements;
+        private long literals;
+        private long interpolatedLiterals;
+        private long expressions;
+        private long parseFailures;
+        private long extractionNanos;
+        private long parseNanos;
+        private long translationNanos;
+
+        ClassStats(String className) {
+            this.className = className;
+        }
+
+        public void addElement(long translationNanos) {
+            this.elements++;
+            this.translationNanos += translationNanos;
+        }
+
+        public void addLiteral(boolean interpolated, long extractionNanos) {
+            this.literals++;
+            if (interpolated) this.interpolatedLiterals++;
+            this.extractionNanos += extractionNanos;
+        }
+
+        public void addExpression(boolean parsed, long parseNanos) {
+            this.expressions++;
+            if (!parsed) this.parseFailures++;
+            this.parseNanos += parseNanos;
+        }
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+/**
+ * SQL text with {@code ?} placeholders and its parameters, created by {@link Interpolate#sql(String)}:
+ * <pre>
+ * SqlQuery query = Interpolate.sql("SELECT * FROM t WHERE id = ${id} AND name = ${name}");
+ * // new SqlQuery("SELECT * FROM t WHERE id = ? AND name = ?", 2).param(id).param(name)
+ * try (PreparedStatement ps = query.prepare(connection)) { ... }
+ * </pre>
+ * javac chooses the {@code param} overload by the type of the value, {@link #bind} calls the matching setter
+ * ({@code setInt} for an {@code int}, {@code setString} for a {@code String}, etc.), primitives are not boxed. <br>
+ * A {@code null} {@code String}, {@code BigDecimal} or {@code byte[]} is bound by {@code setNull} with its SQL type,
+ * other objects by {@code setObject}. The SQL text of a call site is a constant, so statements and their plans can be cached. <br>
+ * A constant which is a name, e.g. of a table, is written into the SQL text by {@link #identifier(String)}.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+public final class SqlQuery {
+
+    private static final byte INT = 0;
+    private static final byte LONG = 1;
+    private static final byte DOUBLE = 2;
+    private static final byte FLOAT = 3;
+    private static final byte BOOLEAN = 4;
+    private static final byte STRING = 5;
+    private static final byte BIG_DECIMAL = 6;
+    private static final byte BYTES = 7;
+    private static final byte OBJECT = 8;
+
+    /**
+     * names separated by dots, e.g. {@code schema.table}
+     */
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_$]*(\\.[A-Za-z_][A-Za-z0-9_$]*)*");
+
+    private static final Object[] NO_OBJECTS = {};
+    private static final long[] NO_PRIMITIVES = {};
+    private static final byte[] NO_TYPES = {};
+
+    private final String sql;
+    private final byte[] types;
+    /**
+     * primitive parameters, doubles and floats as raw bits
+     */
+    private final long[] primitives;
+    private final Object[] objects;
+    private int count;
+
+    public SqlQuery(String sql) {
+        this.sql = sql;
+        this.types = NO_TYPES;
+        this.primitives = NO_PRIMITIVES;
+        this.objects = NO_OBJECTS;
+    }
+
+    /**
+     * @param parameterCount number of {@code param} calls which follow
+     */
+    public SqlQuery(String sql, int parameterCount) {
+        this.sql = sql;
+        this.types = new byte[parameterCount];
+        this.primitives = new long[parameterCount];
+        this.objects = new Object[parameterCount];
+    }
+
+    /**
+     * Marks a ${} of {@link Interpolate#sql(String)} whose value is written into the SQL text instead of being bound,
+     * e.g. the name of a table:
+     * <pre>
+     * Interpolate.sql("SELECT * FROM ${SqlQuery.identifier(TABLE)} WHERE id = ${id}")
+     * </pre>
+     * The value must be a constant, it is checked at compile time.
+     *
+     * @param name letters, digits, {@code _} and {@code $}, not starting with a digit or {@code $};
+     *             names may be qualified by dots
+     * @return {@code name}
+     * @throws IllegalArgumentException if {@code name} is not an identifier
+     */
+    public static String identifier(String name) {
+        if (name == null || !IDENTIFIER.matcher(name).matches()) throw new IllegalArgumentException("not an SQL identifier: " + name);
+        return name;
+    }
+
+    public SqlQuery param(int value) {
+        return primitive(INT, value);
+    }
+
+    public SqlQuery param(long value) {
+        return primitive(LONG, value);
+    }
+
+    public SqlQuery param(double value) {
+        return primitive(DOUBLE, Double.doubleToRawLongBits(value));
+    }
+
+    public SqlQuery param(float value) {
+        return primitive(FLOAT, Float.floatToRawIntBits(value));
+    }
+
+    public SqlQuery param(boolean value) {
+        return primitive(BOOLEAN, value ? 1 : 0);
+    }
+
+    /**
+     * a {@code char} is bound as a string of one char, not as its code
+     */
+    public SqlQuery param(char value) {
+        return object(STRING, String.valueOf(value));
+    }
+
+    public SqlQuery param(String value) {
+        return object(STRING, value);
+    }
+
+    public SqlQuery param(BigDecimal value) {
+        return object(BIG_DECIMAL, value);
+    }
+
+    public SqlQuery param(byte[] value) {
+        return object(BYTES, value);
+    }
+
+    public SqlQuery param(Object value) {
+        return object(OBJECT, value);
+    }
+
+    /**
+     * Appends the parameters of {@code query}, generated code binds many parameters in chunks.
+     */
+    public SqlQuery params(SqlQuery query) {
+        System.arraycopy(query.types, 0, types, count, query.count);
+        System.arraycopy(query.primitives, 0, primitives, count, query.count);
+        System.arraycopy(query.objects, 0, objects, count, query.count);
+        count += query.count;
+        return this;
+    }
+
+    private SqlQuery primitive(byte type, long value) {
+        types[count] = type;
+        primitives[count++] = value;
+        return this;
+    }
+
+    private SqlQuery object(byte type, Object value) {
+        types[count] = type;
+        objects[count++] = value;
+        return this;
+    }
+
+    /**
+     * Sets the parameters of {@code statement}, which is prepared with {@link #getSql()}.
+     *
+     * @return {@code statement}
+     */
+    public <S extends PreparedStatement> S bind(S statement) throws SQLException {
+        for (int i = 0; i < count; i++) {
+            int index = i + 1;
+            switch (types[i]) {
+                case INT:
+                    statement.setInt(index, (int) primitives[i]);
+                    break;
+                case LONG:
+                    statement.setLong(index, primitives[i]);
+                    break;
+                case DOUBLE:
+                    statement.setDouble(index, Double.longBitsToDouble(primitives[i]));
+                    break;
+                case FLOAT:
+                    statement.setFloat(index, Float.intBitsToFloat((int) primitives[i]));
+                    break;
+                case BOOLEAN:
+                    statement.setBoolean(index, primitives[i] != 0);
+                    break;
+                case STRING:
+                    if (objects[i] == null) statement.setNull(index, Types.VARCHAR);
+                    else statement.setString(index, (String) objects[i]);
+                    break;
+                case BIG_DECIMAL:
+                    if (objects[i] == null) statement.setNull(index, Types.NUMERIC);
+                    else statement.setBigDecimal(index, (BigDecimal) objects[i]);
+                    break;
+                case BYTES:
+                    if (objects[i] == null) statement.setNull(index, Types.VARBINARY);
+                    else statement.setBytes(index, (byte[]) objects[i]);
+                    break;
+                default:
+                    statement.setObject(index, objects[i]);
+            }
+        }
+        return statement;
+    }
+
+    /**
+     * Prepares a statement with {@link #getSql()} and binds the parameters, the statement is closed if binding fails.
+     */
+    public PreparedStatement prepare(Connection connection) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(sql);
+        try {
+            return bind(statement);
+        } catch (SQLException | RuntimeException e) {
+            try {
+                statement.close();
+            } catch (SQLException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return SQL text with {@code ?} placeholders
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    public int getParameterCount() {
+        return count;
+    }
+
+    /**
+     * @return the parameters, primitives are boxed
+     */
+    public Object[] getParameters() {
+        Object[] parameters = new Object[count];
+        for (int i = 0; i < count; i++) {
+            switch (types[i]) {
+                case INT:
+                    parameters[i] = (int) primitives[i];
+                    break;
+                case LONG:
+                    parameters[i] = primitives[i];
+                    break;
+                case DOUBLE:
+                    parameters[i] = Double.longBitsToDouble(primitives[i]);
+                    break;
+                case FLOAT:
+                    parameters[i] = Float.intBitsToFloat((int) primitives[i]);
+                    break;
+                case BOOLEAN:
+                    parameters[i] = primitives[i] != 0;
+                    break;
+                default:
+                    parameters[i] = objects[i];
+            }
+        }
+        return parameters;
+    }
+
+    @Override
+    public String toString() {
+        return count == 0 ? sql : sql + " " + Arrays.deepToString(getParameters());
+    }
+}
@@ -42,4 +42,49 @@ public @interface StringInterpolator {
      */
     InterpolationMode parseMode() default InterpolationMode.EXPRESSION;
 
+    /**
+     * Code generated for string literals with interpolations: DEFAULT, VALUE_OF, INLINE, BUILDER, POOLED, POOLED_STRIPED, AUTO
+     * @return ConcatStrategy
+     * @since 0.0.3
+     */
+    ConcatStrategy concat() default ConcatStrategy.DEFAULT;
+
+    /**
+     * Whether parse format specifiers in ${}, e.g. {@code ${price%.2f}}, {@code ${id%08d}}, {@code ${name%-10s}}. <br>
+     * Supported conversions: {@code d o x X e E f s S}, there must be no whitespace before {@code %},
+     * {@code ${a % b}} is still a remainder. <br>
+     * The generated code calls {@code com.github.gg_a.interpolator.runtime.Formats}, so string-interpolator
+     * must be a runtime dependency (not {@code provided}).
+     * @return return {@code true} if format specifiers are parsed
+     * @since 0.0.3
+     */
+    boolean format() default false;
+
+    /**
+     * Locale of format specifiers: ROOT, DEFAULT
+     * @return FormatLocale
+     * @since 0.0.3
+     */
+    FormatLocale formatLocale() default FormatLocale.ROOT;
+
+    /**
+     * Escaping of the values of ${}: NONE, JSON, HTML, CSV, URL. <br>
+     * Escaped literals are built by a {@code StringBuilder} which escapes each value while appending it,
+     * numbers, booleans and enums are appended without scanning. The generated code calls
+     * {@code com.github.gg_a.interpolator.runtime.Escapes}, so string-interpolator must be a runtime dependency.
+     * @return Escape
+     * @since 0.0.3
+     */
+    Escape escape() default Escape.NONE;
+
+    /**
+     * Max number of strings cached by each literal with ${}, {@code 0} to build every string. <br>
+     * A literal looks up its values in a cache and returns the cached instance on a hit, use it for values with
+     * few combinations, e.g. {@code "requests.${region}.${status}"}. The concat strategy is not used.
+     * If most lookups miss, the cache is bypassed for a while, see {@code com.github.gg_a.interpolator.runtime.StringMemo}.
+     * @return capacity of the cache of each literal
+     * @since 0.0.3
+     */
+    int memoize() default 0;
+
 }
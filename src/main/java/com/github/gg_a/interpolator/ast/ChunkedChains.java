@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator.ast;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+import com.github.gg_a.interpolator.token.StringToken;
+import com.sun.tools.javac.tree.JCTree;
+
+import static com.github.gg_a.interpolator.ast.ExpressionParser.unwrapValueOf;
+import static com.github.gg_a.interpolator.token.TokenType.EXPRESSION;
+
+/**
+ * Chains of generated calls, e.g. {@code sb.append(a).append(b)...}. javac attributes and generates nested trees
+ * recursively, thousands of them overflow its stack, so literals with many operands are split into chunks.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+final class ChunkedChains {
+
+    /**
+     * longest chain of generated concatenations or appends, literals with more operands are split into chunks
+     */
+    static final int MAX_CHAIN_LENGTH = 64;
+
+    /**
+     * operands of a chunk, and chunks of a group; javac 9+ attributes a call which is an argument on a copy first,
+     * so nesting calls as arguments costs the square of the depth
+     */
+    static final int CHUNK_SIZE = 16;
+
+    private final TreeFactory trees;
+
+    ChunkedChains(TreeFactory trees) {
+        this.trees = trees;
+    }
+
+    /**
+     * Splits {@code size} operands into chunks of {@link #CHUNK_SIZE}, a chunk has at least 2 operands.
+     *
+     * @return {@code [from, to)} of each chunk
+     */
+    static List<int[]> chunks(int size) {
+        List<int[]> chunks = new ArrayList<>();
+        for (int from = 0; from < size; from += CHUNK_SIZE) chunks.add(new int[]{from, Math.min(size, from + CHUNK_SIZE)});
+        int[] last = chunks.get(chunks.size() - 1);
+        if (chunks.size() > 1 && last[1] - last[0] == 1) {
+            chunks.remove(chunks.size() - 1);
+            chunks.get(chunks.size() - 1)[1] = size;
+        }
+        return chunks;
+    }
+
+    /**
+     * @return number of positions needed by {@link #appendChunks} for {@code size} operands
+     */
+    static int chunkArgumentCount(int size) {
+        int count = 0;
+        for (int chunks = chunks(size).size(); chunks > 1; chunks = (chunks + CHUNK_SIZE - 1) / CHUNK_SIZE) count += chunks;
+        return count + 1;
+    }
+
+    /**
+     * Positions for generated calls which are arguments of other generated calls: javac 9+ caches the types of
+     * method arguments by their position (ArgumentAttr), so the calls of a chain must not share a position with
+     * each other or with the interpolated expressions, which are at the offsets of their tokens.
+     * The positions are taken from the literal, it is long enough: every token has at least one char.
+     */
+    static int[] argumentPositions(JCTree.JCLiteral literal, List<StringToken> tokens, int count) {
+        Set<Integer> expressionPositions = new HashSet<>();
+        for (StringToken st : tokens) {
+            if (st.getType() == EXPRESSION) expressionPositions.add(st.getOffset());
+        }
+        int[] positions = new int[count];
+        for (int i = 0, pos = literal.pos; i < count; pos++) {
+            if (!expressionPositions.contains(pos)) positions[i++] = pos;
+        }
+        return positions;
+    }
+
+    /*
+     * Appends builders of chunks to a builder, in nested groups of CHUNK_SIZE:
+     * builder.append(new java.lang.StringBuilder(groupCapacity).append(chunk0)...append(chunk15))...
+     * Every chunk or group is an argument, so it gets a distinct position (see argumentPositions).
+     * Each level copies the chars once more, there are 2 levels for 4096 operands.
+     */
+    JCTree.JCExpression appendChunks(int pos, JCTree.JCExpression builder, List<JCTree.JCExpression> chunks,
+                                     List<Integer> capacities, PrimitiveIterator.OfInt positions) {
+        return appendChunks(pos, builder, chunks, capacities, positions, capacity -> trees.newStringBuilder(pos, capacity), "append");
+    }
+
+    /**
+     * @param newGroup creates the container of a group of chunks with the sum of their capacities
+     * @param append   method which appends a chunk to a container and returns the container
+     */
+    JCTree.JCExpression appendChunks(int pos, JCTree.JCExpression builder, List<JCTree.JCExpression> chunks,
+                                     List<Integer> capacities, PrimitiveIterator.OfInt positions,
+                                     IntFunction<JCTree.JCExpression> newGroup, String append) {
+        return appendArguments(pos, builder, append, groups(pos, chunks, capacities, positions, newGroup, append), positions);
+    }
+
+    /**
+     * Appends chunks to new containers in nested groups of {@link #CHUNK_SIZE}, see {@link #appendChunks}.
+     *
+     * @return at most {@link #CHUNK_SIZE} groups, {@code chunks} if there are not more
+     */
+    List<JCTree.JCExpression> groups(int pos, List<JCTree.JCExpression> chunks, List<Integer> capacities,
+                                     PrimitiveIterator.OfInt positions, IntFunction<JCTree.JCExpression> newGroup, String append) {
+        while (chunks.size() > CHUNK_SIZE) {
+            List<JCTree.JCExpression> groups = new ArrayList<>();
+            List<Integer> groupCapacities = new ArrayList<>();
+            for (int from = 0; from < chunks.size(); from += CHUNK_SIZE) {
+                int to = Math.min(chunks.size(), from + CHUNK_SIZE);
+                int capacity = 0;
+                for (int i = from; i < to; i++) capacity += capacities.get(i);
+                groups.add(appendArguments(pos, newGroup.apply(capacity), append, chunks.subList(from, to), positions));
+                groupCapacities.add(capacity);
+            }
+            chunks = groups;
+            capacities = groupCapacities;
+        }
+        return chunks;
+    }
+
+    /**
+     * The parts of a long literal in builders, for intrinsics which nest a call per part as the argument of the next call:
+     * {@code new java.lang.StringBuilder(capacity).append("a ").append(x)...} per chunk, grouped like {@link #appendChunks}.
+     *
+     * @param positions {@link #chunkArgumentCount} positions for the chunks and groups, then one for each returned group
+     * @return at most {@link #CHUNK_SIZE} builders, in order
+     */
+    List<JCTree.JCExpression> builderGroups(int pos, List<StringToken> tokens, List<JCTree.JCExpression> operands,
+                                            PrimitiveIterator.OfInt positions) {
+        List<JCTree.JCExpression> chunks = new ArrayList<>();
+        List<Integer> capacities = new ArrayList<>();
+        for (int[] chunk : chunks(tokens.size())) {
+            int capacity = 0;
+            for (int i = chunk[0]; i < chunk[1]; i++) {
+                StringToken st = tokens.get(i);
+                capacity += st.getType() == EXPRESSION ? InterpolatorTranslator.ESTIMATED_VALUE_LENGTH : st.getValue().length();
+            }
+            JCTree.JCExpression builder = trees.newStringBuilder(pos, capacity);
+            for (int i = chunk[0]; i < chunk[1]; i++) {
+                builder = trees.call(pos, builder, "append", unwrapValueOf(tokens.get(i), operands.get(i)));
+            }
+            chunks.add(builder);
+            capacities.add(capacity);
+        }
+        List<JCTree.JCExpression> groups = groups(pos, chunks, capacities, positions, capacity -> trees.newStringBuilder(pos, capacity), "append");
+        for (JCTree.JCExpression group : groups) group.pos = positions.nextInt();
+        return groups;
+    }
+
+    private JCTree.JCExpression appendArguments(int pos, JCTree.JCExpression builder, String append,
+                                                List<JCTree.JCExpression> arguments, PrimitiveIterator.OfInt positions) {
+        JCTree.JCExpression expr = builder;
+        for (JCTree.JCExpression argument : arguments) {
+            argument.pos = positions.nextInt();
+            expr = trees.call(pos, expr, append, argument);
+        }
+        return expr;
+    }
+}
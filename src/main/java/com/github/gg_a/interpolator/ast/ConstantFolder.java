@@ -0,0 +1,396 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator.ast;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+
+import com.sun.tools.javac.tree.JCTree;
+import com.sun.tools.javac.tree.TreeScanner;
+
+/**
+ * Evaluates constant expressions in {@code ${}} at compile time, e.g. {@code ${PREFIX}} or {@code ${A + B}}. <br>
+ * Supported: literals, parentheses, unary and binary operators, and the constant fields (JLS 4.12.4)
+ * of the current class, its enclosing classes and fully qualified classes of the same top level class.
+ * Constants of other top level classes are left to javac: their values are inlined anyway, but javac records
+ * the reference, which incremental builds (Gradle's isolating processors) need to recompile this class
+ * when the constant changes.
+ * Trees are not attributed yet, so names are only resolved when they can not refer to anything else:
+ * a name declared by a variable of the element is never resolved.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+class ConstantFolder {
+
+    /**
+     * Result of {@link #fold} for expressions which are not constant
+     */
+    static final Object NOT_CONSTANT = new Object();
+
+    private final Elements elements;
+    private final TypeElement currentClass;
+    private final Set<String> localNames = new HashSet<>();
+    /**
+     * declared types of the variables of the element, {@code null} for {@code var} and implicitly typed lambda parameters
+     */
+    private final Map<String, Set<String>> localTypes = new HashMap<>();
+    private final Map<String, Object> identValues = new HashMap<>();
+
+    /**
+     * @param element element being translated, a member of a class
+     * @param tree    tree of the element
+     */
+    ConstantFolder(Elements elements, Element element, JCTree tree) {
+        this.elements = elements;
+        Element enclosingElement = element.getEnclosingElement();
+        this.currentClass = enclosingElement instanceof TypeElement ? (TypeElement) enclosingElement : null;
+        new TreeScanner() {
+            @Override
+            public void visitVarDef(JCTree.JCVariableDecl tree) {
+                localNames.add(tree.getName().toString());
+                localTypes.computeIfAbsent(tree.getName().toString(), n -> new HashSet<>())
+                        .add(tree.vartype == null ? null : tree.vartype.toString());
+                super.visitVarDef(tree);
+            }
+        }.scan(tree);
+    }
+
+    /**
+     * @param expr          expression to evaluate
+     * @param resolveFields {@code false} inside local and anonymous classes, their inherited fields are unknown
+     * @return boxed value of the expression, or {@link #NOT_CONSTANT}
+     */
+    Object fold(JCTree.JCExpression expr, boolean resolveFields) {
+        switch (expr.getTag()) {
+            case LITERAL:
+                Object value = ((JCTree.JCLiteral) expr).getValue();
+                return value == null ? NOT_CONSTANT : value;
+            case PARENS:
+                return fold(((JCTree.JCParens) expr).getExpression(), resolveFields);
+            case IDENT:
+                return resolveFields ? identValue(((JCTree.JCIdent) expr).getName().toString()) : NOT_CONSTANT;
+            case SELECT:
+                return resolveFields ? selectValue((JCTree.JCFieldAccess) expr) : NOT_CONSTANT;
+            case POS:
+            case NEG:
+            case COMPL:
+            case NOT:
+                Object operand = fold(((JCTree.JCUnary) expr).getExpression(), resolveFields);
+                return operand == NOT_CONSTANT ? NOT_CONSTANT : unary(expr.getTag(), operand);
+            default:
+                if (!(expr instanceof JCTree.JCBinary)) return NOT_CONSTANT;
+                JCTree.JCBinary binary = (JCTree.JCBinary) expr;
+                Object left = fold(binary.getLeftOperand(), resolveFields);
+                if (left == NOT_CONSTANT) return NOT_CONSTANT;
+                Object right = fold(binary.getRightOperand(), resolveFields);
+                if (right == NOT_CONSTANT) return NOT_CONSTANT;
+                return binary(expr.getTag(), left, right);
+        }
+    }
+
+    /**
+     * @return whether {@code name} is declared as a variable of the element, or as a field of the current or
+     * an enclosing class
+     */
+    boolean isVariable(String name) {
+        return localNames.contains(name) || isField(name);
+    }
+
+    /**
+     * Whether the static type of {@code expr} may be {@code char[]}: {@code String.valueOf(char[])} returns
+     * the characters, string concatenation the {@code toString()} of the array.
+     *
+     * @param resolveFields {@code false} inside local and anonymous classes, their inherited fields are unknown
+     * @return {@code false} only if the type is known not to be {@code char[]}
+     */
+    boolean mayBeCharArray(JCTree.JCExpression expr, boolean resolveFields) {
+        switch (expr.getTag()) {
+            case LITERAL:
+            case NEWCLASS:
+            case TYPETEST:
+                return false;
+            case PARENS:
+                return mayBeCharArray(((JCTree.JCParens) expr).getExpression(), resolveFields);
+            case TYPECAST:
+                return mayBeCharArray(((JCTree.JCTypeCast) expr).getType().toString());
+            case IDENT:
+                String name = ((JCTree.JCIdent) expr).getName().toString();
+                if (name.equals("this")) return false;
+                return !resolveFields || identMayBeCharArray(name);
+            default:
+                // the operators have primitive or String results
+                return !(expr instanceof JCTree.JCBinary || expr instanceof JCTree.JCUnary);
+        }
+    }
+
+    /*
+     * a name declared by a variable of the element may refer to a field outside the scope of the variable
+     */
+    private boolean identMayBeCharArray(String name) {
+        Set<String> types = localTypes.get(name);
+        if (types != null) {
+            for (String type : types) {
+                if (mayBeCharArray(type)) return true;
+            }
+        }
+        for (Element type = currentClass; type instanceof TypeElement; type = type.getEnclosingElement()) {
+            List<VariableElement> fields = fields((TypeElement) type, name);
+            if (!fields.isEmpty()) {
+                for (VariableElement field : fields) {
+                    TypeMirror fieldType = field.asType();
+                    if (fieldType.getKind() == TypeKind.ARRAY && ((ArrayType) fieldType).getComponentType().getKind() == TypeKind.CHAR) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+        }
+        // not a field of the current or an enclosing class: unknown without a variable, e.g. a static import
+        return types == null;
+    }
+
+    /**
+     * @param type declared type, {@code null} or {@code var} if it is inferred
+     */
+    private static boolean mayBeCharArray(String type) {
+        if (type == null) return true;
+        String t = type.replaceAll("\\s", "");
+        return t.equals("var") || t.endsWith("char[]") || t.endsWith("char...");
+    }
+
+    private Object identValue(String name) {
+        return identValues.computeIfAbsent(name, this::resolveIdent);
+    }
+
+    private Object resolveIdent(String name) {
+        if (localNames.contains(name)) return NOT_CONSTANT;
+        for (Element type = currentClass; type instanceof TypeElement; type = type.getEnclosingElement()) {
+            List<VariableElement> fields = fields((TypeElement) type, name);
+            if (!fields.isEmpty()) return constantValue(fields, (TypeElement) type);
+        }
+        return NOT_CONSTANT;
+    }
+
+    /*
+     * Outer.NAME where Outer is the current or an enclosing class, or a.b.C.NAME where C is nested in the same
+     * top level class
+     */
+    private Object selectValue(JCTree.JCFieldAccess select) {
+        String qualifier = select.getExpression().toString();
+        int dot = qualifier.indexOf('.');
+        String first = dot < 0 ? qualifier : qualifier.substring(0, dot);
+        // a variable obscures a type or package of the same name
+        if (localNames.contains(first) || isField(first)) return NOT_CONSTANT;
+
+        TypeElement type = null;
+        if (dot < 0) {
+            for (Element e = currentClass; e instanceof TypeElement; e = e.getEnclosingElement()) {
+                if (e.getSimpleName().contentEquals(qualifier)) {
+                    type = (TypeElement) e;
+                    break;
+                }
+            }
+        } else {
+            type = elements.getTypeElement(qualifier);
+            if (type != null && (currentClass == null || topLevel(type) != topLevel(currentClass))) return NOT_CONSTANT;
+        }
+        return type == null ? NOT_CONSTANT : constantValue(fields(type, select.getIdentifier().toString()), type);
+    }
+
+    private static Element topLevel(Element type) {
+        while (type.getEnclosingElement() instanceof TypeElement) type = type.getEnclosingElement();
+        return type;
+    }
+
+    private boolean isField(String name) {
+        for (Element type = currentClass; type instanceof TypeElement; type = type.getEnclosingElement()) {
+            if (!fields((TypeElement) type, name).isEmpty()) return true;
+        }
+        return false;
+    }
+
+    private List<VariableElement> fields(TypeElement type, String name) {
+        List<VariableElement> fields = ElementFilter.fieldsIn(elements.getAllMembers(type));
+        fields.removeIf(f -> !f.getSimpleName().contentEquals(name));
+        return fields;
+    }
+
+    private static Object constantValue(List<VariableElement> fields, TypeElement type) {
+        if (fields.size() != 1) return NOT_CONSTANT;
+        VariableElement field = fields.get(0);
+        // a private field of a super class is not a member, the name refers to something else
+        if (field.getModifiers().contains(Modifier.PRIVATE) && field.getEnclosingElement() != type) return NOT_CONSTANT;
+        try {
+            Object value = field.getConstantValue();
+            // the initializer may be interpolated itself
+            if (value == null || value instanceof String && ((String) value).contains("${")) return NOT_CONSTANT;
+            return value;
+        } catch (RuntimeException e) {
+            return NOT_CONSTANT;
+        }
+    }
+
+    private static Object unary(JCTree.Tag tag, Object operand) {
+        if (tag == JCTree.Tag.NOT) return operand instanceof Boolean ? !(Boolean) operand : NOT_CONSTANT;
+
+        Number n = promote(operand);
+        if (n == null) return NOT_CONSTANT;
+        switch (tag) {
+            case POS:
+                return n;
+            case NEG:
+                if (n instanceof Double) return -n.doubleValue();
+                if (n instanceof Float) return -n.floatValue();
+                if (n instanceof Long) return -n.longValue();
+                return -n.intValue();
+            default: // COMPL
+                if (n instanceof Long) return ~n.longValue();
+                if (n instanceof Integer) return ~n.intValue();
+                return NOT_CONSTANT;
+        }
+    }
+
+    private static Object binary(JCTree.Tag tag, Object left, Object right) {
+        if (tag == JCTree.Tag.PLUS && (left instanceof String || right instanceof String))
+            return String.valueOf(left) + right;
+        if (left instanceof String || right instanceof String) {
+            if (tag == JCTree.Tag.EQ) return left.equals(right);
+            if (tag == JCTree.Tag.NE) return !left.equals(right);
+            return NOT_CONSTANT;
+        }
+
+        if (left instanceof Boolean || right instanceof Boolean) {
+            if (!(left instanceof Boolean && right instanceof Boolean)) return NOT_CONSTANT;
+            boolean l = (Boolean) left, r = (Boolean) right;
+            switch (tag) {
+                case AND:
+                case BITAND: return l & r;
+                case OR:
+                case BITOR: return l | r;
+                case BITXOR:
+                case NE: return l ^ r;
+                case EQ: return l == r;
+                default: return NOT_CONSTANT;
+            }
+        }
+
+        Number l = promote(left), r = promote(right);
+        if (l == null || r == null) return NOT_CONSTANT;
+        if (tag == JCTree.Tag.SL || tag == JCTree.Tag.SR || tag == JCTree.Tag.USR) return shift(tag, l, r);
+        if (l instanceof Double || r instanceof Double) return doubleOp(tag, l.doubleValue(), r.doubleValue());
+        if (l instanceof Float || r instanceof Float) return floatOp(tag, l.floatValue(), r.floatValue());
+        if (l instanceof Long || r instanceof Long) return longOp(tag, l.longValue(), r.longValue());
+        return intOp(tag, l.intValue(), r.intValue());
+    }
+
+    /*
+     * unary numeric promotion: char, byte and short are promoted to int
+     */
+    private static Number promote(Object value) {
+        if (value instanceof Character) return (int) (Character) value;
+        if (value instanceof Byte || value instanceof Short) return ((Number) value).intValue();
+        return value instanceof Number ? (Number) value : null;
+    }
+
+    private static Object shift(JCTree.Tag tag, Number l, Number r) {
+        if (!(l instanceof Integer || l instanceof Long) || !(r instanceof Integer || r instanceof Long)) return NOT_CONSTANT;
+        long distance = r.longValue();
+        if (l instanceof Long) {
+            long v = l.longValue();
+            return tag == JCTree.Tag.SL ? v << distance : tag == JCTree.Tag.SR ? v >> distance : v >>> distance;
+        }
+        int v = l.intValue();
+        return tag == JCTree.Tag.SL ? v << distance : tag == JCTree.Tag.SR ? v >> distance : v >>> distance;
+    }
+
+    private static Object intOp(JCTree.Tag tag, int l, int r) {
+        switch (tag) {
+            case PLUS: return l + r;
+            case MINUS: return l - r;
+            case MUL: return l * r;
+            case DIV: return r == 0 ? NOT_CONSTANT : l / r;
+            case MOD: return r == 0 ? NOT_CONSTANT : l % r;
+            case BITAND: return l & r;
+            case BITOR: return l | r;
+            case BITXOR: return l ^ r;
+            default: return compare(tag, Integer.compare(l, r), false);
+        }
+    }
+
+    private static Object longOp(JCTree.Tag tag, long l, long r) {
+        switch (tag) {
+            case PLUS: return l + r;
+            case MINUS: return l - r;
+            case MUL: return l * r;
+            case DIV: return r == 0 ? NOT_CONSTANT : l / r;
+            case MOD: return r == 0 ? NOT_CONSTANT : l % r;
+            case BITAND: return l & r;
+            case BITOR: return l | r;
+            case BITXOR: return l ^ r;
+            default: return compare(tag, Long.compare(l, r), false);
+        }
+    }
+
+    private static Object floatOp(JCTree.Tag tag, float l, float r) {
+        switch (tag) {
+            case PLUS: return l + r;
+            case MINUS: return l - r;
+            case MUL: return l * r;
+            case DIV: return l / r;
+            case MOD: return l % r;
+            default: return compare(tag, l < r ? -1 : l > r ? 1 : 0, Float.isNaN(l) || Float.isNaN(r));
+        }
+    }
+
+    private static Object doubleOp(JCTree.Tag tag, double l, double r) {
+        switch (tag) {
+            case PLUS: return l + r;
+            case MINUS: return l - r;
+            case MUL: return l * r;
+            case DIV: return l / r;
+            case MOD: return l % r;
+            default: return compare(tag, l < r ? -1 : l > r ? 1 : 0, Double.isNaN(l) || Double.isNaN(r));
+        }
+    }
+
+    /*
+     * every comparison with NaN is false, except !=
+     */
+    private static Object compare(JCTree.Tag tag, int cmp, boolean nan) {
+        switch (tag) {
+            case EQ: return !nan && cmp == 0;
+            case NE: return nan || cmp != 0;
+            case LT: return !nan && cmp < 0;
+            case GT: return !nan && cmp > 0;
+            case LE: return !nan && cmp <= 0;
+            case GE: return !nan && cmp >= 0;
+            default: return NOT_CONSTANT;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator.ast;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.sun.tools.javac.tree.JCTree;
+
+/**
+ * Per-compilation cache of parsed expressions, keyed by the trimmed expression
+ * text. <br>
+ * Cached trees are templates only, {@link ExpressionParser} hands out copies of them.
+ * Expressions which failed to parse are cached as {@code null}, so they are neither
+ * parsed nor logged again. The least recently used entry is evicted when the cache
+ * is full.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+public class ExpressionCache {
+
+    public static final int DEFAULT_MAXIMUM_SIZE = 4096;
+
+    private final Map<String, JCTree.JCExpression> expressions;
+    private long hitCount;
+    private long missCount;
+
+    public ExpressionCache(final int maximumSize) {
+        this.expressions = new LinkedHashMap<String, JCTree.JCExpression>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, JCTree.JCExpression> eldest) {
+                return size() > maximumSize;
+            }
+        };
+    }
+
+    /**
+     * Look up the expression and record a hit or a miss.
+     *
+     * @return {@code true} if the expression was parsed before, in which case
+     * {@link #get(String)} returns the parsed template or {@code null}
+     * if parsing failed
+     */
+    public boolean contains(String expression) {
+        boolean contains = expressions.containsKey(expression);
+        if (contains) hitCount++;
+        else missCount++;
+        return contains;
+    }
+
+    public JCTree.JCExpression get(String expression) {
+        return expressions.get(expression);
+    }
+
+    public void put(String expression, JCTree.JCExpression template) {
+        expressions.put(expression, template);
+    }
+
+    public int size() {
+        return expressions.size();
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    @Override
+    public String toString() {
+        return "ExpressionCache{" +
+                "size=" + expressions.size() +
+                ", hitCount=" + hitCount +
+                ", missCount=" + missCount +
+                '}';
+    }
+}
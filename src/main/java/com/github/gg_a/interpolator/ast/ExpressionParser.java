@@ -18,96 +18,145 @@
  */
 package com.github.gg_a.interpolator.ast;
 
-import java.net.URI;
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
-import java.util.logging.Logger;
-import javax.tools.*;
-
-import com.sun.source.tree.CompilationUnitTree;
-import com.sun.tools.javac.api.JavacTaskImpl;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.tools.Diagnostic;
+
+import com.sun.tools.javac.parser.JavacParser;
+import com.sun.tools.javac.processing.JavacProcessingEnvironment;
+import com.sun.tools.javac.parser.ParserFactory;
+import com.sun.tools.javac.parser.Tokens.TokenKind;
 import com.sun.tools.javac.tree.JCTree;
+import com.sun.tools.javac.tree.TreeCopier;
+import com.sun.tools.javac.tree.TreeMaker;
 import com.sun.tools.javac.tree.TreeTranslator;
+import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.JCDiagnostic;
+import com.sun.tools.javac.util.Log;
 import com.sun.tools.javac.util.Names;
 import com.github.gg_a.interpolator.token.StringToken;
 
+import static com.github.gg_a.interpolator.token.TokenType.EXPRESSION;
+
 /**
  * Expression Parser
  * @author Korovin Anatoliy
  */
 public class ExpressionParser {
-    public static Logger logger = Logger.getLogger(ExpressionParser.class.toString());
-
     private final Names names;
-    private DiagnosticCollector<JavaFileObject> diagColl;
-
-    public ExpressionParser(Names names) {
-        this.names = names;
+    private final Log log;
+    private final Messager messager;
+    private final ParserFactory parserFactory;
+    private final TreeCopier<Void> treeCopier;
+    private final ExpressionCache expressionCache;
+
+    public ExpressionParser(Context context, ExpressionCache expressionCache) {
+        this.names = Names.instance(context);
+        this.log = Log.instance(context);
+        this.messager = ((ProcessingEnvironment) JavacProcessingEnvironment.instance(context)).getMessager();
+        this.parserFactory = ParserFactory.instance(context);
+        this.treeCopier = new TreeCopier<>(TreeMaker.instance(context));
+        this.expressionCache = expressionCache;
     }
 
+    /**
+     * Every call returns a new copy of the cached template tree, because javac
+     * attributes the returned tree in place.
+     */
     public JCTree.JCExpression parse(StringToken token, String currentClassName) {
-        CompilationUnitTree tree = getCompilationUnitTree(token.getValue(), currentClassName);
-        if (tree == null) return null;
-        JCTree.JCClassDecl declr = (JCTree.JCClassDecl) tree.getTypeDecls().get(0);
-        JCTree.JCVariableDecl field = (JCTree.JCVariableDecl) declr.getMembers().get(0);
-        JCTree.JCExpression expression = field.getInitializer();
+        String code = token.getValue();
+        JCTree.JCExpression template;
+        if (expressionCache.contains(code)) {
+            template = expressionCache.get(code);
+        } else {
+            template = parseExpression(code, currentClassName);
+            expressionCache.put(code, template);
+        }
+        if (template == null) return null;
+
+        JCTree.JCExpression expression = treeCopier.copy(template);
         expression.setPos(token.getOffset());
         expression.accept(new IdentResolver(token.getOffset()));
         return expression;
     }
 
+    /**
+     * {@link #parse} returns {@code String.valueOf(expression)}, expressions with
+     * a format specifier are already converted to a {@code String}
+     */
+    static JCTree.JCExpression unwrapValueOf(StringToken stringToken, JCTree.JCExpression expr) {
+        if (stringToken.getType() != EXPRESSION || stringToken.getFormat() != null) return expr;
+        return valueOfArgument(expr);
+    }
+
+    static JCTree.JCExpression valueOfArgument(JCTree.JCExpression valueOf) {
+        return ((JCTree.JCMethodInvocation) valueOf).getArguments().head;
+    }
+
     /*
      * Modified by GG-A
+     *
+     * Parse with the ParserFactory of the current compilation instead of starting a new
+     * JavaCompiler task per expression. Diagnostics are collected by a temporary
+     * DiagnosticHandler, so they never reach the Log of the compilation.
      */
-    private CompilationUnitTree getCompilationUnitTree(String code, String currentClassName) {
-        JavaCompiler tool = ToolProvider.getSystemJavaCompiler();
-        JavaFileManager fm = tool.getStandardFileManager(null, null, null);
-        List<FakeJavaFileWrapper> javaFile = Collections.singletonList(new FakeJavaFileWrapper(code));
-        diagColl = new DiagnosticCollector<>();
-        JavacTaskImpl ct = (JavacTaskImpl) tool.getTask(null, fm, diagColl, null, null, javaFile);
+    private JCTree.JCExpression parseExpression(String code, String currentClassName) {
+        ExpressionDiagnosticHandler diagHandler = new ExpressionDiagnosticHandler(log);
+        JCTree.JCExpression expression;
+        TokenKind trailing;
         try {
-            CompilationUnitTree unitTree = ct.parse().iterator().next();
-            List<Diagnostic<? extends JavaFileObject>> diagnostics = diagColl.getDiagnostics();
-            if (diagnostics.size() > 0) {
-                Locale aDefault = Locale.getDefault();
-                String skipParse = aDefault.getLanguage().equals("zh")
-                        ? "字符串插值器将‘忽略’此表达式的解析。"
-                        : "String Interpolator will 'ignore' parse this symbol or expression.";
-                String msg = "";
-                for (Diagnostic<? extends JavaFileObject> diag : diagnostics) {
-                    msg += diag.getCode() + ": " + diag.getMessage(aDefault) + "\n";
-                }
-                logger.warning(msg
-                        + ">>>>>>  " + skipParse + "\n"
-                        + "symbol: " + code + "\n"
-                        + "position: in class: " + currentClassName
-                );
-
-                return null;
-            }
-
-            return unitTree;
+            JavacParser parser = parserFactory.newParser("String.valueOf(" + code + ")", false, false, false);
+            expression = parser.parseExpression();
+            trailing = parser.token().kind;
         } catch (Throwable e) {
-            // Depending on JDK version, `parse()` either throws or does not throw `IOException`;
-            // to avoid setup-dependent compilation errors, let's just catch Exception here.
-            e.printStackTrace();
+            log.popDiagnosticHandler(diagHandler);
+            messager.printMessage(Diagnostic.Kind.ERROR, ">>> StringInterpolator: error while parsing expression: " + code
+                    + ", " + e);
             throw new RuntimeException("Error while parsing expression in the string literal: " + code, e);
         }
-    }
+        // the handler swallows every diagnostic, report only after it is removed
+        log.popDiagnosticHandler(diagHandler);
+
+        if (!diagHandler.diagnostics.isEmpty() || trailing != TokenKind.EOF) {
+            Locale aDefault = Locale.getDefault();
+            String skipParse = aDefault.getLanguage().equals("zh")
+                    ? "字符串插值器将‘忽略’此表达式的解析。"
+                    : "String Interpolator will 'ignore' parse this symbol or expression.";
+            String msg = "";
+            for (JCDiagnostic diag : diagHandler.diagnostics) {
+                msg += diag.getCode() + ": " + diag.getMessage(aDefault) + "\n";
+            }
+            if (diagHandler.diagnostics.isEmpty()) {
+                msg += "unexpected token: " + trailing + "\n";
+            }
+            messager.printMessage(Diagnostic.Kind.WARNING, ">>> StringInterpolator: " + msg
+                    + ">>>>>>  " + skipParse + "\n"
+                    + "symbol: " + code + "\n"
+                    + "position: in class: " + currentClassName
+            );
 
-    private class FakeJavaFileWrapper extends SimpleJavaFileObject {
+            return null;
+        }
 
-        private final String text;
+        return expression;
+    }
+
+    /**
+     * Collects the diagnostics reported while parsing a single expression.
+     */
+    private static class ExpressionDiagnosticHandler extends Log.DiagnosticHandler {
+        private final List<JCDiagnostic> diagnostics = new ArrayList<>();
 
-        public FakeJavaFileWrapper(String text) {
-            super(URI.create("myfake:/Test.java"), Kind.SOURCE);
-            this.text = "class Test { Object value = String.valueOf(" + text + "); }";
+        ExpressionDiagnosticHandler(Log log) {
+            install(log);
         }
 
         @Override
-        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
-            return text;
+        public void report(JCDiagnostic diag) {
+            diagnostics.add(diag);
         }
     }
 
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator.ast;
+
+import java.util.IllegalFormatException;
+import java.util.Locale;
+
+import com.github.gg_a.interpolator.FormatLocale;
+import com.github.gg_a.interpolator.runtime.Formats;
+
+/**
+ * Format specifier of an expression in ${}, e.g. {@code .2f} of {@code ${price%.2f}},
+ * parsed at compile time into the arguments of {@link Formats}.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+final class FormatSpec {
+
+    /** the specifier without {@code %} */
+    final String spec;
+    /** conversion in lower case: d o x e f s */
+    final char conversion;
+    /** {@link Formats} flags */
+    final int flags;
+    final int width;
+    final int precision;
+
+    private FormatSpec(String spec, char conversion, int flags, int width, int precision) {
+        this.spec = spec;
+        this.conversion = conversion;
+        this.flags = flags;
+        this.width = width;
+        this.precision = precision;
+    }
+
+    /**
+     * @param spec format specifier found by {@code ExpressionExtractor}, without {@code %}
+     * @throws IllegalFormatException if the specifier is not valid for its conversion, e.g. {@code %.2d} or {@code %-d}
+     */
+    static FormatSpec parse(String spec, FormatLocale formatLocale) {
+        // same checks as String.format with a value of the conversion
+        char c = spec.charAt(spec.length() - 1);
+        Object sample = c == 's' || c == 'S' ? "" : c == 'e' || c == 'E' || c == 'f' ? (Object) 0.0 : (Object) 0;
+        String.format(Locale.ROOT, "%" + spec, sample);
+
+        int i = 0;
+        while ("-#+ 0,(".indexOf(spec.charAt(i)) >= 0) i++;
+        int flags = Formats.parseFlags(spec.substring(0, i));
+        if (Character.isUpperCase(c)) flags |= Formats.UPPERCASE;
+        if (formatLocale == FormatLocale.DEFAULT) flags |= Formats.DEFAULT_LOCALE;
+
+        int widthBegin = i;
+        while (Character.isDigit(spec.charAt(i))) i++;
+        int width = i == widthBegin ? -1 : Integer.parseInt(spec.substring(widthBegin, i));
+        int precision = spec.charAt(i) == '.' ? Integer.parseInt(spec.substring(i + 1, spec.length() - 1)) : -1;
+        return new FormatSpec(spec, Character.toLowerCase(c), flags, width, precision);
+    }
+
+    /**
+     * @return {@code true} if the method of the conversion has a precision parameter
+     */
+    boolean hasPrecision() {
+        return conversion == 'e' || conversion == 'f' || conversion == 's';
+    }
+
+    /**
+     * Formats a constant value at compile time.
+     *
+     * @throws IllegalFormatException if the value does not match the conversion
+     */
+    String format(Object value) {
+        return String.format(Locale.ROOT, "%" + spec, value);
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator.ast;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+
+import com.sun.source.tree.LineMap;
+import com.sun.source.util.TreePath;
+import com.sun.tools.javac.api.JavacTrees;
+import com.sun.tools.javac.tree.JCTree;
+import com.sun.tools.javac.util.Name;
+
+/**
+ * Private classes nested in the top level class of the element being translated, which hold the constants of
+ * the generated code, e.g. {@code $InterpolatorUtf8}. Their fields are initialized when they are used for the
+ * first time, so they are also available in static initializers and enum constructors.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+final class HolderClasses {
+
+    private final TreeFactory trees;
+    private final JavacTrees javacTrees;
+    private final Element element;
+    /**
+     * line map of the compilation unit, looked up by the first {@link #line} call: {@code getPath} searches the
+     * whole compilation unit
+     */
+    private LineMap lineMap;
+    private boolean lineMapResolved;
+
+    /**
+     * @param element element being translated
+     */
+    HolderClasses(TreeFactory trees, JavacTrees javacTrees, Element element) {
+        this.trees = trees;
+        this.javacTrees = javacTrees;
+        this.element = element;
+    }
+
+    /**
+     * Class nested in the top level class, it is created by the first call. javac enters the class in the next round.
+     *
+     * @return {@code null} if the top level class is an interface, whose members are public
+     */
+    JCTree.JCClassDecl holder(String name) {
+        Element topLevel = topLevelElement();
+        if (!(topLevel instanceof TypeElement) || topLevel.getKind().isInterface()) return null;
+        JCTree.JCClassDecl classDecl = javacTrees.getTree((TypeElement) topLevel);
+        if (classDecl == null) return null;
+
+        Name holderName = trees.name(name);
+        for (JCTree def : classDecl.defs) {
+            if (def instanceof JCTree.JCClassDecl && ((JCTree.JCClassDecl) def).name == holderName) return (JCTree.JCClassDecl) def;
+        }
+        JCTree.JCClassDecl holder = trees.privateStaticClass(classDecl.pos, holderName);
+        classDecl.defs = classDecl.defs.append(holder);
+        return holder;
+    }
+
+    /**
+     * Adds a field {@code static final type _n = init} to the holder.
+     *
+     * @return {@code holder._n}
+     */
+    JCTree.JCExpression addConstant(JCTree.JCClassDecl holder, int pos, JCTree.JCExpression type, JCTree.JCExpression init) {
+        Name fieldName = trees.name("_" + holder.defs.size());
+        holder.defs = holder.defs.append(trees.constant(holder.pos, fieldName, type, init));
+        return field(holder, pos, fieldName);
+    }
+
+    /*
+     * holder.fieldName
+     */
+    JCTree.JCExpression field(JCTree.JCClassDecl holder, int pos, Name fieldName) {
+        return trees.at(pos).Select(trees.at(pos).Ident(holder.name), fieldName);
+    }
+
+    /**
+     * @return line of the start of the tree in the source, 0 if it is unknown
+     */
+    int line(JCTree tree) {
+        if (!lineMapResolved) {
+            TreePath path = javacTrees.getPath(topLevelElement());
+            lineMap = path == null ? null : path.getCompilationUnit().getLineMap();
+            lineMapResolved = true;
+        }
+        return lineMap == null ? 0 : (int) lineMap.getLineNumber(tree.getStartPosition());
+    }
+
+    private Element topLevelElement() {
+        Element topLevel = element;
+        while (topLevel.getEnclosingElement() instanceof TypeElement) topLevel = topLevel.getEnclosingElement();
+        return topLevel;
+    }
+}
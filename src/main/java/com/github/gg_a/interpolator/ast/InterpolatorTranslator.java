@@ -18,18 +18,42 @@
  */
 package com.github.gg_a.interpolator.ast;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.IllegalFormatException;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.util.Elements;
+import javax.tools.Diagnostic;
 
 import com.github.gg_a.interpolator.*;
+import com.github.gg_a.interpolator.runtime.Escapes;
 import com.github.gg_a.interpolator.token.StringToken;
 import com.github.gg_a.interpolator.token.ExpressionExtractor;
+import com.sun.tools.javac.api.JavacTrees;
+import com.sun.tools.javac.model.JavacElements;
+import com.sun.tools.javac.processing.JavacProcessingEnvironment;
 import com.sun.tools.javac.tree.JCTree;
 import com.sun.tools.javac.tree.TreeMaker;
 import com.sun.tools.javac.tree.TreeTranslator;
 import com.sun.tools.javac.util.Context;
 import com.sun.tools.javac.util.Names;
 
+import static com.github.gg_a.interpolator.ast.ChunkedChains.MAX_CHAIN_LENGTH;
+import static com.github.gg_a.interpolator.ast.ChunkedChains.argumentPositions;
+import static com.github.gg_a.interpolator.ast.ChunkedChains.chunkArgumentCount;
+import static com.github.gg_a.interpolator.ast.ChunkedChains.chunks;
+import static com.github.gg_a.interpolator.ast.ExpressionParser.unwrapValueOf;
+import static com.github.gg_a.interpolator.ast.ExpressionParser.valueOfArgument;
+import static com.github.gg_a.interpolator.token.TokenType.EXPRESSION;
 import static com.github.gg_a.interpolator.token.TokenType.STRING_LITERAL;
 
 /**
@@ -42,32 +66,165 @@ import static com.github.gg_a.interpolator.token.TokenType.STRING_LITERAL;
  */
 public class InterpolatorTranslator extends TreeTranslator {
 
-    private final TreeMaker treeMaker;
+    private final TreeFactory trees;
     private final ExpressionExtractor exprExtractor;
     private final ExpressionParser expressionParser;
     private final ElementAnnoInfo elementAnnoInfo;
     private final String currentClassName;
     private final InterpolationMode parseMode;
+    private final Map<JCTree.JCLiteral, List<StringToken>> literalTokens;
+    private final InterpolatorStats.ClassStats classStats;
     private final AtomicInteger annotationCount = new AtomicInteger();
+    private final ConcatStrategy concatStrategy;
+    private final Escape escape;
+    private final Elements elements;
+    private final Messager messager;
+    private final SourceIndex sourceIndex;
+    private final boolean fastNumbers;
+    private final HolderClasses holders;
+    private final ChunkedChains chains;
+    private final LazyIntrinsic lazy;
+    private final IntoIntrinsic into;
+    private final Utf8Intrinsic utf8;
+    private final SqlIntrinsic sql;
+    /**
+     * {@code null} unless {@link StringInterpolator#memoize()} is set
+     */
+    private final MemoIntrinsic memo;
+    /**
+     * {@code null} unless {@link InterpolatorProcessor#METRICS_OPTION} is set
+     */
+    private final MetricsIntrinsic metrics;
+    /**
+     * end of the tree being translated, for {@link #sourceIndex}
+     */
+    private int end;
+    private JCTree root;
+    private ConstantFolder constantFolder;
+    private int nestedClassCount;
+    /**
+     * trees generated for interpolated literals, and the number of {@code x += <one of them>} in the block being
+     * translated and its nested blocks
+     */
+    private final Set<JCTree> interpolated = Collections.newSetFromMap(new IdentityHashMap<>());
+    private int accumulationCount;
+    private LoopAccumulation loopAccumulation;
+
+    /**
+     * initial capacity reserved for a value by {@link ConcatStrategy#BUILDER}, types are unknown before attribution
+     */
+    static final int ESTIMATED_VALUE_LENGTH = 16;
+
+    private static final String POOLED_BUILDERS = "com.github.gg_a.interpolator.runtime.PooledBuilders";
+    private static final String NUMBERS = "com.github.gg_a.interpolator.runtime.Numbers";
+
+    public InterpolatorTranslator(Context context, ExpressionParser expressionParser, ElementAnnoInfo elementAnnoInfo) {
+        this(context, expressionParser, null, null, null, elementAnnoInfo);
+    }
 
-    public InterpolatorTranslator(Context context, ElementAnnoInfo elementAnnoInfo) {
-        this.treeMaker = TreeMaker.instance(context);
+    /**
+     * @param literalTokens tokens split by {@link LiteralTokenizer}, literals which are not in the
+     *                      map have no interpolations; {@code null} to split literals while translating
+     * @param classStats    statistics of the class of the element, may be {@code null}
+     * @param sourceIndex   index of the source file, members and statements without hits are not translated;
+     *                      {@code null} to translate every tree
+     */
+    public InterpolatorTranslator(Context context, ExpressionParser expressionParser,
+                                  Map<JCTree.JCLiteral, List<StringToken>> literalTokens,
+                                  InterpolatorStats.ClassStats classStats, SourceIndex sourceIndex,
+                                  ElementAnnoInfo elementAnnoInfo) {
+        this.trees = new TreeFactory(TreeMaker.instance(context), Names.instance(context));
         this.exprExtractor = new ExpressionExtractor();
-        this.expressionParser = new ExpressionParser(Names.instance(context));
+        this.expressionParser = expressionParser;
+        this.literalTokens = literalTokens;
+        this.classStats = classStats;
+        this.sourceIndex = sourceIndex;
         this.elementAnnoInfo = elementAnnoInfo;
         currentClassName = elementAnnoInfo.getParentClassName();
         parseMode = elementAnnoInfo.getInterpolationMode();
+        concatStrategy = elementAnnoInfo.getConcatStrategy();
+        escape = elementAnnoInfo.getEscape();
+        elements = JavacElements.instance(context);
+        messager = ((ProcessingEnvironment) JavacProcessingEnvironment.instance(context)).getMessager();
+        Map<String, String> options = JavacProcessingEnvironment.instance(context).getOptions();
+        fastNumbers = options.containsKey(InterpolatorProcessor.FAST_NUMBERS_OPTION);
+        holders = new HolderClasses(trees, JavacTrees.instance(context), elementAnnoInfo.getElement());
+        chains = new ChunkedChains(trees);
+        lazy = new LazyIntrinsic(trees);
+        into = new IntoIntrinsic(trees, chains);
+        utf8 = new Utf8Intrinsic(trees, holders, chains);
+        sql = new SqlIntrinsic(trees, chains, this::constantValue, message -> messager.printMessage(
+                Diagnostic.Kind.ERROR, ">>> StringInterpolator: " + message, elementAnnoInfo.getElement()));
+        memo = elementAnnoInfo.getMemoize() > 0
+                ? new MemoIntrinsic(trees, holders, currentClassName, elementAnnoInfo.getMemoize(), escape)
+                : null;
+        metrics = options.containsKey(InterpolatorProcessor.METRICS_OPTION) ? new MetricsIntrinsic(trees, holders, currentClassName) : null;
+    }
+
+    public static <T extends JCTree> void translate(Context context, ExpressionParser expressionParser, T t, ElementAnnoInfo elementAnnoInfo) {
+        new InterpolatorTranslator(context, expressionParser, elementAnnoInfo).translate(t);
     }
 
-    public static <T extends JCTree> void translate(Context context, T t, ElementAnnoInfo elementAnnoInfo) {
-        new InterpolatorTranslator(context, elementAnnoInfo).translate(t);
+    public static <T extends JCTree> void translate(Context context, ExpressionParser expressionParser,
+                                                    Map<JCTree.JCLiteral, List<StringToken>> literalTokens,
+                                                    InterpolatorStats.ClassStats classStats, SourceIndex sourceIndex,
+                                                    T t, ElementAnnoInfo elementAnnoInfo) {
+        new InterpolatorTranslator(context, expressionParser, literalTokens, classStats, sourceIndex, elementAnnoInfo).translate(t);
     }
 
     @Override
     public <T extends JCTree> T translate(T t) {
+        if (root == null) {
+            root = t;
+            if (sourceIndex != null) end = sourceIndex.end(t);
+        }
         return super.translate(t);
     }
 
+    @Override
+    public void visitClassDef(JCTree.JCClassDecl jcClassDecl) {
+        nestedClassCount++;
+        if (sourceIndex == null) {
+            super.visitClassDef(jcClassDecl);
+        } else {   // literals of the other parts of the declaration are in annotations
+            jcClassDecl.defs = sourceIndex.translateWithHits(jcClassDecl.defs, end, this::translateWithHits);
+            result = jcClassDecl;
+        }
+        nestedClassCount--;
+    }
+
+    @Override
+    public void visitBlock(JCTree.JCBlock jcBlock) {
+        // only the blocks which contain an accumulation are rewritten
+        int outerAccumulationCount = accumulationCount;
+        accumulationCount = 0;
+        if (sourceIndex == null) {
+            super.visitBlock(jcBlock);
+        } else {
+            jcBlock.stats = sourceIndex.translateWithHits(jcBlock.stats, end, this::translateWithHits);
+            result = jcBlock;
+        }
+        if (accumulationCount > 0) {
+            if (loopAccumulation == null) {
+                loopAccumulation = new LoopAccumulation(trees, interpolated, (loop, message) -> messager.printMessage(
+                        Diagnostic.Kind.NOTE, ">>> StringInterpolator: line " + holders.line(loop) + ": " + message, elementAnnoInfo.getElement()));
+            }
+            loopAccumulation.rewrite(jcBlock);
+        }
+        accumulationCount += outerAccumulationCount;
+    }
+
+    /**
+     * translates a tree which contains hits of the {@link #sourceIndex}
+     */
+    private <T extends JCTree> T translateWithHits(T tree, int treeEnd) {
+        int parentEnd = end;
+        end = treeEnd;
+        T translated = translate(tree);
+        end = parentEnd;
+        return translated;
+    }
+
     @Override
     public void visitAnnotation(JCTree.JCAnnotation jcAnnotation) {
         annotationCount.incrementAndGet();
@@ -84,40 +241,434 @@ public class InterpolatorTranslator extends TreeTranslator {
         if (annotationCount.get() == 0) parseStringLiteral(jcLiteral);
     }
 
+    /*
+     * Interpolate.lazy("...${x}...") -> new LazyString("...", x, "..."), see LazyIntrinsic
+     * Interpolate.into(target, "...${x}...") -> Appends.append(Appends.append(Appends.append(target, "..."), x), "..."), see IntoIntrinsic
+     * Interpolate.utf8([target, ]"...${x}...") -> Utf8.finish(Utf8.put(Utf8.putEncoded(Utf8.sink([target, ]capacity), $InterpolatorUtf8._0), x)), see Utf8Intrinsic
+     * Interpolate.sql("...${x}...") -> new SqlQuery("...?...", 1).param(x), see SqlIntrinsic
+     */
+    @Override
+    public void visitApply(JCTree.JCMethodInvocation jcMethodInvocation) {
+        if (annotationCount.get() == 0) {
+            boolean lazyString = isIntrinsic(jcMethodInvocation, "lazy", 1);
+            if (lazyString || isIntrinsic(jcMethodInvocation, "into", 2)) {
+                JCTree.JCLiteral template = (JCTree.JCLiteral) jcMethodInvocation.getArguments().last();
+                List<StringToken> tokens = new ArrayList<>();
+                List<JCTree.JCExpression> operands = new ArrayList<>();
+                if (splitLiteral(template, tokens, operands, Escape.NONE, true)) {
+                    result = lazyString
+                            ? lazy.lazyString(tokens, operands)
+                            : into.appends(jcMethodInvocation.pos, translate(jcMethodInvocation.getArguments().head), template, tokens, operands);
+                    return;
+                }
+            }
+
+            if (isIntrinsic(jcMethodInvocation, "sql", 1)) {
+                JCTree.JCLiteral template = (JCTree.JCLiteral) jcMethodInvocation.getArguments().head;
+                if (template.getValue() instanceof String) {
+                    List<StringToken> tokens = new ArrayList<>();
+                    List<JCTree.JCExpression> operands = new ArrayList<>();
+                    if (!splitLiteral(template, tokens, operands, Escape.NONE, false)) {   // Interpolate.sql is not callable
+                        String value = (String) template.getValue();
+                        tokens.clear();
+                        operands.clear();
+                        tokens.add(new StringToken(value, value, STRING_LITERAL, template.getPreferredPosition()));
+                        operands.add(template);
+                    }
+                    result = sql.sqlQuery(jcMethodInvocation.pos, template, tokens, operands);
+                    return;
+                }
+            }
+
+            boolean utf8Bytes = isIntrinsic(jcMethodInvocation, "utf8", 1);
+            if (utf8Bytes || isIntrinsic(jcMethodInvocation, "utf8", 2)) {
+                JCTree.JCLiteral template = (JCTree.JCLiteral) jcMethodInvocation.getArguments().last();
+                if (template.getValue() instanceof String) {
+                    List<StringToken> tokens = new ArrayList<>();
+                    List<JCTree.JCExpression> operands = new ArrayList<>();
+                    if (!splitLiteral(template, tokens, operands, Escape.NONE, true)) {   // encode a plain literal at compile time too
+                        String value = (String) template.getValue();
+                        tokens.clear();
+                        operands.clear();
+                        tokens.add(new StringToken(value, value, STRING_LITERAL, template.getPreferredPosition()));
+                        operands.add(template);
+                    }
+                    result = utf8.utf8(jcMethodInvocation.pos, utf8Bytes ? null : translate(jcMethodInvocation.getArguments().head),
+                            template, tokens, operands);
+                    return;
+                }
+            }
+        }
+        super.visitApply(jcMethodInvocation);
+    }
+
     /*
      * Modified by GG-A
      */
     private void parseStringLiteral(JCTree.JCLiteral jcLiteral) {
-        if (jcLiteral.getValue() instanceof String) {
-            String literalValue = (String) jcLiteral.getValue();
-            int originalOffset = jcLiteral.getPreferredPosition();
-            if (literalValue == null || literalValue.equals("")) return;
+        List<StringToken> tokens = new ArrayList<>();
+        List<JCTree.JCExpression> operands = new ArrayList<>();
+        if (!splitLiteral(jcLiteral, tokens, operands, escape, true)) return;
 
-            List<StringToken> stringTokens = exprExtractor.split(literalValue, originalOffset, parseMode);
+        JCTree.JCExpression memoized = memo != null ? memo.memoized(jcLiteral, tokens, operands) : null;
+        result = memoized != null ? memoized : concat(jcLiteral, tokens, operands);
+        // constants stay constants
+        if (metrics != null && !(tokens.size() == 1 && tokens.get(0).getType() == STRING_LITERAL)) {
+            result = metrics.record(jcLiteral, (JCTree.JCExpression) result);
+        }
+        interpolated.add(result);
+    }
 
-            if (stringTokens.isEmpty()) return;
+    /*
+     * s += "...${x}..." in a loop, see LoopAccumulation
+     */
+    @Override
+    public void visitAssignop(JCTree.JCAssignOp jcAssignOp) {
+        super.visitAssignop(jcAssignOp);
+        if (jcAssignOp.hasTag(JCTree.Tag.PLUS_ASG) && jcAssignOp.lhs instanceof JCTree.JCIdent && interpolated.contains(jcAssignOp.rhs)) {
+            accumulationCount++;
+        }
+    }
+
+    private JCTree.JCExpression concat(JCTree.JCLiteral jcLiteral, List<StringToken> tokens, List<JCTree.JCExpression> operands) {
+        if (escape != Escape.NONE && !(tokens.size() == 1 && tokens.get(0).getType() == STRING_LITERAL)) {
+            return appenderConcat(jcLiteral, tokens, operands);
+        }
+        if (fastNumbers) numbersToString(tokens, operands);
+        if (tokens.size() == 1) return operands.get(0);
+
+        switch (concatStrategy) {
+            case INLINE:
+                return operands.size() > MAX_CHAIN_LENGTH ? balancedConcat(tokens, operands) : inlineConcat(tokens, operands);
+            case BUILDER:
+            case POOLED:
+            case POOLED_STRIPED:
+                return fastNumbers ? appenderConcat(jcLiteral, tokens, operands) : builderConcat(jcLiteral, tokens, operands);
+            default:
+                return operands.size() > MAX_CHAIN_LENGTH ? balancedConcat(tokens, operands) : valueOfConcat(tokens, operands);
+        }
+    }
 
-            StringToken stringToken = stringTokens.get(0);
-            if (stringTokens.size() == 1) {
-                JCTree.JCExpression result = convertToExpr(stringToken, currentClassName);
-                this.result = (result == null) ? jcLiteral : result;
-                return;
+    /**
+     * String.valueOf(x) -> com.github.gg_a.interpolator.runtime.Numbers.toString(x), for {@link InterpolatorProcessor#FAST_NUMBERS_OPTION}
+     */
+    private void numbersToString(List<StringToken> tokens, List<JCTree.JCExpression> operands) {
+        for (int i = 0; i < tokens.size(); i++) {
+            StringToken st = tokens.get(i);
+            if (st.getType() != EXPRESSION || st.getFormat() != null) continue;
+            int pos = operands.get(i).pos;
+            operands.set(i, trees.staticCall(pos, NUMBERS, "toString", valueOfArgument(operands.get(i))));
+        }
+    }
+
+    /*
+     * ("a " + x + ... + " b " + y) + (" c " + z + ...), a balanced tree of chunks. javac flattens nested string
+     * concatenations, so the code is the same as for one chain, and splits indy concatenations at their slot limit.
+     * Every chunk is a String (see inlineConcat), so no chunk is an arithmetic addition.
+     */
+    private JCTree.JCExpression balancedConcat(List<StringToken> stringTokens, List<JCTree.JCExpression> operands) {
+        List<JCTree.JCExpression> chunks = new ArrayList<>();
+        for (int[] chunk : chunks(operands.size())) {
+            List<StringToken> chunkTokens = stringTokens.subList(chunk[0], chunk[1]);
+            List<JCTree.JCExpression> chunkOperands = operands.subList(chunk[0], chunk[1]);
+            chunks.add(concatStrategy == ConcatStrategy.INLINE
+                    ? inlineConcat(chunkTokens, chunkOperands)
+                    : valueOfConcat(chunkTokens, chunkOperands));
+        }
+        return balancedPlus(stringTokens.get(0).getOffset(), chunks, 0, chunks.size());
+    }
+
+    private JCTree.JCExpression balancedPlus(int pos, List<JCTree.JCExpression> chunks, int from, int to) {
+        if (to - from == 1) return chunks.get(from);
+        int middle = (from + to) >>> 1;
+        return trees.at(pos).Binary(JCTree.Tag.PLUS, balancedPlus(pos, chunks, from, middle), balancedPlus(pos, chunks, middle, to));
+    }
+
+    /**
+     * Splits a string literal into folded tokens and their expressions.
+     *
+     * @param escape escaping of constant values, they are merged into the literal parts
+     * @param fold   whether constant expressions are replaced by their values, {@code Interpolate.sql} binds them
+     * @return {@code false} if the literal is not interpolated
+     */
+    private boolean splitLiteral(JCTree.JCLiteral jcLiteral, List<StringToken> tokens, List<JCTree.JCExpression> operands, Escape escape,
+                                 boolean fold) {
+        if (!(jcLiteral.getValue() instanceof String)) return false;
+
+        String literalValue = (String) jcLiteral.getValue();
+        int originalOffset = jcLiteral.getPreferredPosition();
+        if (literalValue.equals("")) return false;
+
+        List<StringToken> stringTokens = literalTokens == null
+                ? exprExtractor.split(literalValue, originalOffset, parseMode, elementAnnoInfo.isFormat())
+                : literalTokens.get(jcLiteral);
+
+        if (stringTokens == null || stringTokens.isEmpty()) return false;
+
+        foldConstants(stringTokens, tokens, operands, escape, fold);
+        // a literal which is not interpolated keeps its tree
+        return tokens.size() != 1 || tokens.get(0).getType() != STRING_LITERAL || !tokens.get(0).getValue().equals(literalValue);
+    }
+
+    /**
+     * {@code Interpolate.name(..., <string literal>)} or {@code com.github.gg_a.interpolator.Interpolate.name(..., <string literal>)},
+     * the trees are not attributed, so a static import of the method is not recognized.
+     */
+    private static boolean isIntrinsic(JCTree.JCMethodInvocation invocation, String name, int argumentCount) {
+        if (!(invocation.getMethodSelect() instanceof JCTree.JCFieldAccess)) return false;
+        JCTree.JCFieldAccess select = (JCTree.JCFieldAccess) invocation.getMethodSelect();
+        if (!select.getIdentifier().contentEquals(name) || invocation.getArguments().size() != argumentCount
+                || !(invocation.getArguments().last() instanceof JCTree.JCLiteral)) return false;
+        String owner = select.getExpression().toString();
+        return owner.equals(Interpolate.class.getSimpleName()) || owner.equals(Interpolate.class.getName());
+    }
+
+    /**
+     * Converts the tokens to expressions, replaces constant expressions by their values and
+     * merges adjacent string literals, e.g. {@code "a${A + B}b${x}"} with the constants {@code A = 1} and {@code B = 2}
+     * has 2 operands: {@code "a3b"} and {@code x}.
+     *
+     * @param tokens   folded tokens, output
+     * @param operands expressions of {@code tokens}, output
+     * @param fold     {@code false} to keep constant expressions, only adjacent literal parts are merged
+     */
+    private void foldConstants(List<StringToken> stringTokens, List<StringToken> tokens, List<JCTree.JCExpression> operands,
+                               Escape escape, boolean fold) {
+        for (StringToken st : stringTokens) {
+            StringToken token = st;
+            JCTree.JCExpression parsed = convertToExpr(st, currentClassName);
+            if (parsed == null && st.getFormat() != null) {
+                messager.printMessage(Diagnostic.Kind.ERROR, ">>> StringInterpolator: the expression before the format specifier "
+                        + "can not be parsed: " + st.getOriginValue(), elementAnnoInfo.getElement());
+            }
+            JCTree.JCExpression expr = handleNull(st, parsed);
+            if (st.getType() == EXPRESSION) {
+                if (st.getFormat() != null) warnIfRemainder(st);
+                Object value = fold ? constantValue(valueOfArgument(expr)) : ConstantFolder.NOT_CONSTANT;
+                if (st.getFormat() != null) {
+                    String formatted = null;
+                    try {
+                        FormatSpec formatSpec = FormatSpec.parse(st.getFormat(), elementAnnoInfo.getFormatLocale());
+                        if (value != ConstantFolder.NOT_CONSTANT && elementAnnoInfo.getFormatLocale() == FormatLocale.ROOT)
+                            formatted = formatSpec.format(value);
+                        else
+                            expr = formatCall(st, formatSpec, valueOfArgument(expr));
+                    } catch (IllegalFormatException e) {
+                        messager.printMessage(Diagnostic.Kind.ERROR, ">>> StringInterpolator: invalid format specifier: "
+                                + st.getOriginValue() + " (" + e + ")", elementAnnoInfo.getElement());
+                        formatted = st.getOriginValue();
+                    }
+                    if (formatted != null)
+                        token = new StringToken(escape(formatted, escape), st.getOriginValue(), STRING_LITERAL, st.getOffset());
+                } else if (value != ConstantFolder.NOT_CONSTANT) {
+                    token = new StringToken(escape(String.valueOf(value), escape), st.getOriginValue(), STRING_LITERAL, st.getOffset());
+                }
+            }
+
+            int last = tokens.size() - 1;
+            if (token.getType() == STRING_LITERAL && last >= 0 && tokens.get(last).getType() == STRING_LITERAL) {
+                StringToken prev = tokens.get(last);
+                token = new StringToken(prev.getValue() + token.getValue(), prev.getOriginValue() + token.getOriginValue(),
+                        STRING_LITERAL, prev.getOffset());
+                tokens.set(last, token);
+                operands.set(last, convertToExpr(token, currentClassName));
+            } else {
+                tokens.add(token);
+                operands.add(token == st ? expr : convertToExpr(token, currentClassName));
+            }
+        }
+    }
+
+    /**
+     * @return value of a constant expression, or {@link ConstantFolder#NOT_CONSTANT}
+     */
+    private Object constantValue(JCTree.JCExpression expr) {
+        return constantFolder().fold(expr, nestedClassCount == 0);
+    }
+
+    private ConstantFolder constantFolder() {
+        if (constantFolder == null) constantFolder = new ConstantFolder(elements, elementAnnoInfo.getElement(), root);
+        return constantFolder;
+    }
+
+    /**
+     * {@code ${a%d}} is formatted with {@code %d}, warns if it may be meant as {@code a % d}: the expression ends in
+     * an identifier and the conversion, with an optional sign flag, is the name of a variable.
+     */
+    private void warnIfRemainder(StringToken st) {
+        String expression = st.getValue();
+        String format = st.getFormat();
+        String name = format.length() == 2 && (format.charAt(0) == '-' || format.charAt(0) == '+') ? format.substring(1) : format;
+        if (name.length() != 1 || !Character.isJavaIdentifierPart(expression.charAt(expression.length() - 1))
+                || !constantFolder().isVariable(name)) return;
+        messager.printMessage(Diagnostic.Kind.WARNING, ">>> StringInterpolator: " + st.getOriginValue() + " is formatted with %"
+                + format + ", write ${" + expression + " % " + format + "} for the remainder", elementAnnoInfo.getElement());
+    }
+
+    private static String escape(String value, Escape escape) {
+        return escape == Escape.NONE ? value : Escapes.escape(value, escape.name());
+    }
+
+    /*
+     * "a " + String.valueOf(x) + " b " + String.valueOf(y)
+     */
+    private JCTree.JCExpression valueOfConcat(List<StringToken> stringTokens, List<JCTree.JCExpression> operands) {
+        int pos = stringTokens.get(0).getOffset();
+        JCTree.JCExpression exprLeft = operands.get(0);
+        for (int i = 1; i < operands.size(); i++) exprLeft = trees.at(pos).Binary(JCTree.Tag.PLUS, exprLeft, operands.get(i));
+        return exprLeft;
+    }
+
+    /*
+     * "a " + x + " b " + y, starts with "" if the first two operands are not string literals,
+     * otherwise ${x}${y} would be an arithmetic addition of x and y.
+     */
+    private JCTree.JCExpression inlineConcat(List<StringToken> stringTokens, List<JCTree.JCExpression> operands) {
+        int pos = stringTokens.get(0).getOffset();
+        JCTree.JCExpression exprLeft = inlineOperand(stringTokens.get(0), operands.get(0));
+        if (stringTokens.get(0).getType() == EXPRESSION && stringTokens.get(1).getType() == EXPRESSION) {
+            exprLeft = trees.at(pos).Binary(JCTree.Tag.PLUS, trees.literal(pos, ""), exprLeft);
+        }
+        for (int i = 1; i < operands.size(); i++) {
+            exprLeft = trees.at(pos).Binary(JCTree.Tag.PLUS, exprLeft, inlineOperand(stringTokens.get(i), operands.get(i)));
+        }
+        return exprLeft;
+    }
+
+    /*
+     * x instead of String.valueOf(x), unless x may be a char[], which the concatenation would convert with toString()
+     */
+    private JCTree.JCExpression inlineOperand(StringToken st, JCTree.JCExpression operand) {
+        JCTree.JCExpression value = unwrapValueOf(st, operand);
+        return value == operand || constantFolder().mayBeCharArray(value, nestedClassCount == 0) ? operand : value;
+    }
+
+    /*
+     * new java.lang.StringBuilder(capacity).append("a ").append(x).append(" b ").append(y).toString(),
+     * StringBuilder.append has the same overloads as String.valueOf, so the output is the same as VALUE_OF.
+     * POOLED: PooledBuilders.release(PooledBuilders.acquire(capacity).append("a ")...append(y)),
+     * POOLED_STRIPED: the same with acquireStriped and releaseStriped.
+     * Long literals append chunks, see appendChunks.
+     */
+    private JCTree.JCExpression builderConcat(JCTree.JCLiteral literal, List<StringToken> stringTokens, List<JCTree.JCExpression> operands) {
+        int pos = stringTokens.get(0).getOffset();
+        boolean pooled = concatStrategy != ConcatStrategy.BUILDER;
+        JCTree.JCExpression expr = pooled ? acquireBuilder(pos, capacity(stringTokens)) : trees.newStringBuilder(pos, capacity(stringTokens));
+        if (operands.size() <= MAX_CHAIN_LENGTH) {
+            expr = appendAll(pos, expr, stringTokens, operands);
+        } else {
+            List<JCTree.JCExpression> chunks = new ArrayList<>();
+            List<Integer> capacities = new ArrayList<>();
+            for (int[] chunk : chunks(operands.size())) {
+                List<StringToken> chunkTokens = stringTokens.subList(chunk[0], chunk[1]);
+                capacities.add(capacity(chunkTokens));
+                chunks.add(appendAll(pos, trees.newStringBuilder(pos, capacities.get(capacities.size() - 1)),
+                        chunkTokens, operands.subList(chunk[0], chunk[1])));
             }
+            PrimitiveIterator.OfInt positions = Arrays.stream(argumentPositions(literal, stringTokens, chunkArgumentCount(operands.size()) + 1))
+                    .filter(p -> p != pos).iterator();
+            expr = chains.appendChunks(pos, expr, chunks, capacities, positions);
+        }
+        return pooled ? releaseBuilder(pos, expr) : builderToString(pos, expr);
+    }
 
-            JCTree.JCExpression exprLeft = convertToExpr(stringToken, currentClassName);
-            exprLeft = handleNull(stringToken, exprLeft);
+    /*
+     * PooledBuilders.acquire(capacity) or PooledBuilders.acquireStriped(capacity)
+     */
+    private JCTree.JCExpression acquireBuilder(int pos, int capacity) {
+        String suffix = concatStrategy == ConcatStrategy.POOLED_STRIPED ? "Striped" : "";
+        return trees.staticCall(pos, POOLED_BUILDERS, "acquire" + suffix, trees.literal(pos, capacity));
+    }
+
+    /*
+     * PooledBuilders.release(builder) or PooledBuilders.releaseStriped(builder)
+     */
+    private JCTree.JCExpression releaseBuilder(int pos, JCTree.JCExpression builder) {
+        String suffix = concatStrategy == ConcatStrategy.POOLED_STRIPED ? "Striped" : "";
+        return trees.staticCall(pos, POOLED_BUILDERS, "release" + suffix, builder);
+    }
 
-            for (int i = 1; i < stringTokens.size(); i++) {
-                StringToken st = stringTokens.get(i);
-                JCTree.JCExpression exprRight = convertToExpr(st, currentClassName);
-                exprRight = handleNull(st, exprRight);
+    private JCTree.JCExpression builderToString(int pos, JCTree.JCExpression builder) {
+        return trees.call(pos, builder, "toString");
+    }
 
-                exprLeft = treeMaker.Binary(JCTree.Tag.PLUS, exprLeft, exprRight);
-                exprLeft.setPos(stringToken.getOffset());
+    private JCTree.JCExpression appendAll(int pos, JCTree.JCExpression builder, List<StringToken> stringTokens,
+                                          List<JCTree.JCExpression> operands) {
+        JCTree.JCExpression expr = builder;
+        for (int i = 0; i < operands.size(); i++) expr = trees.call(pos, expr, "append", unwrapValueOf(stringTokens.get(i), operands.get(i)));
+        return expr;
+    }
+
+    /**
+     * initial capacity of a builder, types are unknown before attribution
+     */
+    private static int capacity(List<StringToken> stringTokens) {
+        int capacity = 0;
+        for (StringToken st : stringTokens) {
+            capacity += st.getType() == EXPRESSION ? ESTIMATED_VALUE_LENGTH : st.getValue().length();
+        }
+        return capacity;
+    }
+
+    /*
+     * Escapes.json(new java.lang.StringBuilder(capacity).append("{\"name\": \""), name).append("\"}").toString(),
+     * the escaping replaces the concat strategy.
+     * Numbers.append(new java.lang.StringBuilder(capacity).append("height: "), height).toString() for
+     * FAST_NUMBERS_OPTION, the builder is PooledBuilders.acquire(capacity) and PooledBuilders.release(...) for POOLED.
+     */
+    private JCTree.JCExpression appenderConcat(JCTree.JCLiteral literal, List<StringToken> tokens, List<JCTree.JCExpression> operands) {
+        boolean chunked = tokens.size() > MAX_CHAIN_LENGTH;
+        boolean pooled = escape == Escape.NONE && concatStrategy != ConcatStrategy.BUILDER;
+        int[] positions = argumentPositions(literal, tokens, tokens.size() + 2 + (chunked ? chunkArgumentCount(tokens.size()) : 0));
+        int pos = positions[tokens.size()];
+        int builderPos = positions[tokens.size() + 1];   // an argument of the first call
+        JCTree.JCExpression builder = pooled ? acquireBuilder(builderPos, capacity(tokens)) : trees.newStringBuilder(builderPos, capacity(tokens));
+        JCTree.JCExpression expr;
+        if (!chunked) {
+            expr = appendValues(builder, tokens, operands, positions, 0, tokens.size());
+        } else {
+            List<JCTree.JCExpression> chunks = new ArrayList<>();
+            List<Integer> capacities = new ArrayList<>();
+            for (int[] chunk : chunks(tokens.size())) {
+                capacities.add(capacity(tokens.subList(chunk[0], chunk[1])));
+                chunks.add(appendValues(trees.newStringBuilder(positions[chunk[0]], capacities.get(capacities.size() - 1)),
+                        tokens, operands, positions, chunk[0], chunk[1]));
             }
+            expr = chains.appendChunks(pos, builder, chunks, capacities,
+                    Arrays.stream(positions, tokens.size() + 2, positions.length).iterator());
+        }
+        return pooled ? releaseBuilder(pos, expr) : builderToString(pos, expr);
+    }
 
-            result = exprLeft;
+    /**
+     * appends the tokens {@code [from, to)} to {@code builder}, the values by {@link Escapes} or {@link #NUMBERS}
+     */
+    private JCTree.JCExpression appendValues(JCTree.JCExpression builder, List<StringToken> tokens, List<JCTree.JCExpression> operands,
+                                             int[] positions, int from, int to) {
+        String appender = escape == Escape.NONE ? NUMBERS : "com.github.gg_a.interpolator.runtime.Escapes";
+        String appendMethod = escape == Escape.NONE ? "append" : escape.name().toLowerCase(Locale.ROOT);
+        JCTree.JCExpression expr = builder;
+        for (int i = from; i < to; i++) {
+            int pos = positions[i];
+            expr = tokens.get(i).getType() == STRING_LITERAL
+                    ? trees.call(pos, expr, "append", operands.get(i))
+                    : trees.staticCall(pos, appender, appendMethod, expr, unwrapValueOf(tokens.get(i), operands.get(i)));
         }
+        return expr;
+    }
+
+    /*
+     * com.github.gg_a.interpolator.runtime.Formats.f(expr, flags, width, precision)
+     */
+    private JCTree.JCExpression formatCall(StringToken stringToken, FormatSpec formatSpec, JCTree.JCExpression expr) {
+        int pos = stringToken.getOffset();
+        List<JCTree.JCExpression> args = new ArrayList<>();
+        args.add(expr);
+        args.add(trees.literal(pos, formatSpec.flags));
+        args.add(trees.literal(pos, formatSpec.width));
+        if (formatSpec.hasPrecision()) args.add(trees.literal(pos, formatSpec.precision));
+        return trees.call(pos, trees.qualifiedName(pos, "com.github.gg_a.interpolator.runtime.Formats"),
+                String.valueOf(formatSpec.conversion), args);
     }
 
     private JCTree.JCExpression handleNull(StringToken stringToken, JCTree.JCExpression expr) {
@@ -132,11 +683,14 @@ public class InterpolatorTranslator extends TreeTranslator {
     private JCTree.JCExpression convertToExpr(StringToken stringToken, String currentClassName) {
         switch (stringToken.getType()) {
             case EXPRESSION:
-                return expressionParser.parse(stringToken, currentClassName);
+                if (classStats == null) return expressionParser.parse(stringToken, currentClassName);
+
+                long start = System.nanoTime();
+                JCTree.JCExpression expression = expressionParser.parse(stringToken, currentClassName);
+                classStats.addExpression(expression != null, System.nanoTime() - start);
+                return expression;
             case STRING_LITERAL:
-                JCTree.JCLiteral literal = treeMaker.Literal(stringToken.getValue());
-                literal.setPos(stringToken.getOffset());
-                return literal;
+                return trees.literal(stringToken.getOffset(), stringToken.getValue());
             default:
                 throw new RuntimeException("Unexpected token type: " + stringToken.getType());
         }
@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator.ast;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.PrimitiveIterator;
+
+import com.github.gg_a.interpolator.token.StringToken;
+import com.sun.tools.javac.tree.JCTree;
+
+import static com.github.gg_a.interpolator.ast.ChunkedChains.MAX_CHAIN_LENGTH;
+import static com.github.gg_a.interpolator.ast.ExpressionParser.unwrapValueOf;
+
+/**
+ * {@code Interpolate.into(target, "a ${x}")}: the parts are appended to the target one by one,
+ * {@code Appends} has an overload for each type of target and value.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+final class IntoIntrinsic {
+
+    private static final String APPENDS = "com.github.gg_a.interpolator.runtime.Appends";
+
+    private final TreeFactory trees;
+    private final ChunkedChains chains;
+
+    IntoIntrinsic(TreeFactory trees, ChunkedChains chains) {
+        this.trees = trees;
+        this.chains = chains;
+    }
+
+    /*
+     * Appends.append(Appends.append(target, "a "), x)
+     *
+     * Long literals append chunks: Appends.append(Appends.append(target, new StringBuilder(capacity).append("a ")...), ...),
+     * the calls of a chain are nested arguments, see ChunkedChains.
+     */
+    JCTree.JCExpression appends(int pos, JCTree.JCExpression target, JCTree.JCLiteral template,
+                                List<StringToken> tokens, List<JCTree.JCExpression> operands) {
+        if (tokens.size() > MAX_CHAIN_LENGTH) return chunkedAppends(pos, target, template, tokens, operands);
+
+        // every call but the last one is an argument
+        int[] argumentPositions = ChunkedChains.argumentPositions(template, tokens, tokens.size() - 1);
+        JCTree.JCExpression expr = target;
+        for (int i = 0; i < tokens.size(); i++) {
+            int callPos = i < argumentPositions.length ? argumentPositions[i] : pos;
+            expr = trees.staticCall(callPos, APPENDS, "append", expr, unwrapValueOf(tokens.get(i), operands.get(i)));
+        }
+        return expr;
+    }
+
+    private JCTree.JCExpression chunkedAppends(int pos, JCTree.JCExpression target, JCTree.JCLiteral template,
+                                               List<StringToken> tokens, List<JCTree.JCExpression> operands) {
+        // the chunks, groups and every call but the last one are arguments
+        int[] argumentPositions = ChunkedChains.argumentPositions(template, tokens,
+                ChunkedChains.chunkArgumentCount(tokens.size()) + ChunkedChains.CHUNK_SIZE);
+        PrimitiveIterator.OfInt positions = Arrays.stream(argumentPositions).filter(p -> p != pos).iterator();
+        List<JCTree.JCExpression> groups = chains.builderGroups(pos, tokens, operands, positions);
+        JCTree.JCExpression expr = target;
+        for (int i = 0; i < groups.size(); i++) {
+            expr = trees.staticCall(i < groups.size() - 1 ? positions.nextInt() : pos, APPENDS, "append", expr, groups.get(i));
+        }
+        return expr;
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator.ast;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.github.gg_a.interpolator.token.StringToken;
+import com.sun.tools.javac.tree.JCTree;
+
+import static com.github.gg_a.interpolator.ast.ExpressionParser.unwrapValueOf;
+import static com.github.gg_a.interpolator.token.TokenType.STRING_LITERAL;
+
+/**
+ * {@code Interpolate.lazy("a ${x} b ${y}")}: the values are converted to strings when the result is used.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+final class LazyIntrinsic {
+
+    private static final String LAZY_STRING = "com.github.gg_a.interpolator.runtime.LazyString";
+
+    private final TreeFactory trees;
+
+    LazyIntrinsic(TreeFactory trees) {
+        this.trees = trees;
+    }
+
+    /*
+     * new com.github.gg_a.interpolator.runtime.LazyString(new java.lang.Object[]{"a ", x, " b ", y}),
+     * a constant stays a string literal
+     */
+    JCTree.JCExpression lazyString(List<StringToken> tokens, List<JCTree.JCExpression> operands) {
+        if (tokens.size() == 1 && tokens.get(0).getType() == STRING_LITERAL) return operands.get(0);
+
+        int pos = tokens.get(0).getOffset();
+        List<JCTree.JCExpression> parts = new ArrayList<>();
+        for (int i = 0; i < tokens.size(); i++) parts.add(unwrapValueOf(tokens.get(i), operands.get(i)));
+        return trees.newClass(pos, LAZY_STRING, trees.newArray(pos, "java.lang.Object", parts));
+    }
+}
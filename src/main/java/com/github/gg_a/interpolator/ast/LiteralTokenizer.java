@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator.ast;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.sun.tools.javac.tree.JCTree;
+import com.sun.tools.javac.tree.TreeScanner;
+import com.github.gg_a.interpolator.ElementAnnoInfo;
+import com.github.gg_a.interpolator.InterpolatorStats;
+import com.github.gg_a.interpolator.token.ExpressionExtractor;
+import com.github.gg_a.interpolator.token.StringToken;
+
+/**
+ * First phase of processing: collects the string literals of the elements and splits
+ * them into {@link StringToken}s. <br>
+ * Splitting is pure string work, so it runs on a {@link ForkJoinPool} when one is given;
+ * the second phase ({@link InterpolatorTranslator}) only rewrites the javac trees, which
+ * must stay on the processor thread.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+public class LiteralTokenizer {
+
+    /**
+     * Number of literals below which a task is not forked any more
+     */
+    private static final int THRESHOLD = 256;
+
+    private final ExpressionExtractor exprExtractor = new ExpressionExtractor();
+    private final ForkJoinPool pool;
+    private final InterpolatorStats stats;
+
+    /**
+     * @param pool  pool to split literals on, {@code null} to split them on the current thread
+     * @param stats statistics to record to, may be {@code null}
+     */
+    public LiteralTokenizer(ForkJoinPool pool, InterpolatorStats stats) {
+        this.pool = pool;
+        this.stats = stats;
+    }
+
+    /**
+     * @param elementAnnoInfos elements to translate
+     * @param trees            trees of the elements, in the same order as {@code elementAnnoInfos}
+     * @return tokens of every literal which contains interpolations, literals without
+     * interpolations are not in the map
+     */
+    public Map<JCTree.JCLiteral, List<StringToken>> tokenize(List<ElementAnnoInfo> elementAnnoInfos, List<? extends JCTree> trees) {
+        return tokenize(elementAnnoInfos, trees, null);
+    }
+
+    /**
+     * @param sourceIndex index of the source file of the trees, literals of members and statements
+     *                    without hits are not collected, as {@link InterpolatorTranslator} does not translate them
+     */
+    public Map<JCTree.JCLiteral, List<StringToken>> tokenize(List<ElementAnnoInfo> elementAnnoInfos, List<? extends JCTree> trees,
+                                                             SourceIndex sourceIndex) {
+        List<JCTree.JCLiteral> literals = new ArrayList<>();
+        List<ElementAnnoInfo> owners = new ArrayList<>();
+        for (int i = 0; i < trees.size(); i++) {
+            int before = literals.size();
+            JCTree tree = trees.get(i);
+            new LiteralCollector(literals, sourceIndex, sourceIndex == null ? 0 : sourceIndex.end(tree)).scan(tree);
+            for (int j = before; j < literals.size(); j++) owners.add(elementAnnoInfos.get(i));
+        }
+
+        @SuppressWarnings("unchecked")
+        List<StringToken>[] results = new List[literals.size()];
+        long[] nanos = stats == null ? null : new long[literals.size()];
+        SplitTask task = new SplitTask(literals, owners, results, nanos, 0, literals.size());
+        if (pool == null || literals.size() <= THRESHOLD) task.invoke();
+        else pool.invoke(task);
+
+        Map<JCTree.JCLiteral, List<StringToken>> literalTokens = new IdentityHashMap<>();
+        for (int i = 0; i < results.length; i++) {
+            if (!results[i].isEmpty()) literalTokens.put(literals.get(i), results[i]);
+            if (stats != null) {
+                stats.forClass(owners.get(i).getParentClassName()).addLiteral(!results[i].isEmpty(), nanos[i]);
+            }
+        }
+        return literalTokens;
+    }
+
+    private class SplitTask extends RecursiveAction {
+        private final List<JCTree.JCLiteral> literals;
+        private final List<ElementAnnoInfo> owners;
+        private final List<StringToken>[] results;
+        private final long[] nanos;
+        private final int from;
+        private final int to;
+
+        SplitTask(List<JCTree.JCLiteral> literals, List<ElementAnnoInfo> owners, List<StringToken>[] results,
+                  long[] nanos, int from, int to) {
+            this.literals = literals;
+            this.owners = owners;
+            this.results = results;
+            this.nanos = nanos;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    JCTree.JCLiteral literal = literals.get(i);
+                    ElementAnnoInfo owner = owners.get(i);
+                    long start = nanos == null ? 0 : System.nanoTime();
+                    results[i] = exprExtractor.split((String) literal.getValue(), literal.getPreferredPosition(),
+                            owner.getInterpolationMode(), owner.isFormat());
+                    if (nanos != null) nanos[i] = System.nanoTime() - start;
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new SplitTask(literals, owners, results, nanos, from, middle),
+                        new SplitTask(literals, owners, results, nanos, middle, to));
+            }
+        }
+    }
+
+    /**
+     * Collects the non-empty string literals which {@link InterpolatorTranslator} would translate.
+     */
+    private static class LiteralCollector extends TreeScanner {
+        private final List<JCTree.JCLiteral> literals;
+        private final SourceIndex sourceIndex;
+        private int end;
+
+        LiteralCollector(List<JCTree.JCLiteral> literals, SourceIndex sourceIndex, int end) {
+            this.literals = literals;
+            this.sourceIndex = sourceIndex;
+            this.end = end;
+        }
+
+        @Override
+        public void visitClassDef(JCTree.JCClassDecl jcClassDecl) {
+            if (sourceIndex == null) super.visitClassDef(jcClassDecl);
+            else scanWithHits(jcClassDecl.defs);
+        }
+
+        @Override
+        public void visitBlock(JCTree.JCBlock jcBlock) {
+            if (sourceIndex == null) super.visitBlock(jcBlock);
+            else scanWithHits(jcBlock.stats);
+        }
+
+        private void scanWithHits(List<? extends JCTree> trees) {
+            int parentEnd = end;
+            int[] ends = sourceIndex.ends(trees, parentEnd);
+            int i = 0;
+            for (JCTree tree : trees) {
+                if (sourceIndex.hasHits(tree, ends[i])) {
+                    end = ends[i];
+                    scan(tree);
+                }
+                i++;
+            }
+            end = parentEnd;
+        }
+
+        @Override
+        public void visitAnnotation(JCTree.JCAnnotation jcAnnotation) {
+            // literals in annotations are never translated
+        }
+
+        @Override
+        public void visitLiteral(JCTree.JCLiteral jcLiteral) {
+            Object value = jcLiteral.getValue();
+            if (value instanceof String && !((String) value).isEmpty()) literals.add(jcLiteral);
+        }
+    }
+}
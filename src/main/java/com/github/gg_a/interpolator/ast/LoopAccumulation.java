@@ -0,0 +1,247 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator.ast;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+import com.sun.tools.javac.code.Flags;
+import com.sun.tools.javac.tree.JCTree;
+import com.sun.tools.javac.tree.TreeScanner;
+import com.sun.tools.javac.tree.TreeTranslator;
+import com.sun.tools.javac.util.List;
+import com.sun.tools.javac.util.Name;
+
+/**
+ * Rewrites the accumulation of interpolated strings in a loop, e.g. {@code s += "${k}=${v}, ";}, to appends to a
+ * {@code StringBuilder} created before the loop. Each {@code +=} copies the whole string, so the loop takes
+ * quadratic time:
+ * <pre>
+ * {
+ *     java.lang.StringBuilder $interpolator$s = new java.lang.StringBuilder(java.lang.String.valueOf(s));
+ *     try {
+ *         for (...) { ... $interpolator$s.append(&lt;the interpolated string&gt;); ... }
+ *     } finally {
+ *         s = $interpolator$s.toString();
+ *     }
+ * }
+ * </pre>
+ * Only a local {@code String} variable declared before the loop in an enclosing block is rewritten, and only if each
+ * of its uses in the loop (condition and update too) is a statement {@code s += <string literal>;} whose literal
+ * does not use it, one of them interpolated. Each append is a complete string and the variable is assigned in
+ * {@code finally}, so it has the same value as before after the loop, also after a {@code break}, a {@code return}
+ * or an exception. Loops in lambdas and local classes are not rewritten, the variable can not be assigned there.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+final class LoopAccumulation {
+
+    private static final String BUILDER_PREFIX = "$interpolator$";
+
+    private final TreeFactory trees;
+    /**
+     * trees generated for interpolated literals
+     */
+    private final Set<JCTree> interpolated;
+    /**
+     * receives each loop which is rewritten, or not although it accumulates an interpolated literal, with a message
+     */
+    private final BiConsumer<JCTree, String> notes;
+
+    LoopAccumulation(TreeFactory trees, Set<JCTree> interpolated, BiConsumer<JCTree, String> notes) {
+        this.trees = trees;
+        this.interpolated = interpolated;
+        this.notes = notes;
+    }
+
+    /**
+     * Rewrites the loops after the declarations of {@code String} variables in the block, in place.
+     */
+    void rewrite(JCTree.JCBlock block) {
+        for (List<JCTree.JCStatement> l = block.stats; l.nonEmpty(); l = l.tail) {
+            if (!isStringVariable(l.head)) continue;
+            Name name = ((JCTree.JCVariableDecl) l.head).name;
+            LoopFinder finder = new LoopFinder(name);
+            for (List<JCTree.JCStatement> rest = l.tail; rest.nonEmpty(); rest = rest.tail) {
+                rest.head = finder.translate(rest.head);
+            }
+        }
+    }
+
+    private static boolean isStringVariable(JCTree.JCStatement statement) {
+        if (!(statement instanceof JCTree.JCVariableDecl)) return false;
+        JCTree.JCVariableDecl variable = (JCTree.JCVariableDecl) statement;
+        if ((variable.mods.flags & Flags.FINAL) != 0 || variable.vartype == null) return false;
+        String type = variable.vartype.toString();
+        return type.equals("String") || type.equals("java.lang.String");
+    }
+
+    /**
+     * Finds the outermost loops which accumulate an interpolated literal in the variable, and rewrites them.
+     * If a loop uses the variable otherwise, the loops in it are tried.
+     */
+    private final class LoopFinder extends TreeTranslator {
+        private final Name name;
+        /**
+         * labelled loop which is not rewritten, its loops are tried
+         */
+        private JCTree tried;
+
+        LoopFinder(Name name) {
+            this.name = name;
+        }
+
+        @Override
+        public void visitClassDef(JCTree.JCClassDecl tree) {
+            result = tree;
+        }
+
+        @Override
+        public void visitLambda(JCTree.JCLambda tree) {
+            result = tree;
+        }
+
+        @Override
+        public void visitLabelled(JCTree.JCLabeledStatement tree) {
+            if (isLoop(tree.body) && hoist(tree)) return;
+            tried = tree.body;
+            super.visitLabelled(tree);
+        }
+
+        @Override
+        public void visitForLoop(JCTree.JCForLoop tree) {
+            if (!hoist(tree)) super.visitForLoop(tree);
+        }
+
+        @Override
+        public void visitForeachLoop(JCTree.JCEnhancedForLoop tree) {
+            if (!hoist(tree)) super.visitForeachLoop(tree);
+        }
+
+        @Override
+        public void visitWhileLoop(JCTree.JCWhileLoop tree) {
+            if (!hoist(tree)) super.visitWhileLoop(tree);
+        }
+
+        @Override
+        public void visitDoLoop(JCTree.JCDoWhileLoop tree) {
+            if (!hoist(tree)) super.visitDoLoop(tree);
+        }
+
+        private boolean isLoop(JCTree tree) {
+            return tree instanceof JCTree.JCForLoop || tree instanceof JCTree.JCEnhancedForLoop
+                    || tree instanceof JCTree.JCWhileLoop || tree instanceof JCTree.JCDoWhileLoop;
+        }
+
+        /**
+         * @return whether {@link #result} is the rewritten loop
+         */
+        private boolean hoist(JCTree.JCStatement loop) {
+            if (loop == tried) return false;
+            Uses uses = new Uses(name);
+            uses.scan(loop);
+            if (uses.interpolatedCount == 0) return false;
+            if (uses.other) {
+                notes.accept(loop, name + " += is not rewritten to a StringBuilder, " + name + " is used otherwise in the loop");
+                return false;
+            }
+
+            int pos = loop.pos;
+            Name builder = trees.name(BUILDER_PREFIX + name);
+            new TreeTranslator() {
+                @Override
+                public void visitExec(JCTree.JCExpressionStatement tree) {
+                    if (!uses.accumulations.contains(tree)) {
+                        super.visitExec(tree);
+                        return;
+                    }
+                    JCTree.JCExpression append = ((JCTree.JCAssignOp) tree.expr).rhs;
+                    tree.expr = trees.call(tree.pos, trees.at(tree.pos).Ident(builder), "append", append);
+                    result = tree;
+                }
+            }.translate(loop);
+
+            JCTree.JCExpression initial = trees.staticCall(pos, "java.lang.String", "valueOf", trees.at(pos).Ident(name));
+            JCTree.JCVariableDecl declaration = trees.at(pos).VarDef(trees.at(pos).Modifiers(0), builder,
+                    trees.qualifiedName(pos, "java.lang.StringBuilder"), trees.newClass(pos, "java.lang.StringBuilder", initial));
+            JCTree.JCStatement assignBack = trees.at(pos).Exec(trees.at(pos).Assign(trees.at(pos).Ident(name),
+                    trees.call(pos, trees.at(pos).Ident(builder), "toString")));
+            result = trees.block(pos, declaration, trees.tryFinally(pos, trees.block(pos, loop), trees.block(pos, assignBack)));
+            notes.accept(loop, name + " += in the loop is rewritten to a StringBuilder");
+            return true;
+        }
+    }
+
+    /**
+     * Uses of a variable in a loop: {@code name += <string literal>;} statements and others.
+     */
+    private final class Uses extends TreeScanner {
+        private final Name name;
+        final Set<JCTree.JCExpressionStatement> accumulations = Collections.newSetFromMap(new IdentityHashMap<>());
+        int interpolatedCount;
+        boolean other;
+        /**
+         * depth of lambdas and classes, which can not assign the variable
+         */
+        private int nested;
+
+        Uses(Name name) {
+            this.name = name;
+        }
+
+        @Override
+        public void visitExec(JCTree.JCExpressionStatement tree) {
+            if (tree.expr instanceof JCTree.JCAssignOp && tree.expr.hasTag(JCTree.Tag.PLUS_ASG)) {
+                JCTree.JCAssignOp assignOp = (JCTree.JCAssignOp) tree.expr;
+                boolean isInterpolated = interpolated.contains(assignOp.rhs);
+                if (nested == 0 && assignOp.lhs instanceof JCTree.JCIdent && ((JCTree.JCIdent) assignOp.lhs).name == name
+                        && (isInterpolated || isStringLiteral(assignOp.rhs))) {
+                    accumulations.add(tree);
+                    if (isInterpolated) interpolatedCount++;
+                    scan(assignOp.rhs);   // the literal must not use the variable
+                    return;
+                }
+            }
+            super.visitExec(tree);
+        }
+
+        @Override
+        public void visitIdent(JCTree.JCIdent tree) {
+            if (tree.name == name) other = true;
+        }
+
+        @Override
+        public void visitLambda(JCTree.JCLambda tree) {
+            nested++;
+            super.visitLambda(tree);
+            nested--;
+        }
+
+        @Override
+        public void visitClassDef(JCTree.JCClassDecl tree) {
+            nested++;
+            super.visitClassDef(tree);
+            nested--;
+        }
+
+        private boolean isStringLiteral(JCTree.JCExpression tree) {
+            return tree instanceof JCTree.JCLiteral && ((JCTree.JCLiteral) tree).getValue() instanceof String;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator.ast;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.github.gg_a.interpolator.Escape;
+import com.github.gg_a.interpolator.StringInterpolator;
+import com.github.gg_a.interpolator.token.StringToken;
+import com.sun.tools.javac.tree.JCTree;
+
+import static com.github.gg_a.interpolator.ast.ExpressionParser.unwrapValueOf;
+import static com.github.gg_a.interpolator.token.TokenType.STRING_LITERAL;
+
+/**
+ * {@link StringInterpolator#memoize()}: the strings of a literal are cached by its values in a
+ * {@code StringMemo}, a field of {@link #MEMOS}.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+final class MemoIntrinsic {
+
+    /**
+     * class nested in the top level class which holds the caches
+     */
+    private static final String MEMOS = "$InterpolatorMemo";
+    private static final String STRING_MEMO = "com.github.gg_a.interpolator.runtime.StringMemo";
+
+    private final TreeFactory trees;
+    private final HolderClasses holders;
+    private final String className;
+    private final int capacity;
+    private final Escape escape;
+
+    /**
+     * @param className class of the element, for the statistics
+     */
+    MemoIntrinsic(TreeFactory trees, HolderClasses holders, String className, int capacity, Escape escape) {
+        this.trees = trees;
+        this.holders = holders;
+        this.className = className;
+        this.capacity = capacity;
+        this.escape = escape;
+    }
+
+    /*
+     * $InterpolatorMemo._0.get(StringMemo.key(x), StringMemo.key(y)), with a field in $InterpolatorMemo:
+     * static final StringMemo _0 = new StringMemo("<class>", line, "a ${x} b ${y}", capacity, new String[]{"a ", " b ", ""}, escape)
+     *
+     * @return null for a constant, or if the top level class is an interface
+     */
+    JCTree.JCExpression memoized(JCTree.JCLiteral literal, List<StringToken> tokens, List<JCTree.JCExpression> operands) {
+        List<String> fragments = new ArrayList<>();
+        List<JCTree.JCExpression> values = new ArrayList<>();
+        StringBuilder fragment = new StringBuilder();
+        for (int i = 0; i < tokens.size(); i++) {
+            if (tokens.get(i).getType() == STRING_LITERAL) {
+                fragment.append(tokens.get(i).getValue());
+            } else {
+                fragments.add(fragment.toString());
+                fragment.setLength(0);
+                values.add(unwrapValueOf(tokens.get(i), operands.get(i)));
+            }
+        }
+        fragments.add(fragment.toString());
+        if (values.isEmpty()) return null;
+        JCTree.JCClassDecl holder = holders.holder(MEMOS);
+        if (holder == null) return null;
+
+        int fieldPos = holder.pos;
+        List<JCTree.JCExpression> fragmentLiterals = new ArrayList<>();
+        for (String f : fragments) fragmentLiterals.add(trees.literal(fieldPos, f));
+        JCTree.JCExpression init = trees.newClass(fieldPos, STRING_MEMO,
+                trees.literal(fieldPos, className),
+                trees.literal(fieldPos, holders.line(literal)),
+                trees.literal(fieldPos, literal.getValue()),
+                trees.literal(fieldPos, capacity),
+                trees.newArray(fieldPos, "java.lang.String", fragmentLiterals),
+                escape == Escape.NONE ? trees.nullLiteral(fieldPos) : trees.literal(fieldPos, escape.name()));
+
+        // the keys are arguments of get, which may be an argument too
+        int[] positions = ChunkedChains.argumentPositions(literal, tokens, values.size() + 1);
+        List<JCTree.JCExpression> keys = new ArrayList<>();
+        for (int i = 0; i < values.size(); i++) keys.add(trees.staticCall(positions[i], STRING_MEMO, "key", values.get(i)));
+        int pos = positions[values.size()];
+        JCTree.JCExpression memo = holders.addConstant(holder, pos, trees.qualifiedName(fieldPos, STRING_MEMO), init);
+        return trees.call(pos, memo, "get", keys);
+    }
+}
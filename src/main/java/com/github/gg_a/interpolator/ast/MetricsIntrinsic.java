@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator.ast;
+
+import com.github.gg_a.interpolator.InterpolatorProcessor;
+import com.github.gg_a.interpolator.metrics.CallSiteMetrics;
+import com.sun.tools.javac.tree.JCTree;
+
+/**
+ * {@link InterpolatorProcessor#METRICS_OPTION}: the strings created by a literal are counted by a
+ * {@link CallSiteMetrics}, a field of {@link #METRICS}.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+final class MetricsIntrinsic {
+
+    /**
+     * class nested in the top level class which holds the metrics
+     */
+    private static final String METRICS = "$InterpolatorMetrics";
+
+    private final TreeFactory trees;
+    private final HolderClasses holders;
+    private final String className;
+
+    /**
+     * @param className class of the element, for the statistics
+     */
+    MetricsIntrinsic(TreeFactory trees, HolderClasses holders, String className) {
+        this.trees = trees;
+        this.holders = holders;
+        this.className = className;
+    }
+
+    /*
+     * $InterpolatorMetrics._0.record(result), with a field in $InterpolatorMetrics:
+     * static final CallSiteMetrics _0 = CallSiteMetrics.register("<class>", line, "a ${x}")
+     *
+     * @return result itself if the top level class is an interface
+     */
+    JCTree.JCExpression record(JCTree.JCLiteral literal, JCTree.JCExpression result) {
+        JCTree.JCClassDecl holder = holders.holder(METRICS);
+        if (holder == null) return result;
+
+        int fieldPos = holder.pos;
+        JCTree.JCExpression init = trees.staticCall(fieldPos, CallSiteMetrics.class.getName(), "register",
+                trees.literal(fieldPos, className), trees.literal(fieldPos, holders.line(literal)), trees.literal(fieldPos, literal.getValue()));
+        JCTree.JCExpression site = holders.addConstant(holder, literal.pos, trees.qualifiedName(fieldPos, CallSiteMetrics.class.getName()), init);
+        return trees.call(literal.pos, site, "record", result);
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator.ast;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+import javax.tools.JavaFileObject;
+
+import com.sun.tools.javac.tree.JCTree;
+import com.sun.tools.javac.tree.TreeInfo;
+import com.sun.tools.javac.util.List;
+
+/**
+ * Positions in a source file where an interpolation may start, so trees without any of them are not visited. <br>
+ * A hit is <code>${</code>, <code>$\</code> or an octal escape (escapes may encode the <code>$</code> or <code>{</code>),
+ * or the shape of an intrinsic call, {@code Interpolate.}, {@code .utf8(} or {@code .sql(} ({@code Interpolate.utf8} also
+ * encodes plain literals, {@code Interpolate.sql} is always rewritten). A hit in a comment only costs a visit.
+ * <p>
+ * Trees have no end positions unless javac is asked for them, so a member or statement ends where the next one
+ * starts, the last one where its parent ends. Source files with unicode escapes ({@code \}{@code u}) have no index,
+ * any character may be escaped.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+public final class SourceIndex {
+
+    private static final String INTERPOLATE = "Interpolate";
+    private static final String[] INTRINSICS = {"utf8", "sql"};
+
+    private final int[] hits;
+    private final int length;
+    /**
+     * end of trees whose siblings were looked up
+     */
+    private final Map<JCTree, Integer> ends = new IdentityHashMap<>();
+
+    private SourceIndex(int[] hits, int length) {
+        this.hits = hits;
+        this.length = length;
+    }
+
+    /**
+     * @return {@code null} if the content can not be read or contains unicode escapes
+     */
+    public static SourceIndex of(JavaFileObject file) {
+        CharSequence content;
+        try {
+            content = file.getCharContent(true);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+        if (content == null) return null;
+
+        int[] hits = new int[16];
+        int count = 0;
+        int length = content.length();
+        for (int i = 0; i < length - 1; i++) {
+            char c = content.charAt(i);
+            boolean hit;
+            if (c == '$') {
+                char next = content.charAt(i + 1);
+                hit = next == '{' || next == '\\';
+            } else if (c == '\\') {
+                char next = content.charAt(i + 1);
+                if (next == 'u') return null;
+                hit = next >= '0' && next <= '7';
+                i++;   // an escaped backslash does not start an escape
+            } else {
+                hit = c == 'I' && isQualifier(content, i) || c == '.' && isIntrinsicName(content, i);
+            }
+            if (hit) {
+                if (count == hits.length) hits = Arrays.copyOf(hits, count * 2);
+                hits[count++] = i;
+            }
+        }
+        return new SourceIndex(Arrays.copyOf(hits, count), length);
+    }
+
+    /**
+     * @return whether {@code Interpolate} followed by {@code .} starts at {@code i}
+     */
+    private static boolean isQualifier(CharSequence content, int i) {
+        if (i > 0 && Character.isJavaIdentifierPart(content.charAt(i - 1))) return false;
+        if (!startsWith(content, i, INTERPOLATE)) return false;
+        int dot = skipWhitespace(content, i + INTERPOLATE.length());
+        return dot < content.length() && content.charAt(dot) == '.';
+    }
+
+    /**
+     * @return whether {@code .utf8(} or {@code .sql(} starts at the {@code .} at {@code i}
+     */
+    private static boolean isIntrinsicName(CharSequence content, int i) {
+        int name = skipWhitespace(content, i + 1);
+        for (String intrinsic : INTRINSICS) {
+            if (!startsWith(content, name, intrinsic)) continue;
+            int parenthesis = skipWhitespace(content, name + intrinsic.length());
+            if (parenthesis < content.length() && content.charAt(parenthesis) == '(') return true;
+        }
+        return false;
+    }
+
+    private static boolean startsWith(CharSequence content, int i, String s) {
+        if (i + s.length() > content.length()) return false;
+        for (int j = 0; j < s.length(); j++) {
+            if (content.charAt(i + j) != s.charAt(j)) return false;
+        }
+        return true;
+    }
+
+    private static int skipWhitespace(CharSequence content, int i) {
+        while (i < content.length() && Character.isWhitespace(content.charAt(i))) i++;
+        return i;
+    }
+
+    /**
+     * @return whether there is a hit in {@code [from, to)}
+     */
+    public boolean hasHits(int from, int to) {
+        int i = Arrays.binarySearch(hits, from);
+        if (i < 0) i = -i - 1;
+        return i < hits.length && hits[i] < to;
+    }
+
+    /**
+     * @return whether the source of the tree, which ends before {@code end}, may contain a hit
+     */
+    public boolean hasHits(JCTree tree, int end) {
+        int start = TreeInfo.getStartPos(tree);
+        return start < 0 || hasHits(start, end);
+    }
+
+    public int length() {
+        return length;
+    }
+
+    /**
+     * @return end of a tree computed by {@link #ends}, the end of the source for others
+     */
+    public int end(JCTree tree) {
+        Integer end = ends.get(tree);
+        return end == null ? length : end;
+    }
+
+    /**
+     * @param siblings  members of a class or statements of a block
+     * @param parentEnd end of their parent
+     * @return end of each sibling: the start of the next sibling which starts after it (declarations like
+     * {@code int a, b;} share their start), {@code parentEnd} for the last ones
+     */
+    public int[] ends(Collection<? extends JCTree> siblings, int parentEnd) {
+        int[] starts = new int[siblings.size()];
+        int i = 0;
+        for (JCTree sibling : siblings) starts[i++] = TreeInfo.getStartPos(sibling);
+
+        int[] result = new int[starts.length];
+        for (int j = starts.length - 1; j >= 0; j--) {
+            int next = j + 1;
+            while (next < starts.length && starts[next] <= starts[j]) next++;
+            result[j] = next < starts.length ? Math.min(starts[next], parentEnd) : parentEnd;
+        }
+        i = 0;
+        for (JCTree sibling : siblings) ends.put(sibling, result[i++]);
+        return result;
+    }
+
+    /**
+     * Replaces each sibling which may contain a hit by {@code translate.apply(sibling, end of the sibling)}, in place.
+     *
+     * @return the siblings
+     */
+    public <T extends JCTree> List<T> translateWithHits(List<T> siblings, int parentEnd, BiFunction<T, Integer, T> translate) {
+        int[] ends = ends(siblings, parentEnd);
+        int i = 0;
+        for (List<T> l = siblings; l.nonEmpty(); l = l.tail, i++) {
+            if (hasHits(l.head, ends[i])) l.head = translate.apply(l.head, ends[i]);
+        }
+        return siblings;
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator.ast;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import com.github.gg_a.interpolator.SqlQuery;
+import com.github.gg_a.interpolator.token.StringToken;
+import com.sun.tools.javac.tree.JCTree;
+
+import static com.github.gg_a.interpolator.ast.ExpressionParser.unwrapValueOf;
+import static com.github.gg_a.interpolator.ast.ExpressionParser.valueOfArgument;
+import static com.github.gg_a.interpolator.token.TokenType.EXPRESSION;
+
+/**
+ * {@code Interpolate.sql("... id = ${id}")}: the values are bound as parameters of a {@link SqlQuery}, constants too.
+ * Only {@code ${SqlQuery.identifier(NAME)}} of a constant identifier is written into the SQL text. <br>
+ * A {@code ?} in a quoted string or identifier, or in a comment, is not a placeholder, so a ${} there is an error.
+ * Quotes in quoted strings are doubled (SQL standard), backslash escapes of some databases are not known.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+final class SqlIntrinsic {
+
+    private static final int CODE = 0;
+    private static final int STRING = 1;
+    private static final int QUOTED_IDENTIFIER = 2;
+    private static final int LINE_COMMENT = 3;
+    private static final int BLOCK_COMMENT = 4;
+
+    private final TreeFactory trees;
+    private final ChunkedChains chains;
+    /**
+     * value of a constant expression, or {@link ConstantFolder#NOT_CONSTANT}
+     */
+    private final Function<JCTree.JCExpression, Object> constants;
+    private final Consumer<String> errors;
+
+    SqlIntrinsic(TreeFactory trees, ChunkedChains chains, Function<JCTree.JCExpression, Object> constants, Consumer<String> errors) {
+        this.trees = trees;
+        this.chains = chains;
+        this.constants = constants;
+        this.errors = errors;
+    }
+
+    /*
+     * new com.github.gg_a.interpolator.SqlQuery("SELECT * FROM t WHERE id = ? AND name = ?", 2).param(id).param(name),
+     * the tokens are not folded. Many parameters are bound in chunks (see appendChunks):
+     * new SqlQuery("...", 100).params(new SqlQuery(null, 16).param(p0)...param(p15))...
+     */
+    JCTree.JCExpression sqlQuery(int pos, JCTree.JCLiteral template, List<StringToken> tokens, List<JCTree.JCExpression> operands) {
+        StringBuilder sql = new StringBuilder();
+        List<JCTree.JCExpression> params = new ArrayList<>();
+        int state = CODE;
+        for (int i = 0; i < tokens.size(); i++) {
+            StringToken token = tokens.get(i);
+            if (token.getType() != EXPRESSION) {
+                sql.append(token.getValue());
+                state = scan(token.getValue(), state);
+                continue;
+            }
+
+            JCTree.JCExpression identifier = identifierArgument(valueOfArgument(operands.get(i)));
+            if (identifier != null) {
+                String name = identifier(token, identifier);
+                if (state != CODE && state != QUOTED_IDENTIFIER) errors.accept(token.getOriginValue() + " is in " + describe(state));
+                sql.append(name);
+            } else {
+                if (state != CODE) errors.accept(token.getOriginValue() + " is in " + describe(state) + ", it can not be a parameter");
+                sql.append('?');
+                params.add(unwrapValueOf(token, operands.get(i)));
+            }
+        }
+
+        JCTree.JCExpression query = newSqlQuery(pos, trees.literal(pos, sql.toString()), params.size());
+        if (params.size() <= ChunkedChains.MAX_CHAIN_LENGTH) return params(pos, query, params);
+
+        List<JCTree.JCExpression> chunks = new ArrayList<>();
+        List<Integer> capacities = new ArrayList<>();
+        for (int[] chunk : ChunkedChains.chunks(params.size())) {
+            List<JCTree.JCExpression> chunkParams = params.subList(chunk[0], chunk[1]);
+            chunks.add(params(pos, newSqlQuery(pos, trees.nullLiteral(pos), chunkParams.size()), chunkParams));
+            capacities.add(chunkParams.size());
+        }
+        PrimitiveIterator.OfInt positions = Arrays.stream(ChunkedChains.argumentPositions(template, tokens,
+                ChunkedChains.chunkArgumentCount(params.size()) + 1)).filter(p -> p != pos).iterator();
+        return chains.appendChunks(pos, query, chunks, capacities, positions,
+                capacity -> newSqlQuery(pos, trees.nullLiteral(pos), capacity), "params");
+    }
+
+    /**
+     * @return state after {@code text}, which starts in {@code state}
+     */
+    private static int scan(String text, int state) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            char next = i + 1 < text.length() ? text.charAt(i + 1) : 0;
+            switch (state) {
+                case CODE:
+                    if (c == '\'') {
+                        state = STRING;
+                    } else if (c == '"') {
+                        state = QUOTED_IDENTIFIER;
+                    } else if (c == '-' && next == '-') {
+                        state = LINE_COMMENT;
+                        i++;
+                    } else if (c == '/' && next == '*') {
+                        state = BLOCK_COMMENT;
+                        i++;
+                    }
+                    break;
+                case STRING:
+                    if (c == '\'') state = CODE;   // a doubled quote closes and opens again
+                    break;
+                case QUOTED_IDENTIFIER:
+                    if (c == '"') state = CODE;
+                    break;
+                case LINE_COMMENT:
+                    if (c == '\n' || c == '\r') state = CODE;
+                    break;
+                default:
+                    if (c == '*' && next == '/') {
+                        state = CODE;
+                        i++;
+                    }
+            }
+        }
+        return state;
+    }
+
+    private static String describe(int state) {
+        switch (state) {
+            case STRING:
+                return "a quoted SQL string";
+            case QUOTED_IDENTIFIER:
+                return "a quoted SQL identifier";
+            default:
+                return "an SQL comment";
+        }
+    }
+
+    /**
+     * @return argument of {@code SqlQuery.identifier(...)} or {@code com.github.gg_a.interpolator.SqlQuery.identifier(...)},
+     * {@code null} if {@code expr} is not such a call
+     */
+    private static JCTree.JCExpression identifierArgument(JCTree.JCExpression expr) {
+        if (!(expr instanceof JCTree.JCMethodInvocation)) return null;
+        JCTree.JCMethodInvocation invocation = (JCTree.JCMethodInvocation) expr;
+        if (!(invocation.getMethodSelect() instanceof JCTree.JCFieldAccess) || invocation.getArguments().size() != 1) return null;
+        JCTree.JCFieldAccess select = (JCTree.JCFieldAccess) invocation.getMethodSelect();
+        String owner = select.getExpression().toString();
+        boolean sqlQuery = owner.equals(SqlQuery.class.getSimpleName()) || owner.equals(SqlQuery.class.getName());
+        return sqlQuery && select.getIdentifier().contentEquals("identifier") ? invocation.getArguments().head : null;
+    }
+
+    /**
+     * @return the constant identifier, or the ${} after reporting an error
+     */
+    private String identifier(StringToken token, JCTree.JCExpression argument) {
+        Object value = constants.apply(argument);
+        if (!(value instanceof String)) {
+            errors.accept("the argument of SqlQuery.identifier must be a constant String: " + token.getOriginValue());
+            return token.getOriginValue();
+        }
+        try {
+            return SqlQuery.identifier((String) value);
+        } catch (IllegalArgumentException e) {
+            errors.accept(e.getMessage() + " (" + token.getOriginValue() + ")");
+            return token.getOriginValue();
+        }
+    }
+
+    private JCTree.JCExpression newSqlQuery(int pos, JCTree.JCExpression sql, int parameterCount) {
+        return trees.newClass(pos, SqlQuery.class.getName(), sql, trees.literal(pos, parameterCount));
+    }
+
+    private JCTree.JCExpression params(int pos, JCTree.JCExpression query, List<JCTree.JCExpression> params) {
+        JCTree.JCExpression expr = query;
+        for (JCTree.JCExpression param : params) expr = trees.call(pos, expr, "param", param);
+        return expr;
+    }
+}
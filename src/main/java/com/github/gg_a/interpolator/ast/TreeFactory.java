@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator.ast;
+
+import com.sun.tools.javac.code.Flags;
+import com.sun.tools.javac.code.TypeTag;
+import com.sun.tools.javac.tree.JCTree;
+import com.sun.tools.javac.tree.TreeMaker;
+import com.sun.tools.javac.util.List;
+import com.sun.tools.javac.util.ListBuffer;
+import com.sun.tools.javac.util.Name;
+import com.sun.tools.javac.util.Names;
+
+/**
+ * Creates the trees of generated code, each at the given position. The generated code refers to classes by
+ * their qualified names, the trees are not attributed and the imports of the source are unknown.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+final class TreeFactory {
+
+    private final TreeMaker treeMaker;
+    private final Names names;
+
+    TreeFactory(TreeMaker treeMaker, Names names) {
+        this.treeMaker = treeMaker;
+        this.names = names;
+    }
+
+    TreeMaker at(int pos) {
+        return treeMaker.at(pos);
+    }
+
+    Name name(String name) {
+        return names.fromString(name);
+    }
+
+    /**
+     * @param name qualified name, e.g. {@code java.lang.StringBuilder}
+     */
+    JCTree.JCExpression qualifiedName(int pos, String name) {
+        String[] parts = name.split("\\.");
+        JCTree.JCExpression expr = treeMaker.at(pos).Ident(name(parts[0]));
+        for (int i = 1; i < parts.length; i++) expr = treeMaker.at(pos).Select(expr, name(parts[i]));
+        return expr;
+    }
+
+    JCTree.JCLiteral literal(int pos, Object value) {
+        return treeMaker.at(pos).Literal(value);
+    }
+
+    JCTree.JCLiteral nullLiteral(int pos) {
+        return treeMaker.at(pos).Literal(TypeTag.BOT, null);
+    }
+
+    /*
+     * receiver.method(args)
+     */
+    JCTree.JCMethodInvocation call(int pos, JCTree.JCExpression receiver, String method, JCTree.JCExpression... args) {
+        return treeMaker.at(pos).Apply(List.nil(), treeMaker.at(pos).Select(receiver, name(method)), List.from(args));
+    }
+
+    JCTree.JCMethodInvocation call(int pos, JCTree.JCExpression receiver, String method, Iterable<JCTree.JCExpression> args) {
+        return treeMaker.at(pos).Apply(List.nil(), treeMaker.at(pos).Select(receiver, name(method)), list(args));
+    }
+
+    /*
+     * className.method(args)
+     */
+    JCTree.JCMethodInvocation staticCall(int pos, String className, String method, JCTree.JCExpression... args) {
+        return call(pos, qualifiedName(pos, className), method, args);
+    }
+
+    /*
+     * new className(args)
+     */
+    JCTree.JCNewClass newClass(int pos, String className, JCTree.JCExpression... args) {
+        return treeMaker.at(pos).NewClass(null, List.nil(), qualifiedName(pos, className), List.from(args), null);
+    }
+
+    /*
+     * new elementType[]{elements}
+     */
+    JCTree.JCNewArray newArray(int pos, String elementType, Iterable<JCTree.JCExpression> elements) {
+        return treeMaker.at(pos).NewArray(qualifiedName(pos, elementType), List.nil(), list(elements));
+    }
+
+    /*
+     * new java.lang.StringBuilder(capacity)
+     */
+    JCTree.JCNewClass newStringBuilder(int pos, int capacity) {
+        return newClass(pos, "java.lang.StringBuilder", literal(pos, capacity));
+    }
+
+    /*
+     * static final type name = init;
+     */
+    JCTree.JCVariableDecl constant(int pos, Name name, JCTree.JCExpression type, JCTree.JCExpression init) {
+        return treeMaker.at(pos).VarDef(treeMaker.Modifiers(Flags.STATIC | Flags.FINAL), name, type, init);
+    }
+
+    /*
+     * private static final class name {}
+     */
+    JCTree.JCClassDecl privateStaticClass(int pos, Name name) {
+        return treeMaker.at(pos).ClassDef(treeMaker.Modifiers(Flags.PRIVATE | Flags.STATIC | Flags.FINAL), name,
+                List.nil(), null, List.nil(), List.nil());
+    }
+
+    JCTree.JCBlock block(int pos, JCTree.JCStatement... statements) {
+        return treeMaker.at(pos).Block(0, List.from(statements));
+    }
+
+    /*
+     * try { body } finally { finalizer }
+     */
+    JCTree.JCTry tryFinally(int pos, JCTree.JCBlock body, JCTree.JCBlock finalizer) {
+        return treeMaker.at(pos).Try(body, List.nil(), finalizer);
+    }
+
+    private static <T> List<T> list(Iterable<T> elements) {
+        ListBuffer<T> buffer = new ListBuffer<>();
+        for (T element : elements) buffer.append(element);
+        return buffer.toList();
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator.ast;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PrimitiveIterator;
+
+import com.github.gg_a.interpolator.token.StringToken;
+import com.sun.tools.javac.code.TypeTag;
+import com.sun.tools.javac.tree.JCTree;
+
+import static com.github.gg_a.interpolator.ast.ChunkedChains.MAX_CHAIN_LENGTH;
+import static com.github.gg_a.interpolator.ast.ExpressionParser.unwrapValueOf;
+import static com.github.gg_a.interpolator.token.TokenType.EXPRESSION;
+import static com.github.gg_a.interpolator.token.TokenType.STRING_LITERAL;
+
+/**
+ * {@code Interpolate.utf8([target, ]"a ${x}")}: the values are encoded into the output directly, the constant
+ * parts are encoded at compile time into the fields of {@link #UTF8_CONSTANTS}.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+final class Utf8Intrinsic {
+
+    /**
+     * class nested in the top level class which holds the UTF-8 constants
+     */
+    private static final String UTF8_CONSTANTS = "$InterpolatorUtf8";
+    private static final String UTF8 = "com.github.gg_a.interpolator.runtime.Utf8";
+
+    private final TreeFactory trees;
+    private final HolderClasses holders;
+    private final ChunkedChains chains;
+
+    Utf8Intrinsic(TreeFactory trees, HolderClasses holders, ChunkedChains chains) {
+        this.trees = trees;
+        this.holders = holders;
+        this.chains = chains;
+    }
+
+    /*
+     * Utf8.toByteArray(Utf8.put(Utf8.putEncoded(Utf8.sink(capacity), $InterpolatorUtf8._0), x)) or
+     * Utf8.finish(Utf8.put(Utf8.putEncoded(Utf8.sink(target, capacity), $InterpolatorUtf8._0), x))
+     *
+     * The calls are nested arguments, see ChunkedChains: long literals put chunks built in StringBuilders instead,
+     * Utf8.toByteArray(Utf8.put(Utf8.sink(capacity), new StringBuilder(capacity).append("a ").append(x)...)...).
+     *
+     * @param target {@code null} for a byte[]
+     */
+    JCTree.JCExpression utf8(int pos, JCTree.JCExpression target, JCTree.JCLiteral template,
+                             List<StringToken> tokens, List<JCTree.JCExpression> operands) {
+        int capacity = 0;
+        for (StringToken st : tokens) {
+            capacity += st.getType() == EXPRESSION
+                    ? InterpolatorTranslator.ESTIMATED_VALUE_LENGTH
+                    : st.getValue().getBytes(StandardCharsets.UTF_8).length;
+        }
+
+        if (tokens.size() > MAX_CHAIN_LENGTH) return chunkedUtf8(pos, target, template, tokens, operands, capacity);
+
+        // the sink and every put are arguments
+        int[] argumentPositions = ChunkedChains.argumentPositions(template, tokens, tokens.size() + 1);
+        JCTree.JCExpression expr = sink(argumentPositions[0], target, capacity);
+        for (int i = 0; i < tokens.size(); i++) {
+            StringToken st = tokens.get(i);
+            int callPos = argumentPositions[i + 1];
+            JCTree.JCExpression constant = st.getType() == STRING_LITERAL ? utf8Constant(callPos, st.getValue()) : null;
+            expr = constant != null
+                    ? trees.staticCall(callPos, UTF8, "putEncoded", expr, constant)
+                    : trees.staticCall(callPos, UTF8, "put", expr, unwrapValueOf(st, operands.get(i)));
+        }
+        return trees.staticCall(pos, UTF8, target == null ? "toByteArray" : "finish", expr);
+    }
+
+    private JCTree.JCExpression chunkedUtf8(int pos, JCTree.JCExpression target, JCTree.JCLiteral template,
+                                            List<StringToken> tokens, List<JCTree.JCExpression> operands, int capacity) {
+        // the sink, the chunks, groups and every put are arguments
+        int[] argumentPositions = ChunkedChains.argumentPositions(template, tokens,
+                ChunkedChains.chunkArgumentCount(tokens.size()) + 2 * ChunkedChains.CHUNK_SIZE + 1);
+        PrimitiveIterator.OfInt positions = Arrays.stream(argumentPositions).filter(p -> p != pos).iterator();
+        JCTree.JCExpression expr = sink(positions.nextInt(), target, capacity);
+        for (JCTree.JCExpression group : chains.builderGroups(pos, tokens, operands, positions)) {
+            expr = trees.staticCall(positions.nextInt(), UTF8, "put", expr, group);
+        }
+        return trees.staticCall(pos, UTF8, target == null ? "toByteArray" : "finish", expr);
+    }
+
+    private JCTree.JCExpression sink(int pos, JCTree.JCExpression target, int capacity) {
+        JCTree.JCExpression literal = trees.literal(pos, capacity);
+        return target == null ? trees.staticCall(pos, UTF8, "sink", literal) : trees.staticCall(pos, UTF8, "sink", target, literal);
+    }
+
+    /**
+     * {@code $InterpolatorUtf8._n}, a field {@code static final byte[] _n = "value".getBytes(UTF_8)}, equal values share a field.
+     *
+     * @return {@code null} if the top level class is an interface
+     */
+    private JCTree.JCExpression utf8Constant(int pos, String value) {
+        JCTree.JCClassDecl holder = holders.holder(UTF8_CONSTANTS);
+        if (holder == null) return null;
+
+        for (JCTree def : holder.defs) {
+            JCTree.JCVariableDecl field = (JCTree.JCVariableDecl) def;
+            JCTree.JCFieldAccess getBytes = (JCTree.JCFieldAccess) ((JCTree.JCMethodInvocation) field.init).getMethodSelect();
+            if (value.equals(((JCTree.JCLiteral) getBytes.getExpression()).getValue())) return holders.field(holder, pos, field.name);
+        }
+        int fieldPos = holder.pos;
+        JCTree.JCExpression init = trees.call(fieldPos, trees.literal(fieldPos, value), "getBytes",
+                trees.qualifiedName(fieldPos, "java.nio.charset.StandardCharsets.UTF_8"));
+        return holders.addConstant(holder, pos, trees.at(fieldPos).TypeArray(trees.at(fieldPos).TypeIdent(TypeTag.BYTE)), init);
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator.metrics;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of one interpolated string literal, generated with the processor option {@code -Ainterpolator.metrics}:
+ * <pre>
+ * private static final class $InterpolatorMetrics {
+ *     static final CallSiteMetrics _0 = CallSiteMetrics.register("com.example.OrderService", 42, "order ${id} of ${user}");
+ * }
+ * ... $InterpolatorMetrics._0.record("order " + String.valueOf(id) + " of " + String.valueOf(user)) ...
+ * </pre>
+ * Counts and lengths are {@link LongAdder}s, so threads do not contend on them; the max length is only written
+ * when it grows. Without the option nothing is generated.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+public final class CallSiteMetrics {
+
+    private static final AtomicIntegerFieldUpdater<CallSiteMetrics> MAX_LENGTH =
+            AtomicIntegerFieldUpdater.newUpdater(CallSiteMetrics.class, "maxLength");
+
+    private final String className;
+    private final int line;
+    private final String template;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalLength = new LongAdder();
+    private volatile int maxLength;
+
+    private CallSiteMetrics(String className, int line, String template) {
+        this.className = className;
+        this.line = line;
+        this.template = template;
+    }
+
+    /**
+     * Creates the counters of a call site and adds them to {@link InterpolatorMetrics}.
+     */
+    public static CallSiteMetrics register(String className, int line, String template) {
+        CallSiteMetrics metrics = new CallSiteMetrics(className, line, template);
+        InterpolatorMetrics.register(metrics);
+        return metrics;
+    }
+
+    /**
+     * @return {@code s}
+     */
+    public String record(String s) {
+        int length = s.length();
+        count.increment();
+        totalLength.add(length);
+        int max;
+        while (length > (max = maxLength) && !MAX_LENGTH.compareAndSet(this, max, length)) {
+            // retry, another thread recorded a longer string
+        }
+        return s;
+    }
+
+    public CallSiteSnapshot snapshot() {
+        return new CallSiteSnapshot(className, line, template, count.sum(), totalLength.sum(), maxLength);
+    }
+
+    void reset() {
+        count.reset();
+        totalLength.reset();
+        maxLength = 0;
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator.metrics;
+
+/**
+ * Counters of an interpolated string literal at one point in time, see {@link InterpolatorMetrics#snapshot()}.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+public final class CallSiteSnapshot {
+
+    private final String className;
+    private final int line;
+    private final String template;
+    private final long count;
+    private final long totalLength;
+    private final int maxLength;
+
+    public CallSiteSnapshot(String className, int line, String template, long count, long totalLength, int maxLength) {
+        this.className = className;
+        this.line = line;
+        this.template = template;
+        this.count = count;
+        this.totalLength = totalLength;
+        this.maxLength = maxLength;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    /**
+     * @return the string literal with its ${}
+     */
+    public String getTemplate() {
+        return template;
+    }
+
+    /**
+     * @return number of strings created
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return sum of the lengths of the strings, in chars
+     */
+    public long getTotalLength() {
+        return totalLength;
+    }
+
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    public double getAverageLength() {
+        return count == 0 ? 0 : (double) totalLength / count;
+    }
+
+    @Override
+    public String toString() {
+        return className + ":" + line + " count=" + count + ", totalLength=" + totalLength + ", maxLength=" + maxLength
+                + ", template=" + template;
+    }
+}
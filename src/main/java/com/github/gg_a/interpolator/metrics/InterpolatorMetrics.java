@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+import javax.management.ObjectName;
+
+import com.github.gg_a.interpolator.runtime.StringMemo;
+
+/**
+ * Registry of the {@link CallSiteMetrics} of the loaded classes, compiled with {@code -Ainterpolator.metrics},
+ * and of the caches of {@code @StringInterpolator(memoize = ...)}:
+ * <pre>
+ * for (CallSiteSnapshot site : InterpolatorMetrics.snapshot()) System.out.println(site);
+ * for (MemoSnapshot memo : InterpolatorMetrics.memoSnapshot()) System.out.println(memo);
+ * </pre>
+ * The registry is also an MXBean, registered in the platform MBean server as {@value #OBJECT_NAME} when the first
+ * call site is registered (not on platforms without JMX). Call sites are registered when their class uses one
+ * for the first time. The registry holds them weakly, so it does not keep unloaded classes (e.g. of a redeployed
+ * web application) and their caches in memory.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+public final class InterpolatorMetrics implements InterpolatorMetricsMXBean {
+
+    public static final String OBJECT_NAME = "com.github.gg_a.interpolator:type=InterpolatorMetrics";
+
+    private static final Queue<WeakReference<CallSiteMetrics>> CALL_SITES = new ConcurrentLinkedQueue<>();
+    private static final Queue<WeakReference<StringMemo>> MEMOS = new ConcurrentLinkedQueue<>();
+    private static final InterpolatorMetrics INSTANCE = new InterpolatorMetrics();
+    private static volatile boolean registered;
+
+    private InterpolatorMetrics() {
+    }
+
+    public static InterpolatorMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    static void register(CallSiteMetrics metrics) {
+        CALL_SITES.add(new WeakReference<>(metrics));
+        if (!registered) registerMXBean();
+    }
+
+    /**
+     * Called by the constructor of {@link StringMemo}.
+     */
+    public static void register(StringMemo memo) {
+        MEMOS.add(new WeakReference<>(memo));
+        if (!registered) registerMXBean();
+    }
+
+    private static synchronized void registerMXBean() {
+        if (registered) return;
+        registered = true;
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+        } catch (Exception | LinkageError e) {
+            // already registered by another class loader, or no JMX: snapshot() still works
+        }
+    }
+
+    /**
+     * @return call sites, the most called first
+     */
+    public static List<CallSiteSnapshot> snapshot() {
+        List<CallSiteSnapshot> snapshots = new ArrayList<>();
+        forEach(CALL_SITES, metrics -> snapshots.add(metrics.snapshot()));
+        snapshots.sort(Comparator.comparingLong(CallSiteSnapshot::getCount).reversed());
+        return snapshots;
+    }
+
+    /**
+     * @return caches of memoized literals, the most used first
+     */
+    public static List<MemoSnapshot> memoSnapshot() {
+        List<MemoSnapshot> snapshots = new ArrayList<>();
+        forEach(MEMOS, memo -> snapshots.add(memo.snapshot()));
+        snapshots.sort(Comparator.comparingLong((MemoSnapshot m) -> m.getHits() + m.getMisses() + m.getBypassed()).reversed());
+        return snapshots;
+    }
+
+    /**
+     * Calls the action with each registered object which is still reachable, and removes the others.
+     */
+    private static <T> void forEach(Queue<WeakReference<T>> registry, Consumer<T> action) {
+        for (Iterator<WeakReference<T>> it = registry.iterator(); it.hasNext(); ) {
+            T registered = it.next().get();
+            if (registered == null) it.remove();
+            else action.accept(registered);
+        }
+    }
+
+    @Override
+    public int getCallSiteCount() {
+        int[] count = {0};
+        forEach(CALL_SITES, metrics -> count[0]++);
+        return count[0];
+    }
+
+    @Override
+    public List<CallSiteSnapshot> getCallSites() {
+        return snapshot();
+    }
+
+    @Override
+    public List<CallSiteSnapshot> getLargestCallSites(int limit) {
+        List<CallSiteSnapshot> snapshots = snapshot();
+        snapshots.sort(Comparator.comparingLong(CallSiteSnapshot::getTotalLength).reversed());
+        return snapshots.subList(0, Math.min(Math.max(limit, 0), snapshots.size()));
+    }
+
+    @Override
+    public List<MemoSnapshot> getMemos() {
+        return memoSnapshot();
+    }
+
+    /**
+     * Sets the counters of all call sites and caches to 0.
+     */
+    @Override
+    public void reset() {
+        forEach(CALL_SITES, CallSiteMetrics::reset);
+        forEach(MEMOS, StringMemo::reset);
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator.metrics;
+
+import java.util.List;
+
+/**
+ * JMX view of {@link InterpolatorMetrics}, registered as {@value InterpolatorMetrics#OBJECT_NAME}.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+public interface InterpolatorMetricsMXBean {
+
+    int getCallSiteCount();
+
+    /**
+     * @return call sites, the most called first
+     */
+    List<CallSiteSnapshot> getCallSites();
+
+    /**
+     * @return call sites which created the most chars, at most {@code limit}
+     */
+    List<CallSiteSnapshot> getLargestCallSites(int limit);
+
+    /**
+     * @return caches of {@code @StringInterpolator(memoize = ...)}, the most used first
+     */
+    List<MemoSnapshot> getMemos();
+
+    void reset();
+}
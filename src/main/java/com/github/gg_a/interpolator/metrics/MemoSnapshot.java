@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator.metrics;
+
+/**
+ * Counters of the cache of a literal with {@code @StringInterpolator(memoize = ...)} at one point in time,
+ * see {@link InterpolatorMetrics#memoSnapshot()}.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+public final class MemoSnapshot {
+
+    private final String className;
+    private final int line;
+    private final String template;
+    private final int capacity;
+    private final int size;
+    private final long hits;
+    private final long misses;
+    private final long bypassed;
+    private final boolean bypassing;
+
+    public MemoSnapshot(String className, int line, String template, int capacity, int size, long hits, long misses,
+                        long bypassed, boolean bypassing) {
+        this.className = className;
+        this.line = line;
+        this.template = template;
+        this.capacity = capacity;
+        this.size = size;
+        this.hits = hits;
+        this.misses = misses;
+        this.bypassed = bypassed;
+        this.bypassing = bypassing;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    /**
+     * @return the string literal with its ${}
+     */
+    public String getTemplate() {
+        return template;
+    }
+
+    /**
+     * @return max number of cached strings
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return number of cached strings
+     */
+    public int getSize() {
+        return size;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return lookups which created a string and cached it
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return strings created without looking them up, because the hit rate was too low
+     */
+    public long getBypassed() {
+        return bypassed;
+    }
+
+    /**
+     * @return whether the cache is bypassed now
+     */
+    public boolean isBypassing() {
+        return bypassing;
+    }
+
+    /**
+     * @return hits / lookups, 0 without lookups
+     */
+    public double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return className + ":" + line + " hits=" + hits + ", misses=" + misses + ", bypassed=" + bypassed
+                + ", size=" + size + "/" + capacity + (bypassing ? " (bypassing)" : "") + ", template=" + template;
+    }
+}
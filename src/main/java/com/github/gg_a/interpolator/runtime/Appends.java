@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator.runtime;
+
+import java.io.IOException;
+
+/**
+ * Runtime support of {@code Interpolate.into(target, "...")}: the literal is rewritten to nested
+ * {@code append} calls on the target, e.g. {@code Appends.append(Appends.append(target, "id: "), id)}. <br>
+ * javac chooses the overload by the types of the target and the value, so {@link StringBuilder} and
+ * {@link StringBuffer} targets append primitives without converting them to a {@code String} first.
+ * The output is the same as {@code String.valueOf} of the value.
+ * <p>
+ * The methods are deliberately not generic: javac infers nested generic calls in exponential time.
+ * <p>
+ * Not part of the API, methods are only called by generated code.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+public final class Appends {
+
+    private Appends() {
+    }
+
+    // ---------------------------------------------------------------- StringBuilder
+
+    public static StringBuilder append(StringBuilder sb, String s) {
+        return sb.append(s);
+    }
+
+    public static StringBuilder append(StringBuilder sb, CharSequence s) {
+        return sb.append(s);
+    }
+
+    public static StringBuilder append(StringBuilder sb, char[] s) {
+        return sb.append(s);
+    }
+
+    public static StringBuilder append(StringBuilder sb, Object obj) {
+        return sb.append(obj);
+    }
+
+    public static StringBuilder append(StringBuilder sb, boolean b) {
+        return sb.append(b);
+    }
+
+    public static StringBuilder append(StringBuilder sb, char c) {
+        return sb.append(c);
+    }
+
+    public static StringBuilder append(StringBuilder sb, int i) {
+        return sb.append(i);
+    }
+
+    public static StringBuilder append(StringBuilder sb, long l) {
+        return sb.append(l);
+    }
+
+    public static StringBuilder append(StringBuilder sb, float f) {
+        return sb.append(f);
+    }
+
+    public static StringBuilder append(StringBuilder sb, double d) {
+        return sb.append(d);
+    }
+
+    // ---------------------------------------------------------------- StringBuffer
+
+    public static StringBuffer append(StringBuffer sb, String s) {
+        return sb.append(s);
+    }
+
+    public static StringBuffer append(StringBuffer sb, CharSequence s) {
+        return sb.append(s);
+    }
+
+    public static StringBuffer append(StringBuffer sb, char[] s) {
+        return sb.append(s);
+    }
+
+    public static StringBuffer append(StringBuffer sb, Object obj) {
+        return sb.append(obj);
+    }
+
+    public static StringBuffer append(StringBuffer sb, boolean b) {
+        return sb.append(b);
+    }
+
+    public static StringBuffer append(StringBuffer sb, char c) {
+        return sb.append(c);
+    }
+
+    public static StringBuffer append(StringBuffer sb, int i) {
+        return sb.append(i);
+    }
+
+    public static StringBuffer append(StringBuffer sb, long l) {
+        return sb.append(l);
+    }
+
+    public static StringBuffer append(StringBuffer sb, float f) {
+        return sb.append(f);
+    }
+
+    public static StringBuffer append(StringBuffer sb, double d) {
+        return sb.append(d);
+    }
+
+    // ---------------------------------------------------------------- Appendable, e.g. Writer, PrintStream, CharBuffer
+
+    public static Appendable append(Appendable a, CharSequence s) throws IOException {
+        a.append(s);
+        return a;
+    }
+
+    public static Appendable append(Appendable a, char c) throws IOException {
+        a.append(c);
+        return a;
+    }
+
+    public static Appendable append(Appendable a, Object obj) throws IOException {
+        a.append(String.valueOf(obj));
+        return a;
+    }
+
+    public static Appendable append(Appendable a, char[] s) throws IOException {
+        a.append(String.valueOf(s));
+        return a;
+    }
+
+    public static Appendable append(Appendable a, boolean b) throws IOException {
+        a.append(String.valueOf(b));
+        return a;
+    }
+
+    public static Appendable append(Appendable a, int i) throws IOException {
+        a.append(String.valueOf(i));
+        return a;
+    }
+
+    public static Appendable append(Appendable a, long l) throws IOException {
+        a.append(String.valueOf(l));
+        return a;
+    }
+
+    public static Appendable append(Appendable a, float f) throws IOException {
+        a.append(String.valueOf(f));
+        return a;
+    }
+
+    public static Appendable append(Appendable a, double d) throws IOException {
+        a.append(String.valueOf(d));
+        return a;
+    }
+}
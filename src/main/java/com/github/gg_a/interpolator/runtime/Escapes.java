@@ -0,0 +1,309 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator.runtime;
+
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Runtime support of {@code @StringInterpolator(escape = ...)}: each value is escaped while it is appended, e.g.
+ * <pre>
+ * Escapes.json(new StringBuilder(24).append("{\"name\": \""), name).append("\"}").toString()
+ * </pre>
+ * javac chooses the overload by the type of the value: numbers and booleans cannot contain special chars
+ * and are appended directly, so are enums whose {@code toString()} is their name (not for URLs, names may
+ * contain {@code $}). Strings are scanned first and appended unchanged if nothing needs escaping.
+ * The output is the escaped {@code String.valueOf} of the value.
+ * <p>
+ * Not part of the API, methods are only called by generated code.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+public final class Escapes {
+
+    private static final int JSON = 0;
+    private static final int HTML = 1;
+    private static final int CSV = 2;
+    private static final int URL = 3;
+
+    /**
+     * special ASCII chars of each context
+     */
+    private static final boolean[][] SPECIAL = new boolean[4][128];
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    static {
+        for (char c = 0; c < 0x20; c++) SPECIAL[JSON][c] = true;
+        SPECIAL[JSON]['"'] = SPECIAL[JSON]['\\'] = true;
+        for (char c : "&<>\"'".toCharArray()) SPECIAL[HTML][c] = true;
+        for (char c : ",\"\r\n".toCharArray()) SPECIAL[CSV][c] = true;
+        for (char c = 0; c < 128; c++) {
+            SPECIAL[URL][c] = !(c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z' || c >= '0' && c <= '9' || "-._~".indexOf(c) >= 0);
+        }
+    }
+
+    private Escapes() {
+    }
+
+    // ---------------------------------------------------------------- JSON
+
+    public static StringBuilder json(StringBuilder sb, CharSequence s) {
+        return s == null ? sb.append("null") : escape(sb, s, JSON);
+    }
+
+    public static StringBuilder json(StringBuilder sb, Object obj) {
+        return escape(sb, String.valueOf(obj), JSON);
+    }
+
+    public static StringBuilder json(StringBuilder sb, char[] s) {
+        return escape(sb, CharBuffer.wrap(s), JSON);
+    }
+
+    public static StringBuilder json(StringBuilder sb, char c) {
+        return isSpecial(c, JSON) ? escape(sb, String.valueOf(c), JSON) : sb.append(c);
+    }
+
+    public static StringBuilder json(StringBuilder sb, Enum<?> e) {
+        return appendEnum(sb, e, JSON);
+    }
+
+    public static StringBuilder json(StringBuilder sb, boolean b) {
+        return sb.append(b);
+    }
+
+    public static StringBuilder json(StringBuilder sb, int i) {
+        return sb.append(i);
+    }
+
+    public static StringBuilder json(StringBuilder sb, long l) {
+        return sb.append(l);
+    }
+
+    public static StringBuilder json(StringBuilder sb, float f) {
+        return sb.append(f);
+    }
+
+    public static StringBuilder json(StringBuilder sb, double d) {
+        return sb.append(d);
+    }
+
+    // ---------------------------------------------------------------- HTML
+
+    public static StringBuilder html(StringBuilder sb, CharSequence s) {
+        return s == null ? sb.append("null") : escape(sb, s, HTML);
+    }
+
+    public static StringBuilder html(StringBuilder sb, Object obj) {
+        return escape(sb, String.valueOf(obj), HTML);
+    }
+
+    public static StringBuilder html(StringBuilder sb, char[] s) {
+        return escape(sb, CharBuffer.wrap(s), HTML);
+    }
+
+    public static StringBuilder html(StringBuilder sb, char c) {
+        return isSpecial(c, HTML) ? escape(sb, String.valueOf(c), HTML) : sb.append(c);
+    }
+
+    public static StringBuilder html(StringBuilder sb, Enum<?> e) {
+        return appendEnum(sb, e, HTML);
+    }
+
+    public static StringBuilder html(StringBuilder sb, boolean b) {
+        return sb.append(b);
+    }
+
+    public static StringBuilder html(StringBuilder sb, int i) {
+        return sb.append(i);
+    }
+
+    public static StringBuilder html(StringBuilder sb, long l) {
+        return sb.append(l);
+    }
+
+    public static StringBuilder html(StringBuilder sb, float f) {
+        return sb.append(f);
+    }
+
+    public static StringBuilder html(StringBuilder sb, double d) {
+        return sb.append(d);
+    }
+
+    // ---------------------------------------------------------------- CSV
+
+    public static StringBuilder csv(StringBuilder sb, CharSequence s) {
+        return s == null ? sb.append("null") : escape(sb, s, CSV);
+    }
+
+    public static StringBuilder csv(StringBuilder sb, Object obj) {
+        return escape(sb, String.valueOf(obj), CSV);
+    }
+
+    public static StringBuilder csv(StringBuilder sb, char[] s) {
+        return escape(sb, CharBuffer.wrap(s), CSV);
+    }
+
+    public static StringBuilder csv(StringBuilder sb, char c) {
+        return isSpecial(c, CSV) ? escape(sb, String.valueOf(c), CSV) : sb.append(c);
+    }
+
+    public static StringBuilder csv(StringBuilder sb, Enum<?> e) {
+        return appendEnum(sb, e, CSV);
+    }
+
+    public static StringBuilder csv(StringBuilder sb, boolean b) {
+        return sb.append(b);
+    }
+
+    public static StringBuilder csv(StringBuilder sb, int i) {
+        return sb.append(i);
+    }
+
+    public static StringBuilder csv(StringBuilder sb, long l) {
+        return sb.append(l);
+    }
+
+    public static StringBuilder csv(StringBuilder sb, float f) {
+        return sb.append(f);
+    }
+
+    public static StringBuilder csv(StringBuilder sb, double d) {
+        return sb.append(d);
+    }
+
+    // ---------------------------------------------------------------- URL
+
+    public static StringBuilder url(StringBuilder sb, CharSequence s) {
+        return s == null ? sb.append("null") : escape(sb, s, URL);
+    }
+
+    public static StringBuilder url(StringBuilder sb, Object obj) {
+        return escape(sb, String.valueOf(obj), URL);
+    }
+
+    public static StringBuilder url(StringBuilder sb, char[] s) {
+        return escape(sb, CharBuffer.wrap(s), URL);
+    }
+
+    public static StringBuilder url(StringBuilder sb, char c) {
+        return isSpecial(c, URL) ? escape(sb, String.valueOf(c), URL) : sb.append(c);
+    }
+
+    public static StringBuilder url(StringBuilder sb, Enum<?> e) {
+        return escape(sb, String.valueOf(e), URL);
+    }
+
+    public static StringBuilder url(StringBuilder sb, boolean b) {
+        return sb.append(b);
+    }
+
+    public static StringBuilder url(StringBuilder sb, int i) {
+        return sb.append(i);
+    }
+
+    public static StringBuilder url(StringBuilder sb, long l) {
+        return sb.append(l);
+    }
+
+    public static StringBuilder url(StringBuilder sb, float f) {
+        return sb.append(f);
+    }
+
+    public static StringBuilder url(StringBuilder sb, double d) {
+        return sb.append(d);
+    }
+
+    // ---------------------------------------------------------------- escaping
+
+    /**
+     * Escapes a constant value at compile time.
+     *
+     * @param context name of the context: JSON, HTML, CSV or URL
+     */
+    public static String escape(String s, String context) {
+        int c = context.equals("JSON") ? JSON : context.equals("HTML") ? HTML : context.equals("CSV") ? CSV : URL;
+        return escape(new StringBuilder(s.length() + 16), s, c).toString();
+    }
+
+    private static StringBuilder appendEnum(StringBuilder sb, Enum<?> e, int context) {
+        if (e == null) return sb.append("null");
+        String s = e.toString();
+        return s == e.name() ? sb.append(s) : escape(sb, s, context);   // identifiers have no special chars
+    }
+
+    private static boolean isSpecial(char c, int context) {
+        if (c < 128) return SPECIAL[context][c];
+        return context == URL || context == JSON && (c == '\u2028' || c == '\u2029');
+    }
+
+    private static StringBuilder escape(StringBuilder sb, CharSequence s, int context) {
+        int length = s.length();
+        int i = 0;
+        while (i < length && !isSpecial(s.charAt(i), context)) i++;
+        if (i == length) return sb.append(s);   // nothing to escape
+
+        if (context == CSV) {
+            sb.append('"');
+            for (int j = 0; j < length; j++) {
+                char c = s.charAt(j);
+                if (c == '"') sb.append('"');
+                sb.append(c);
+            }
+            return sb.append('"');
+        }
+
+        sb.append(s, 0, i);
+        for (; i < length; i++) {
+            char c = s.charAt(i);
+            if (!isSpecial(c, context)) {
+                sb.append(c);
+            } else if (context == JSON) {
+                switch (c) {
+                    case '"': sb.append("\\\""); break;
+                    case '\\': sb.append("\\\\"); break;
+                    case '\n': sb.append("\\n"); break;
+                    case '\r': sb.append("\\r"); break;
+                    case '\t': sb.append("\\t"); break;
+                    case '\b': sb.append("\\b"); break;
+                    case '\f': sb.append("\\f"); break;
+                    default:
+                        sb.append("\\u").append(HEX[c >> 12]).append(HEX[c >> 8 & 0xF]).append(HEX[c >> 4 & 0xF]).append(HEX[c & 0xF]);
+                }
+            } else if (context == HTML) {
+                switch (c) {
+                    case '&': sb.append("&amp;"); break;
+                    case '<': sb.append("&lt;"); break;
+                    case '>': sb.append("&gt;"); break;
+                    case '"': sb.append("&quot;"); break;
+                    default: sb.append("&#39;");
+                }
+            } else if (c < 128) {
+                percent(sb, c);
+            } else {
+                int end = i + 1;
+                if (Character.isHighSurrogate(c) && end < length && Character.isLowSurrogate(s.charAt(end))) end++;
+                for (byte b : s.subSequence(i, end).toString().getBytes(StandardCharsets.UTF_8)) percent(sb, b & 0xFF);
+                i = end - 1;
+            }
+        }
+        return sb;
+    }
+
+    private static void percent(StringBuilder sb, int b) {
+        sb.append('%').append(HEX[b >> 4]).append(HEX[b & 0xF]);
+    }
+}
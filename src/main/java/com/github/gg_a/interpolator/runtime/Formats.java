@@ -0,0 +1,512 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator.runtime;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.text.DecimalFormatSymbols;
+import java.util.Arrays;
+import java.util.Formattable;
+import java.util.IllegalFormatConversionException;
+import java.util.Locale;
+
+/**
+ * Runtime support of format specifiers in ${}, e.g. {@code ${price%.2f}} or {@code ${id%08d}}. <br>
+ * The processor parses the specifier at compile time and calls the method of the conversion
+ * with the parsed flags, width and precision, so nothing is parsed and no {@link java.util.Formatter}
+ * is created at runtime. The output is the same as {@link String#format(Locale, String, Object...)}. <br>
+ * {@link BigInteger}, {@link BigDecimal}, {@link Formattable} values and locales with other digits
+ * than {@code 0-9} fall back to {@code String.format}.
+ * <p>
+ * Not part of the API, methods are only called by generated code.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+public final class Formats {
+
+    /** {@code '-'} */
+    public static final int LEFT_JUSTIFY = 1;
+    /** {@code '#'} */
+    public static final int ALTERNATE = 1 << 1;
+    /** {@code '+'} */
+    public static final int PLUS = 1 << 2;
+    /** {@code ' '} */
+    public static final int LEADING_SPACE = 1 << 3;
+    /** {@code '0'} */
+    public static final int ZERO_PAD = 1 << 4;
+    /** {@code ','} */
+    public static final int GROUP = 1 << 5;
+    /** {@code '('} */
+    public static final int PARENTHESES = 1 << 6;
+    /** upper case conversion: {@code X, E, S} */
+    public static final int UPPERCASE = 1 << 7;
+    /** {@code Locale.getDefault(Locale.Category.FORMAT)} instead of {@code Locale.ROOT} */
+    public static final int DEFAULT_LOCALE = 1 << 8;
+
+    private static final String FLAG_CHARS = "-#+ 0,(";
+
+    /**
+     * decimal separator of the last default locale
+     */
+    private static volatile Symbols defaultSymbols;
+
+    private Formats() {
+    }
+
+    /**
+     * Parses the flags of a format specifier at compile time.
+     *
+     * @param flagChars flags of the specifier, e.g. {@code "-0"}
+     * @return flag bits, -1 if {@code flagChars} has other chars
+     */
+    public static int parseFlags(String flagChars) {
+        int flags = 0;
+        for (int i = 0; i < flagChars.length(); i++) {
+            int index = FLAG_CHARS.indexOf(flagChars.charAt(i));
+            if (index < 0) return -1;
+            flags |= 1 << index;
+        }
+        return flags;
+    }
+
+    // ---------------------------------------------------------------- %d
+
+    public static String d(long value, int flags, int width) {
+        Symbols symbols = symbols(flags);
+        if (symbols == null) return fallback('d', value, flags, width, -1);
+
+        boolean neg = value < 0;
+        StringBuilder sb = new StringBuilder(Math.max(width, 20));
+        leadingSign(sb, neg, flags);
+        String digits = Long.toString(value);
+        magnitude(sb, digits, neg ? 1 : 0, digits.length(), flags, adjustWidth(width, flags, neg), symbols);
+        trailingSign(sb, neg, flags);
+        return justify(sb, flags, width);
+    }
+
+    public static String d(Object value, int flags, int width) {
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte)
+            return d(((Number) value).longValue(), flags, width);
+        if (value == null) return justify("null", flags, width);
+        if (value instanceof BigInteger) return fallback('d', value, flags, width, -1);
+        throw new IllegalFormatConversionException('d', value.getClass());
+    }
+
+    public static String d(double value, int flags, int width) {
+        throw new IllegalFormatConversionException('d', Double.class);
+    }
+
+    public static String d(char value, int flags, int width) {
+        throw new IllegalFormatConversionException('d', Character.class);
+    }
+
+    public static String d(boolean value, int flags, int width) {
+        throw new IllegalFormatConversionException('d', Boolean.class);
+    }
+
+    // ---------------------------------------------------------------- %x %X
+
+    public static String x(byte value, int flags, int width) {
+        return radix(value & 0xFFL, 4, flags, width);
+    }
+
+    public static String x(short value, int flags, int width) {
+        return radix(value & 0xFFFFL, 4, flags, width);
+    }
+
+    public static String x(int value, int flags, int width) {
+        return radix(value & 0xFFFFFFFFL, 4, flags, width);
+    }
+
+    public static String x(long value, int flags, int width) {
+        return radix(value, 4, flags, width);
+    }
+
+    public static String x(Object value, int flags, int width) {
+        if (value instanceof Integer) return x((int) (Integer) value, flags, width);
+        if (value instanceof Long) return x((long) (Long) value, flags, width);
+        if (value instanceof Short) return x((short) (Short) value, flags, width);
+        if (value instanceof Byte) return x((byte) (Byte) value, flags, width);
+        if (value == null) return justify(upper("null", flags), flags, width);
+        if (value instanceof BigInteger) return fallback('x', value, flags, width, -1);
+        throw new IllegalFormatConversionException(conversion('x', flags), value.getClass());
+    }
+
+    public static String x(double value, int flags, int width) {
+        throw new IllegalFormatConversionException(conversion('x', flags), Double.class);
+    }
+
+    public static String x(char value, int flags, int width) {
+        throw new IllegalFormatConversionException(conversion('x', flags), Character.class);
+    }
+
+    public static String x(boolean value, int flags, int width) {
+        throw new IllegalFormatConversionException(conversion('x', flags), Boolean.class);
+    }
+
+    // ---------------------------------------------------------------- %o
+
+    public static String o(byte value, int flags, int width) {
+        return radix(value & 0xFFL, 3, flags, width);
+    }
+
+    public static String o(short value, int flags, int width) {
+        return radix(value & 0xFFFFL, 3, flags, width);
+    }
+
+    public static String o(int value, int flags, int width) {
+        return radix(value & 0xFFFFFFFFL, 3, flags, width);
+    }
+
+    public static String o(long value, int flags, int width) {
+        return radix(value, 3, flags, width);
+    }
+
+    public static String o(Object value, int flags, int width) {
+        if (value instanceof Integer) return o((int) (Integer) value, flags, width);
+        if (value instanceof Long) return o((long) (Long) value, flags, width);
+        if (value instanceof Short) return o((short) (Short) value, flags, width);
+        if (value instanceof Byte) return o((byte) (Byte) value, flags, width);
+        if (value == null) return justify("null", flags, width);
+        if (value instanceof BigInteger) return fallback('o', value, flags, width, -1);
+        throw new IllegalFormatConversionException('o', value.getClass());
+    }
+
+    public static String o(double value, int flags, int width) {
+        throw new IllegalFormatConversionException('o', Double.class);
+    }
+
+    public static String o(char value, int flags, int width) {
+        throw new IllegalFormatConversionException('o', Character.class);
+    }
+
+    public static String o(boolean value, int flags, int width) {
+        throw new IllegalFormatConversionException('o', Boolean.class);
+    }
+
+    // ---------------------------------------------------------------- %f
+
+    public static String f(double value, int flags, int width, int precision) {
+        return floating('f', value, flags, width, precision);
+    }
+
+    public static String f(Object value, int flags, int width, int precision) {
+        if (value instanceof Double || value instanceof Float) return f(((Number) value).doubleValue(), flags, width, precision);
+        if (value == null) return justify(truncate("null", precision), flags, width);
+        if (value instanceof BigDecimal) return fallback('f', value, flags, width, precision);
+        throw new IllegalFormatConversionException('f', value.getClass());
+    }
+
+    public static String f(long value, int flags, int width, int precision) {
+        throw new IllegalFormatConversionException('f', Long.class);
+    }
+
+    public static String f(char value, int flags, int width, int precision) {
+        throw new IllegalFormatConversionException('f', Character.class);
+    }
+
+    public static String f(boolean value, int flags, int width, int precision) {
+        throw new IllegalFormatConversionException('f', Boolean.class);
+    }
+
+    // ---------------------------------------------------------------- %e %E
+
+    public static String e(double value, int flags, int width, int precision) {
+        return floating('e', value, flags, width, precision);
+    }
+
+    public static String e(Object value, int flags, int width, int precision) {
+        if (value instanceof Double || value instanceof Float) return e(((Number) value).doubleValue(), flags, width, precision);
+        if (value == null) return justify(upper(truncate("null", precision), flags), flags, width);
+        if (value instanceof BigDecimal) return fallback('e', value, flags, width, precision);
+        throw new IllegalFormatConversionException(conversion('e', flags), value.getClass());
+    }
+
+    public static String e(long value, int flags, int width, int precision) {
+        throw new IllegalFormatConversionException(conversion('e', flags), Long.class);
+    }
+
+    public static String e(char value, int flags, int width, int precision) {
+        throw new IllegalFormatConversionException(conversion('e', flags), Character.class);
+    }
+
+    public static String e(boolean value, int flags, int width, int precision) {
+        throw new IllegalFormatConversionException(conversion('e', flags), Boolean.class);
+    }
+
+    // ---------------------------------------------------------------- %s %S
+
+    public static String s(Object value, int flags, int width, int precision) {
+        if (value instanceof Formattable) return fallback('s', value, flags, width, precision);
+        return justify(upper(truncate(String.valueOf(value), precision), flags), flags, width);
+    }
+
+    // ---------------------------------------------------------------- implementation
+
+    private static String radix(long value, int shift, int flags, int width) {
+        String digits = shift == 4 ? Long.toHexString(value) : Long.toOctalString(value);
+        StringBuilder sb = new StringBuilder(Math.max(width, 24));
+        int length = digits.length();
+        if ((flags & ALTERNATE) != 0) {
+            sb.append(shift == 4 ? ((flags & UPPERCASE) != 0 ? "0X" : "0x") : "0");
+            length += shift == 4 ? 2 : 1;
+        }
+        if ((flags & ZERO_PAD) != 0) {
+            for (int i = length; i < width; i++) sb.append('0');
+        }
+        sb.append((flags & UPPERCASE) != 0 ? digits.toUpperCase(Locale.ROOT) : digits);
+        return justify(sb, flags, width);
+    }
+
+    private static String floating(char conversion, double value, int flags, int width, int precision) {
+        Symbols symbols = symbols(flags);
+        if (symbols == null) return fallback(conversion, value, flags, width, precision);
+
+        StringBuilder sb = new StringBuilder(Math.max(width, 24));
+        if (Double.isNaN(value)) {
+            sb.append((flags & UPPERCASE) != 0 ? "NAN" : "NaN");
+            return justify(sb, flags, width);
+        }
+
+        boolean neg = Double.compare(value, 0.0) < 0;
+        double v = Math.abs(value);
+        leadingSign(sb, neg, flags);
+        if (Double.isInfinite(v)) {
+            sb.append((flags & UPPERCASE) != 0 ? "INFINITY" : "Infinity");
+        } else {
+            Decimal decimal = new Decimal(v);
+            int prec = precision == -1 ? 6 : precision;
+            boolean dot = prec > 0 || (flags & ALTERNATE) != 0;
+            if (conversion == 'f') {
+                String mantissa = decimal.fixed(prec, dot);
+                magnitude(sb, mantissa, 0, mantissa.length(), flags, adjustWidth(width, flags, neg), symbols);
+            } else {
+                String mantissa = decimal.scientific(prec, dot);
+                int exponent = v == 0.0 ? 0 : decimal.exponent;
+                String exp = Integer.toString(Math.abs(exponent));
+                int expLength = 1 + Math.max(exp.length(), 2);   // sign and at least 2 digits
+                magnitude(sb, mantissa, 0, mantissa.length(), flags & ~GROUP,
+                        width == -1 ? -1 : adjustWidth(width - expLength - 1, flags, neg), symbols);
+                sb.append((flags & UPPERCASE) != 0 ? 'E' : 'e').append(exponent < 0 ? '-' : '+');
+                if (exp.length() < 2) sb.append('0');
+                sb.append(exp);
+            }
+        }
+        trailingSign(sb, neg, flags);
+        return justify(sb, flags, width);
+    }
+
+    private static void leadingSign(StringBuilder sb, boolean neg, int flags) {
+        if (!neg) {
+            if ((flags & PLUS) != 0) sb.append('+');
+            else if ((flags & LEADING_SPACE) != 0) sb.append(' ');
+        } else {
+            sb.append((flags & PARENTHESES) != 0 ? '(' : '-');
+        }
+    }
+
+    private static void trailingSign(StringBuilder sb, boolean neg, int flags) {
+        if (neg && (flags & PARENTHESES) != 0) sb.append(')');
+    }
+
+    private static int adjustWidth(int width, int flags, boolean neg) {
+        return width != -1 && neg && (flags & PARENTHESES) != 0 ? width - 1 : width;
+    }
+
+    /**
+     * Appends the digits of {@code value[begin, end)} with the decimal separator, grouping separators
+     * and zero padding of {@code symbols}, same as {@code Formatter.localizedMagnitude}.
+     */
+    private static void magnitude(StringBuilder sb, String value, int begin, int end, int flags, int width, Symbols symbols) {
+        int start = sb.length();
+        int dot = value.indexOf('.', begin);
+        if (dot < 0) dot = end;
+        boolean group = (flags & GROUP) != 0;
+        for (int i = begin; i < end; i++) {
+            if (i == dot) {
+                sb.append(symbols.decimalSeparator);
+                group = false;
+                continue;
+            }
+            sb.append(value.charAt(i));
+            if (group && i != dot - 1 && (dot - i) % 3 == 1) sb.append(',');
+        }
+        if (width != -1 && (flags & ZERO_PAD) != 0) {
+            int zeros = width - sb.length();
+            if (zeros > 0) {
+                char[] padding = new char[zeros];
+                Arrays.fill(padding, '0');
+                sb.insert(start, padding);
+            }
+        }
+    }
+
+    private static String truncate(String s, int precision) {
+        return precision != -1 && precision < s.length() ? s.substring(0, precision) : s;
+    }
+
+    private static String upper(String s, int flags) {
+        if ((flags & UPPERCASE) == 0) return s;
+        return s.toUpperCase((flags & DEFAULT_LOCALE) != 0 ? Locale.getDefault(Locale.Category.FORMAT) : Locale.ROOT);
+    }
+
+    private static String justify(CharSequence cs, int flags, int width) {
+        int padding = width - cs.length();
+        if (padding <= 0) return cs.toString();
+
+        StringBuilder sb = new StringBuilder(width);
+        if ((flags & LEFT_JUSTIFY) != 0) sb.append(cs);
+        for (int i = 0; i < padding; i++) sb.append(' ');
+        if ((flags & LEFT_JUSTIFY) == 0) sb.append(cs);
+        return sb.toString();
+    }
+
+    private static char conversion(char conversion, int flags) {
+        return (flags & UPPERCASE) != 0 ? Character.toUpperCase(conversion) : conversion;
+    }
+
+    /**
+     * @return symbols of the locale, {@code null} if the fast path does not support the locale
+     */
+    private static Symbols symbols(int flags) {
+        if ((flags & DEFAULT_LOCALE) == 0) return Symbols.ROOT;
+
+        Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+        Symbols symbols = defaultSymbols;
+        if (symbols == null || !symbols.locale.equals(locale)) {
+            defaultSymbols = symbols = new Symbols(locale, DecimalFormatSymbols.getInstance(locale));
+        }
+        // grouping size and separator of other locales are not supported
+        if (!symbols.asciiDigits || (flags & GROUP) != 0 && !symbols.rootGrouping) return null;
+        return symbols;
+    }
+
+    private static String fallback(char conversion, Object value, int flags, int width, int precision) {
+        StringBuilder pattern = new StringBuilder("%");
+        for (int i = 0; i < FLAG_CHARS.length(); i++) {
+            if ((flags & 1 << i) != 0) pattern.append(FLAG_CHARS.charAt(i));
+        }
+        if (width != -1) pattern.append(width);
+        if (precision != -1) pattern.append('.').append(precision);
+        pattern.append(conversion(conversion, flags));
+        Locale locale = (flags & DEFAULT_LOCALE) != 0 ? Locale.getDefault(Locale.Category.FORMAT) : Locale.ROOT;
+        return String.format(locale, pattern.toString(), value);
+    }
+
+    private static final class Symbols {
+        static final Symbols ROOT = new Symbols(Locale.ROOT, DecimalFormatSymbols.getInstance(Locale.ROOT));
+
+        final Locale locale;
+        final boolean asciiDigits;
+        final boolean rootGrouping;
+        final char decimalSeparator;
+
+        Symbols(Locale locale, DecimalFormatSymbols symbols) {
+            this.locale = locale;
+            this.asciiDigits = symbols.getZeroDigit() == '0';
+            this.rootGrouping = locale.equals(Locale.ROOT);
+            this.decimalSeparator = symbols.getDecimalSeparator();
+        }
+    }
+
+    /**
+     * Shortest decimal digits of a finite, non-negative double ({@link Double#toString(double)}),
+     * rounded {@code HALF_UP} like {@code Formatter}.
+     */
+    private static final class Decimal {
+        /** significant digits, without leading and trailing zeros, empty for 0 */
+        char[] digits;
+        int length;
+        /** number of digits before the decimal point, may be negative */
+        int pointPos;
+        /** decimal exponent of the first digit */
+        int exponent;
+
+        Decimal(double v) {
+            String s = Double.toString(v);
+            int e = s.indexOf('E');
+            int end = e < 0 ? s.length() : e;
+            int exp = e < 0 ? 0 : Integer.parseInt(s.substring(e + 1));
+            digits = new char[end + 1];   // + 1 for the carry of rounding
+            int dot = -1;
+            for (int i = 0; i < end; i++) {
+                char c = s.charAt(i);
+                if (c == '.') {
+                    dot = length;
+                    continue;
+                }
+                if (length == 0 && c == '0') {   // leading zero
+                    if (dot < 0) continue;
+                    exp--;
+                    continue;
+                }
+                digits[length++] = c;
+            }
+            if (dot < 0) dot = length;
+            while (length > 0 && digits[length - 1] == '0') length--;
+            pointPos = length == 0 ? 1 : dot + exp;
+            exponent = pointPos - 1;
+        }
+
+        /**
+         * round to {@code n} significant digits
+         */
+        private void round(int n) {
+            if (n >= length) return;
+            if (n < 0) {
+                length = 0;
+                return;
+            }
+            boolean up = digits[n] >= '5';
+            length = n;
+            if (!up) {
+                while (length > 0 && digits[length - 1] == '0') length--;
+                return;
+            }
+            int i = n - 1;
+            while (i >= 0 && digits[i] == '9') i--;
+            if (i < 0) {   // 999 -> 1000
+                digits[0] = '1';
+                length = 1;
+                pointPos++;
+                exponent++;
+            } else {
+                digits[i]++;
+                length = i + 1;
+            }
+        }
+
+        String fixed(int precision, boolean dot) {
+            round(pointPos + precision);
+            StringBuilder sb = new StringBuilder(Math.max(pointPos, 1) + precision + 1);
+            if (pointPos <= 0 || length == 0) sb.append('0');
+            else for (int i = 0; i < pointPos; i++) sb.append(i < length ? digits[i] : '0');
+            if (dot) sb.append('.');
+            for (int i = pointPos; i < pointPos + precision; i++) sb.append(i >= 0 && i < length ? digits[i] : '0');
+            return sb.toString();
+        }
+
+        String scientific(int precision, boolean dot) {
+            round(precision + 1);
+            StringBuilder sb = new StringBuilder(precision + 2);
+            sb.append(length == 0 ? '0' : digits[0]);
+            if (dot) sb.append('.');
+            for (int i = 1; i <= precision; i++) sb.append(i < length ? digits[i] : '0');
+            return sb.toString();
+        }
+    }
+}
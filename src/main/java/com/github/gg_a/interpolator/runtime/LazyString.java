@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator.runtime;
+
+/**
+ * Result of {@code Interpolate.lazy("...")}: keeps the literal parts and the values of
+ * the interpolations, the string is built by the first {@link #toString()} and cached.
+ * <p>
+ * Not part of the API, instances are only created by generated code.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+public final class LazyString implements CharSequence {
+
+    private final Object[] parts;
+    /**
+     * racy single-check like {@code String.hash}: at worst the string is built more than once
+     */
+    private String value;
+
+    /**
+     * @param parts literal parts and values, in order
+     */
+    public LazyString(Object[] parts) {
+        this.parts = parts;
+    }
+
+    @Override
+    public String toString() {
+        String s = value;
+        if (s == null) value = s = render();
+        return s;
+    }
+
+    /*
+     * same conversion as String.valueOf(x) of the eager interpolation
+     */
+    private String render() {
+        String[] strings = new String[parts.length];
+        int length = 0;
+        for (int i = 0; i < parts.length; i++) {
+            Object part = parts[i];
+            strings[i] = part instanceof char[] ? new String((char[]) part) : String.valueOf(part);
+            length += strings[i].length();
+        }
+        StringBuilder sb = new StringBuilder(length);
+        for (String s : strings) sb.append(s);
+        return sb.toString();
+    }
+
+    @Override
+    public int length() {
+        return toString().length();
+    }
+
+    @Override
+    public char charAt(int index) {
+        return toString().charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().subSequence(start, end);
+    }
+}
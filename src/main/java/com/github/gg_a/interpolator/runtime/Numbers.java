@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator.runtime;
+
+/**
+ * Runtime support of the processor option {@code -Ainterpolator.fastNumbers}: values are converted by
+ * {@code Numbers.toString(x)} instead of {@code String.valueOf(x)}, builders append them by
+ * {@code Numbers.append(sb, x)}, e.g.
+ * <pre>
+ * Numbers.append(new StringBuilder(24).append("height: "), height * 100).append(" cm").toString()
+ * </pre>
+ * javac chooses the overload by the type of the value. A {@code double} or {@code float} which is a decimal with
+ * at most 3 fraction digits between 0.001 and 10<sup>7</sup> (e.g. {@code 12.5}, {@code 0.25}, {@code 1080.0}) is
+ * written as digits, the other values are converted by the JDK.
+ * {@code StringBuilder.append(int)} and {@code append(long)} already write the digits into the builder.
+ * <p>
+ * The output is the same as {@code String.valueOf} on every Java version, it is not the shortest decimal which
+ * round trips (Ryu): {@code Double.toString} only returns it since Java 19, and not for every value.
+ * A decimal with at most 3 fraction digits is the only one in the rounding interval of the value in that range
+ * (it is narrower than 10<sup>-3</sup>), so every Java version prints it.
+ * <p>
+ * Not part of the API, methods are only called by generated code.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+public final class Numbers {
+
+    private static final int MAX_FRACTION_DIGITS = 3;
+    private static final double[] POWERS_OF_TEN = {1, 10, 100, 1000};
+    private static final float[] FLOAT_POWERS_OF_TEN = {1, 10, 100, 1000};
+    /**
+     * floats up to 2<sup>13</sup> are at most 2<sup>-11</sup> apart, larger ones are only written if they are integers
+     */
+    private static final float MAX_FLOAT_FRACTION = 8192;
+    /**
+     * {@code -9999999.999}
+     */
+    private static final int MAX_LENGTH = 12;
+
+    private Numbers() {
+    }
+
+    // ---------------------------------------------------------------- String.valueOf
+
+    public static String toString(Object obj) {
+        return String.valueOf(obj);
+    }
+
+    public static String toString(char[] s) {
+        return String.valueOf(s);
+    }
+
+    public static String toString(boolean b) {
+        return String.valueOf(b);
+    }
+
+    public static String toString(char c) {
+        return String.valueOf(c);
+    }
+
+    public static String toString(int i) {
+        return String.valueOf(i);
+    }
+
+    public static String toString(long l) {
+        return String.valueOf(l);
+    }
+
+    public static String toString(float f) {
+        long decimal = decimal(f);
+        if (decimal < 0) return String.valueOf(f);
+        char[] buf = new char[MAX_LENGTH];
+        int start = write(Float.floatToRawIntBits(f) < 0, decimal, buf);
+        return new String(buf, start, MAX_LENGTH - start);
+    }
+
+    public static String toString(double d) {
+        long decimal = decimal(d);
+        if (decimal < 0) return String.valueOf(d);
+        char[] buf = new char[MAX_LENGTH];
+        int start = write(Double.doubleToRawLongBits(d) < 0, decimal, buf);
+        return new String(buf, start, MAX_LENGTH - start);
+    }
+
+    // ---------------------------------------------------------------- StringBuilder
+
+    public static StringBuilder append(StringBuilder sb, String s) {
+        return sb.append(s);
+    }
+
+    public static StringBuilder append(StringBuilder sb, CharSequence s) {
+        return sb.append(s);
+    }
+
+    public static StringBuilder append(StringBuilder sb, char[] s) {
+        return sb.append(s);
+    }
+
+    public static StringBuilder append(StringBuilder sb, Object obj) {
+        return sb.append(obj);
+    }
+
+    public static StringBuilder append(StringBuilder sb, boolean b) {
+        return sb.append(b);
+    }
+
+    public static StringBuilder append(StringBuilder sb, char c) {
+        return sb.append(c);
+    }
+
+    public static StringBuilder append(StringBuilder sb, int i) {
+        return sb.append(i);
+    }
+
+    public static StringBuilder append(StringBuilder sb, long l) {
+        return sb.append(l);
+    }
+
+    public static StringBuilder append(StringBuilder sb, float f) {
+        long decimal = decimal(f);
+        return decimal < 0 ? sb.append(f) : append(sb, Float.floatToRawIntBits(f) < 0, decimal);
+    }
+
+    public static StringBuilder append(StringBuilder sb, double d) {
+        long decimal = decimal(d);
+        return decimal < 0 ? sb.append(d) : append(sb, Double.doubleToRawLongBits(d) < 0, decimal);
+    }
+
+    // ---------------------------------------------------------------- digits
+
+    /**
+     * @return {@code |d| * 10^k << 2 | k} for the smallest {@code k <= 3} which makes it an integer, or -1
+     */
+    private static long decimal(double d) {
+        double abs = Math.abs(d);
+        if (!(abs == 0 || abs >= 1e-3 && abs < 1e7)) return -1;   // also NaN
+        for (int k = 0; k <= MAX_FRACTION_DIGITS; k++) {
+            long unscaled = (long) Math.rint(abs * POWERS_OF_TEN[k]);
+            if (unscaled / POWERS_OF_TEN[k] == abs) return unscaled << 2 | k;   // exact division, rounded once
+        }
+        return -1;
+    }
+
+    private static long decimal(float f) {
+        float abs = Math.abs(f);
+        if (!(abs == 0 || abs >= 1e-3f && abs < 1e7f)) return -1;
+        int maxFractionDigits = abs < MAX_FLOAT_FRACTION ? MAX_FRACTION_DIGITS : 0;
+        for (int k = 0; k <= maxFractionDigits; k++) {
+            long unscaled = (long) Math.rint(abs * POWERS_OF_TEN[k]);   // exact in double
+            if (unscaled / FLOAT_POWERS_OF_TEN[k] == abs) return unscaled << 2 | k;
+        }
+        return -1;
+    }
+
+    private static StringBuilder append(StringBuilder sb, boolean negative, long decimal) {
+        int k = (int) (decimal & 3);
+        long unscaled = decimal >>> 2;
+        if (negative) sb.append('-');
+        sb.append(unscaled / (long) POWERS_OF_TEN[k]).append('.');
+        if (k == 0) return sb.append('0');
+        long fraction = unscaled % (long) POWERS_OF_TEN[k];
+        for (int i = k - 1; i >= 0; i--) sb.append((char) ('0' + fraction / (long) POWERS_OF_TEN[i] % 10));
+        return sb;
+    }
+
+    /**
+     * Writes the chars backwards, ending at the end of {@code buf}.
+     *
+     * @return index of the first char
+     */
+    private static int write(boolean negative, long decimal, char[] buf) {
+        int k = (int) (decimal & 3);
+        long n = decimal >>> 2;
+        int end = MAX_LENGTH;
+        if (k == 0) {
+            buf[--end] = '0';
+        } else {
+            for (int i = 0; i < k; i++, n /= 10) buf[--end] = (char) ('0' + n % 10);
+        }
+        buf[--end] = '.';
+        do {
+            buf[--end] = (char) ('0' + n % 10);
+            n /= 10;
+        } while (n != 0);
+        if (negative) buf[--end] = '-';
+        return end;
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator.runtime;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Runtime support of {@code ConcatStrategy.POOLED} and {@code ConcatStrategy.POOLED_STRIPED}: reusable
+ * {@link StringBuilder}s, e.g.
+ * <pre>
+ * PooledBuilders.release(PooledBuilders.acquire(24).append("a ").append(x).append(" b ").append(y))
+ * </pre>
+ * A builder is taken out of the pool by {@code acquire} and put back by {@code release}, so a nested
+ * interpolation (e.g. in a method called by {@code ${}}) gets another builder. A builder which is not released
+ * because of an exception is garbage collected. Builders whose capacity grew over
+ * {@value #DEFAULT_MAX_CAPACITY} chars (system property {@value #MAX_CAPACITY_PROPERTY}) are not put back.
+ * <ul>
+ *     <li>{@link #acquire(int)}: one builder per thread in a {@link ThreadLocal}. The pool grows with the number of
+ *     threads, which is unbounded with virtual threads.</li>
+ *     <li>{@link #acquireStriped(int)}: a fixed array of builders indexed by the thread id, which does not depend
+ *     on the number of threads. Threads with the same index share (and compete for) a slot.</li>
+ * </ul>
+ * <p>
+ * Not part of the API, methods are only called by generated code.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+public final class PooledBuilders {
+
+    public static final String MAX_CAPACITY_PROPERTY = "interpolator.pool.maxCapacity";
+    public static final int DEFAULT_MAX_CAPACITY = 8192;
+    private static final int MAX_CAPACITY = Integer.getInteger(MAX_CAPACITY_PROPERTY, DEFAULT_MAX_CAPACITY);
+
+    private static final ThreadLocal<Slot> LOCAL = new ThreadLocal<Slot>() {
+        @Override
+        protected Slot initialValue() {
+            return new Slot();
+        }
+    };
+
+    /**
+     * 2 * number of processors, rounded up to a power of 2
+     */
+    private static final int STRIPES = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)) << 1;
+    private static final AtomicReferenceArray<StringBuilder> STRIPED = new AtomicReferenceArray<>(STRIPES);
+
+    private PooledBuilders() {
+    }
+
+    /**
+     * a mutable holder, so the pool is updated without {@code ThreadLocal.set}
+     */
+    private static final class Slot {
+        private StringBuilder builder;
+    }
+
+    /**
+     * @param capacity estimated length of the string
+     * @return an empty builder of the current thread
+     */
+    public static StringBuilder acquire(int capacity) {
+        Slot slot = LOCAL.get();
+        StringBuilder sb = slot.builder;
+        if (sb == null) return new StringBuilder(capacity);
+        slot.builder = null;
+        sb.ensureCapacity(capacity);
+        return sb;
+    }
+
+    /**
+     * @return the string of {@code sb}
+     */
+    public static String release(StringBuilder sb) {
+        String s = sb.toString();
+        if (sb.capacity() <= MAX_CAPACITY) {
+            sb.setLength(0);
+            LOCAL.get().builder = sb;
+        }
+        return s;
+    }
+
+    /**
+     * @param capacity estimated length of the string
+     * @return an empty builder of the stripe of the current thread
+     */
+    public static StringBuilder acquireStriped(int capacity) {
+        StringBuilder sb = STRIPED.getAndSet(stripe(), null);
+        if (sb == null) return new StringBuilder(capacity);
+        sb.ensureCapacity(capacity);
+        return sb;
+    }
+
+    /**
+     * @return the string of {@code sb}
+     */
+    public static String releaseStriped(StringBuilder sb) {
+        String s = sb.toString();
+        if (sb.capacity() <= MAX_CAPACITY) {
+            sb.setLength(0);
+            STRIPED.lazySet(stripe(), sb);   // may replace the builder of another thread, which is garbage collected
+        }
+        return s;
+    }
+
+    @SuppressWarnings("deprecation")   // Thread.threadId() is Java 19+
+    private static int stripe() {
+        long id = Thread.currentThread().getId();
+        int h = (int) (id ^ id >>> 32) * 0x9E3779B9;
+        return (h ^ h >>> 16) & (STRIPES - 1);
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator.runtime;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.github.gg_a.interpolator.metrics.InterpolatorMetrics;
+import com.github.gg_a.interpolator.metrics.MemoSnapshot;
+
+/**
+ * Runtime support of {@code @StringInterpolator(memoize = capacity)}: the strings of a literal are cached by the
+ * values of its {@code ${}}, e.g. {@code "requests.${region}.${status}"} is rewritten to
+ * <pre>
+ * $InterpolatorMemo._0.get(StringMemo.key(region), StringMemo.key(status))
+ *
+ * private static final class $InterpolatorMemo {
+ *     static final StringMemo _0 = new StringMemo("com.example.Metrics", 42, "requests.${region}.${status}",
+ *             256, new String[]{"requests.", ".", ""}, null);
+ * }
+ * </pre>
+ * A hit returns the cached instance, nothing is concatenated. Strings, boxed primitives and {@code null} are keys
+ * themselves, other objects (which may be mutable) are converted to their {@code String} first, so a hit is
+ * always the string which would be concatenated now.
+ * <p>
+ * The cache is a table of {@code capacity} entries (rounded up to a power of two, at most 65536). Each key has
+ * 2 slots, a new key takes an empty one or replaces one of the entries, so there are no locks and no resizing.
+ * If less than a quarter of the lookups
+ * of a window are hits, the values have too many combinations for the cache: the literal is concatenated without
+ * the table for a while, then the table is tried again. The windows are counted without synchronization, so they
+ * are approximate. Hit rates are available from {@link InterpolatorMetrics}.
+ * <p>
+ * Not part of the API, methods are only called by generated code.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+public final class StringMemo {
+
+    /**
+     * lookups of a window
+     */
+    private static final int WINDOW = 1024;
+    /**
+     * calls without the table after a window with too few hits
+     */
+    private static final int BYPASS_CALLS = 64 * WINDOW;
+    private static final int MAX_CAPACITY = 1 << 16;
+
+    private final String className;
+    private final int line;
+    private final String template;
+    /**
+     * constant parts before each value, and after the last one
+     */
+    private final String[] fragments;
+    /**
+     * name of the {@code Escape} of the values, {@code null} for none
+     */
+    private final String escape;
+    private final AtomicReferenceArray<Entry> table;
+    private final int mask;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder bypassed = new LongAdder();
+    private int windowLookups;
+    private int windowHits;
+    private int bypassCalls;
+    private volatile boolean bypass;
+
+    private static final class Entry {
+        final Object[] keys;
+        final int hash;
+        final String value;
+
+        Entry(Object[] keys, int hash, String value) {
+            this.keys = keys;
+            this.hash = hash;
+            this.value = value;
+        }
+    }
+
+    public StringMemo(String className, int line, String template, int capacity, String[] fragments, String escape) {
+        this.className = className;
+        this.line = line;
+        this.template = template;
+        this.fragments = fragments;
+        this.escape = escape;
+        int size = 2;
+        while (size < capacity && size < MAX_CAPACITY) size <<= 1;
+        this.table = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        InterpolatorMetrics.register(this);
+    }
+
+    // ---------------------------------------------------------------- keys, the same overloads as String.valueOf
+
+    public static Object key(Object obj) {
+        return obj == null || obj instanceof String || obj instanceof Integer || obj instanceof Long
+                || obj instanceof Boolean || obj instanceof Character || obj instanceof Double || obj instanceof Float
+                || obj instanceof Short || obj instanceof Byte ? obj : obj.toString();
+    }
+
+    public static Object key(char[] s) {
+        return String.valueOf(s);
+    }
+
+    public static Object key(boolean b) {
+        return b;
+    }
+
+    public static Object key(char c) {
+        return c;
+    }
+
+    public static Object key(int i) {
+        return i;
+    }
+
+    public static Object key(long l) {
+        return l;
+    }
+
+    public static Object key(float f) {
+        return f;
+    }
+
+    public static Object key(double d) {
+        return d;
+    }
+
+    // ---------------------------------------------------------------- lookup
+
+    /**
+     * @param keys values of the literal converted by {@code key}
+     * @return the cached string of the values, or a new one
+     */
+    public String get(Object... keys) {
+        if (bypass) {
+            bypassed.increment();
+            if (++bypassCalls >= BYPASS_CALLS) {
+                bypassCalls = 0;
+                bypass = false;
+            }
+            return build(keys);
+        }
+
+        int hash = Arrays.hashCode(keys);
+        hash ^= hash >>> 16;
+        int index = hash & mask;
+        Entry first = table.get(index);
+        if (first != null && first.hash == hash && Arrays.equals(first.keys, keys)) return hit(first);
+        int other = index ^ 1;
+        Entry second = table.get(other);
+        if (second != null && second.hash == hash && Arrays.equals(second.keys, keys)) return hit(second);
+
+        String value = build(keys);
+        // an empty slot, or one chosen by the hash when both are taken
+        int slot = first == null ? index : second == null ? other : (hash >>> 31) == 0 ? index : other;
+        table.set(slot, new Entry(keys, hash, value));
+        misses.increment();
+        endOfWindow(false);
+        return value;
+    }
+
+    private String hit(Entry entry) {
+        hits.increment();
+        endOfWindow(true);
+        return entry.value;
+    }
+
+    private void endOfWindow(boolean hit) {
+        if (hit) windowHits++;
+        if (++windowLookups < WINDOW) return;
+        if (windowHits < WINDOW / 4) bypass = true;
+        windowLookups = windowHits = 0;
+    }
+
+    private String build(Object[] keys) {
+        int length = 0;
+        for (String fragment : fragments) length += fragment.length();
+        StringBuilder sb = new StringBuilder(length + 16 * keys.length).append(fragments[0]);
+        for (int i = 0; i < keys.length; i++) {
+            String value = String.valueOf(keys[i]);
+            sb.append(escape == null ? value : Escapes.escape(value, escape)).append(fragments[i + 1]);
+        }
+        return sb.toString();
+    }
+
+    // ---------------------------------------------------------------- statistics
+
+    public MemoSnapshot snapshot() {
+        int size = 0;
+        for (int i = 0; i < table.length(); i++) {
+            if (table.get(i) != null) size++;
+        }
+        return new MemoSnapshot(className, line, template, table.length(), size, hits.sum(), misses.sum(), bypassed.sum(), bypass);
+    }
+
+    /**
+     * Sets the counters to 0, the cached strings are kept.
+     */
+    public void reset() {
+        hits.reset();
+        misses.reset();
+        bypassed.reset();
+    }
+}
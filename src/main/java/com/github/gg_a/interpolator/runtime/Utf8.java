@@ -0,0 +1,322 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator.runtime;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * Runtime support of {@code Interpolate.utf8(...)}: the literal parts are encoded once into
+ * {@code static final byte[]} constants of the class, only the values are encoded at runtime, e.g.
+ * <pre>
+ * Utf8.finish(Utf8.put(Utf8.putEncoded(Utf8.sink(out, 24), C$InterpolatorUtf8._0), id))
+ * </pre>
+ * A {@link ByteBuffer} is written directly, {@code byte[]} and {@link OutputStream} outputs are collected
+ * by a {@link Sink}, so the stream gets a single {@code write} call. <br>
+ * Numbers, booleans and chars are written as ASCII without creating a string, other values are encoded
+ * like {@code String.valueOf(value).getBytes(StandardCharsets.UTF_8)}: malformed surrogates are replaced by {@code ?}.
+ * <p>
+ * Not part of the API, methods are only called by generated code.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+public final class Utf8 {
+
+    private static final byte[] TRUE = {'t', 'r', 'u', 'e'};
+    private static final byte[] FALSE = {'f', 'a', 'l', 's', 'e'};
+    private static final byte[] NULL = {'n', 'u', 'l', 'l'};
+    /**
+     * max length of a long: {@code -9223372036854775808}
+     */
+    private static final int MAX_LONG_LENGTH = 20;
+
+    private Utf8() {
+    }
+
+    /**
+     * Collects the bytes of {@code Interpolate.utf8("...")} and {@code Interpolate.utf8(out, "...")}.
+     */
+    public static final class Sink {
+        private final OutputStream out;
+        private byte[] buf;
+        private int count;
+
+        private Sink(OutputStream out, int capacity) {
+            this.out = out;
+            this.buf = new byte[capacity];
+        }
+
+        private int reserve(int length) {
+            int position = count;
+            if (position + length > buf.length) buf = Arrays.copyOf(buf, Math.max(buf.length << 1, position + length));
+            count = position + length;
+            return position;
+        }
+
+        private void put(byte[] bytes) {
+            System.arraycopy(bytes, 0, buf, reserve(bytes.length), bytes.length);
+        }
+
+        private void putLong(long l) {
+            int length = stringSize(l);
+            writeDigits(l, buf, reserve(length) + length);
+        }
+
+        private void putChars(CharSequence s) {
+            int length = s.length();
+            int position = reserve(length);
+            int i = 0;
+            for (; i < length; i++) {   // ASCII fast path
+                char c = s.charAt(i);
+                if (c >= 0x80) break;
+                buf[position++] = (byte) c;
+            }
+            count = position;
+            for (; i < length; i++) {
+                char c = s.charAt(i);
+                if (c < 0x80) {
+                    buf[reserve(1)] = (byte) c;
+                } else if (c < 0x800) {
+                    position = reserve(2);
+                    buf[position] = (byte) (0xC0 | c >> 6);
+                    buf[position + 1] = (byte) (0x80 | c & 0x3F);
+                } else if (Character.isSurrogate(c)) {
+                    int cp = codePoint(s, i, length);
+                    if (cp < 0) {
+                        buf[reserve(1)] = '?';
+                    } else {
+                        position = reserve(4);
+                        buf[position] = (byte) (0xF0 | cp >> 18);
+                        buf[position + 1] = (byte) (0x80 | cp >> 12 & 0x3F);
+                        buf[position + 2] = (byte) (0x80 | cp >> 6 & 0x3F);
+                        buf[position + 3] = (byte) (0x80 | cp & 0x3F);
+                        i++;
+                    }
+                } else {
+                    position = reserve(3);
+                    buf[position] = (byte) (0xE0 | c >> 12);
+                    buf[position + 1] = (byte) (0x80 | c >> 6 & 0x3F);
+                    buf[position + 2] = (byte) (0x80 | c & 0x3F);
+                }
+            }
+        }
+    }
+
+    public static Sink sink(int capacity) {
+        return new Sink(null, capacity);
+    }
+
+    public static Sink sink(OutputStream out, int capacity) {
+        if (out == null) throw new NullPointerException("out");
+        return new Sink(out, capacity);
+    }
+
+    public static ByteBuffer sink(ByteBuffer buffer, int capacity) {
+        if (buffer == null) throw new NullPointerException("buffer");
+        return buffer;
+    }
+
+    /**
+     * @return the collected bytes
+     */
+    public static byte[] toByteArray(Sink sink) {
+        return sink.count == sink.buf.length ? sink.buf : Arrays.copyOf(sink.buf, sink.count);
+    }
+
+    /**
+     * Writes the collected bytes to the stream of {@link #sink(OutputStream, int)}.
+     *
+     * @return the stream
+     */
+    public static OutputStream finish(Sink sink) throws IOException {
+        sink.out.write(sink.buf, 0, sink.count);
+        return sink.out;
+    }
+
+    public static ByteBuffer finish(ByteBuffer buffer) {
+        return buffer;
+    }
+
+    // ---------------------------------------------------------------- Sink
+
+    /**
+     * @param bytes encoded literal part
+     */
+    public static Sink putEncoded(Sink sink, byte[] bytes) {
+        sink.put(bytes);
+        return sink;
+    }
+
+    public static Sink put(Sink sink, CharSequence s) {
+        if (s == null) sink.put(NULL);
+        else sink.putChars(s);
+        return sink;
+    }
+
+    public static Sink put(Sink sink, char[] s) {
+        sink.putChars(CharBuffer.wrap(s));
+        return sink;
+    }
+
+    public static Sink put(Sink sink, Object obj) {
+        return put(sink, String.valueOf(obj));
+    }
+
+    public static Sink put(Sink sink, boolean b) {
+        sink.put(b ? TRUE : FALSE);
+        return sink;
+    }
+
+    public static Sink put(Sink sink, char c) {
+        if (c < 0x80) sink.buf[sink.reserve(1)] = (byte) c;
+        else sink.putChars(String.valueOf(c));
+        return sink;
+    }
+
+    public static Sink put(Sink sink, int i) {
+        sink.putLong(i);
+        return sink;
+    }
+
+    public static Sink put(Sink sink, long l) {
+        sink.putLong(l);
+        return sink;
+    }
+
+    public static Sink put(Sink sink, float f) {
+        return put(sink, Float.toString(f));
+    }
+
+    public static Sink put(Sink sink, double d) {
+        return put(sink, Double.toString(d));
+    }
+
+    // ---------------------------------------------------------------- ByteBuffer, heap or direct
+
+    public static ByteBuffer putEncoded(ByteBuffer buffer, byte[] bytes) {
+        return buffer.put(bytes);
+    }
+
+    public static ByteBuffer put(ByteBuffer buffer, CharSequence s) {
+        if (s == null) return buffer.put(NULL);
+        for (int i = 0, length = s.length(); i < length; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | c >> 6)).put((byte) (0x80 | c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                int cp = codePoint(s, i, length);
+                if (cp < 0) {
+                    buffer.put((byte) '?');
+                } else {
+                    buffer.put((byte) (0xF0 | cp >> 18)).put((byte) (0x80 | cp >> 12 & 0x3F))
+                            .put((byte) (0x80 | cp >> 6 & 0x3F)).put((byte) (0x80 | cp & 0x3F));
+                    i++;
+                }
+            } else {
+                buffer.put((byte) (0xE0 | c >> 12)).put((byte) (0x80 | c >> 6 & 0x3F)).put((byte) (0x80 | c & 0x3F));
+            }
+        }
+        return buffer;
+    }
+
+    public static ByteBuffer put(ByteBuffer buffer, char[] s) {
+        return put(buffer, CharBuffer.wrap(s));
+    }
+
+    public static ByteBuffer put(ByteBuffer buffer, Object obj) {
+        return put(buffer, String.valueOf(obj));
+    }
+
+    public static ByteBuffer put(ByteBuffer buffer, boolean b) {
+        return buffer.put(b ? TRUE : FALSE);
+    }
+
+    public static ByteBuffer put(ByteBuffer buffer, char c) {
+        return c < 0x80 ? buffer.put((byte) c) : put(buffer, String.valueOf(c));
+    }
+
+    public static ByteBuffer put(ByteBuffer buffer, int i) {
+        return put(buffer, (long) i);
+    }
+
+    /**
+     * The digits are written with absolute puts, nothing is written if the buffer is too small.
+     */
+    public static ByteBuffer put(ByteBuffer buffer, long l) {
+        int length = stringSize(l);
+        if (buffer.remaining() < length) throw new BufferOverflowException();
+        int position = buffer.position();
+        ((Buffer) buffer).position(position + length);   // Buffer.position(int), ByteBuffer overrides it since Java 9
+        if (buffer.hasArray()) {
+            writeDigits(l, buffer.array(), buffer.arrayOffset() + position + length);
+        } else {
+            byte[] digits = new byte[MAX_LONG_LENGTH];
+            writeDigits(l, digits, length);
+            for (int i = 0; i < length; i++) buffer.put(position + i, digits[i]);
+        }
+        return buffer;
+    }
+
+    public static ByteBuffer put(ByteBuffer buffer, float f) {
+        return put(buffer, Float.toString(f));
+    }
+
+    public static ByteBuffer put(ByteBuffer buffer, double d) {
+        return put(buffer, Double.toString(d));
+    }
+
+    // ---------------------------------------------------------------- encoding
+
+    /**
+     * @return code point of the surrogate pair at {@code i}, or -1 if the surrogate is malformed
+     */
+    private static int codePoint(CharSequence s, int i, int length) {
+        char high = s.charAt(i);
+        if (!Character.isHighSurrogate(high) || i + 1 >= length) return -1;
+        char low = s.charAt(i + 1);
+        return Character.isLowSurrogate(low) ? Character.toCodePoint(high, low) : -1;
+    }
+
+    private static int stringSize(long l) {
+        int size = l < 0 ? 2 : 1;
+        long n = l < 0 ? l : -l;   // negative, Long.MIN_VALUE has no positive value
+        for (long p = -10; n <= p; p *= 10) {
+            size++;
+            if (p < Long.MIN_VALUE / 10) break;   // -10^18, the next power overflows
+        }
+        return size;
+    }
+
+    /**
+     * Writes the digits of {@code l} backwards, ending before {@code end}.
+     */
+    private static void writeDigits(long l, byte[] buf, int end) {
+        long n = l < 0 ? l : -l;
+        do {
+            buf[--end] = (byte) ('0' - n % 10);
+            n /= 10;
+        } while (n != 0);
+        if (l < 0) buf[--end] = '-';
+    }
+}
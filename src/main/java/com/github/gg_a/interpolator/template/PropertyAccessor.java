@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator.template;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Reads a property of objects of one class: {@code Map} key, bean getter ({@code getName()}, {@code isName()}),
+ * record component or fluent accessor ({@code name()}) or public field, in this order. <br>
+ * Accessors are resolved once per class and property and kept in a {@link ClassValue}, so classes can still be unloaded.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+final class PropertyAccessor {
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private static final ClassValue<ConcurrentMap<String, PropertyAccessor>> ACCESSORS = new ClassValue<ConcurrentMap<String, PropertyAccessor>>() {
+        @Override
+        protected ConcurrentMap<String, PropertyAccessor> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    final Class<?> type;
+    private final String name;
+    /**
+     * {@code (Object) -> Object}, {@code null} for a {@code Map} key
+     */
+    private final MethodHandle getter;
+
+    private PropertyAccessor(Class<?> type, String name, MethodHandle getter) {
+        this.type = type;
+        this.name = name;
+        this.getter = getter;
+    }
+
+    static PropertyAccessor of(Class<?> type, String name) {
+        ConcurrentMap<String, PropertyAccessor> accessors = ACCESSORS.get(type);
+        PropertyAccessor accessor = accessors.get(name);
+        if (accessor == null) {
+            accessor = new PropertyAccessor(type, name, Map.class.isAssignableFrom(type) ? null : getter(type, name));
+            PropertyAccessor previous = accessors.putIfAbsent(name, accessor);
+            if (previous != null) accessor = previous;
+        }
+        return accessor;
+    }
+
+    Object get(Object target) {
+        if (getter == null) return ((Map<?, ?>) target).get(name);
+        try {
+            return (Object) getter.invokeExact(target);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException("failed to read property '" + name + "' of " + type.getName(), t);
+        }
+    }
+
+    private static MethodHandle getter(Class<?> type, String name) {
+        String capitalized = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        for (String methodName : new String[]{"get" + capitalized, "is" + capitalized, name}) {
+            Method method = publicMethod(type, methodName);
+            if (method != null) return unreflect(method);
+        }
+        try {
+            Field field = type.getField(name);
+            if (!Modifier.isStatic(field.getModifiers())) return unreflect(field);
+        } catch (NoSuchFieldException ignored) {
+            // no public field
+        }
+        throw new IllegalArgumentException("no property '" + name + "' in " + type.getName());
+    }
+
+    /**
+     * public instance method without parameters, declared by a public class or interface if possible,
+     * e.g. {@code Map.Entry.getKey()} instead of the method of a private entry class
+     */
+    private static Method publicMethod(Class<?> type, String name) {
+        Method method;
+        try {
+            method = type.getMethod(name);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+        if (Modifier.isStatic(method.getModifiers()) || method.getReturnType() == void.class) return null;
+        if (Modifier.isPublic(method.getDeclaringClass().getModifiers())) return method;
+
+        Deque<Class<?>> types = new ArrayDeque<>();
+        Set<Class<?>> visited = new HashSet<>();
+        types.add(type);
+        while (!types.isEmpty()) {
+            Class<?> t = types.poll();
+            if (!visited.add(t)) continue;
+            if (Modifier.isPublic(t.getModifiers())) {
+                try {
+                    return t.getMethod(name);
+                } catch (NoSuchMethodException ignored) {
+                    // declared by a subtype
+                }
+            }
+            if (t.getSuperclass() != null) types.add(t.getSuperclass());
+            for (Class<?> i : t.getInterfaces()) types.add(i);
+        }
+        return method;
+    }
+
+    private static MethodHandle unreflect(Member member) {
+        try {
+            MethodHandle handle;
+            if (Modifier.isPublic(member.getDeclaringClass().getModifiers())) {
+                handle = member instanceof Method
+                        ? MethodHandles.publicLookup().unreflect((Method) member)
+                        : MethodHandles.publicLookup().unreflectGetter((Field) member);
+            } else {   // e.g. a public method of a private record
+                if (member instanceof Method) {
+                    ((Method) member).setAccessible(true);
+                    handle = MethodHandles.lookup().unreflect((Method) member);
+                } else {
+                    ((Field) member).setAccessible(true);
+                    handle = MethodHandles.lookup().unreflectGetter((Field) member);
+                }
+            }
+            return handle.asType(GETTER_TYPE);
+        } catch (IllegalAccessException | RuntimeException e) {
+            throw new IllegalArgumentException("cannot access " + member, e);
+        }
+    }
+}
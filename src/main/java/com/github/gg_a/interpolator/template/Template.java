@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator.template;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.github.gg_a.interpolator.InterpolationMode;
+import com.github.gg_a.interpolator.token.ExpressionExtractor;
+import com.github.gg_a.interpolator.token.StringToken;
+
+import static com.github.gg_a.interpolator.token.TokenType.EXPRESSION;
+
+/**
+ * Runtime template with the {@code ${}} syntax of {@link com.github.gg_a.interpolator.StringInterpolator},
+ * for templates which are not in the source code, e.g. read from configuration:
+ * <pre>
+ * Template template = Template.compile("user ${user.name} submitted order ${order.id}");
+ * String s = template.render(model);   // model: Map, bean or record with the properties user and order
+ * </pre>
+ * A placeholder is a property path, {@code a.b.c}; a path element is a {@code Map} key, a bean getter
+ * ({@code getB()}, {@code isB()}), a record component ({@code b()}) or a public field. {@code ${}} is
+ * the character {@code $} as in string literals, and a null value on the path renders {@code null}. <br>
+ * A template is compiled once into literal parts and paths, accessors are {@link java.lang.invoke.MethodHandle}s
+ * cached per class, so rendering only creates the result. Templates are immutable and thread-safe, use
+ * {@link TemplateCache} to reuse them.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+public final class Template {
+
+    private static final ExpressionExtractor EXTRACTOR = new ExpressionExtractor();
+
+    private final String source;
+    /**
+     * {@code String} literal parts and {@link Path}s, in order
+     */
+    private final Object[] parts;
+    /**
+     * length of the longest rendered string, racy
+     */
+    private int lengthHint;
+
+    private Template(String source, Object[] parts, int lengthHint) {
+        this.source = source;
+        this.parts = parts;
+        this.lengthHint = lengthHint;
+    }
+
+    /**
+     * @throws IllegalArgumentException if a placeholder is not a property path, e.g. {@code ${a + b}}
+     */
+    public static Template compile(String source) {
+        List<StringToken> tokens = EXTRACTOR.split(source, 0, InterpolationMode.EXPRESSION);
+        if (tokens.isEmpty()) return new Template(source, new Object[]{source}, source.length());
+
+        Object[] parts = new Object[tokens.size()];
+        int length = 0;
+        for (int i = 0; i < parts.length; i++) {
+            StringToken token = tokens.get(i);
+            if (token.getType() == EXPRESSION) {
+                parts[i] = Path.parse(token.getValue());
+                length += 16;
+            } else {
+                parts[i] = token.getValue();
+                length += token.getValue().length();
+            }
+        }
+        return new Template(source, parts, length);
+    }
+
+    public String render(Object root) {
+        StringBuilder sb = renderTo(new StringBuilder(lengthHint), root);
+        if (sb.length() > lengthHint) lengthHint = sb.length();
+        return sb.toString();
+    }
+
+    public StringBuilder renderTo(StringBuilder sb, Object root) {
+        for (Object part : parts) {
+            if (part instanceof String) {
+                sb.append((String) part);
+            } else {
+                Object value = ((Path) part).get(root);
+                if (value instanceof char[]) sb.append((char[]) value);   // String.valueOf(char[]) as in string literals
+                else sb.append(value);
+            }
+        }
+        return sb;
+    }
+
+    public <A extends Appendable> A renderTo(A out, Object root) throws IOException {
+        for (Object part : parts) {
+            if (part instanceof String) {
+                out.append((String) part);
+            } else {
+                Object value = ((Path) part).get(root);
+                out.append(value instanceof CharSequence ? (CharSequence) value
+                        : value instanceof char[] ? String.valueOf((char[]) value) : String.valueOf(value));
+            }
+        }
+        return out;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    @Override
+    public String toString() {
+        return "Template{" + source + '}';
+    }
+
+    /**
+     * Property path with an inline cache of the accessor per element: the accessor of the last class is reused
+     * while the class of the value does not change.
+     */
+    private static final class Path {
+        private final String[] names;
+        private final PropertyAccessor[] accessors;
+
+        private Path(String[] names) {
+            this.names = names;
+            this.accessors = new PropertyAccessor[names.length];
+        }
+
+        static Path parse(String path) {
+            String[] names = path.split("\\.", -1);
+            for (int i = 0; i < names.length; i++) {
+                String name = names[i].trim();
+                if (!isIdentifier(name)) throw new IllegalArgumentException("not a property path: ${" + path + "}");
+                names[i] = name;
+            }
+            return new Path(names);
+        }
+
+        Object get(Object root) {
+            Object value = root;
+            for (int i = 0; i < names.length && value != null; i++) {
+                PropertyAccessor accessor = accessors[i];   // racy, PropertyAccessor is immutable
+                if (accessor == null || accessor.type != value.getClass()) {
+                    accessor = PropertyAccessor.of(value.getClass(), names[i]);
+                    accessors[i] = accessor;
+                }
+                value = accessor.get(value);
+            }
+            return value;
+        }
+
+        private static boolean isIdentifier(String s) {
+            if (s.isEmpty() || !Character.isJavaIdentifierStart(s.charAt(0))) return false;
+            for (int i = 1; i < s.length(); i++) {
+                if (!Character.isJavaIdentifierPart(s.charAt(i))) return false;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator.template;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe bounded cache of compiled {@link Template}s, keyed by the template source. <br>
+ * When the cache is full, entries which were not used since the last eviction pass are evicted first
+ * (second chance / CLOCK), so reads never lock. Templates which fail to compile are not cached.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+public class TemplateCache {
+
+    public static final int DEFAULT_MAXIMUM_SIZE = 1024;
+
+    private final int maximumSize;
+    private final ConcurrentHashMap<String, Entry> templates = new ConcurrentHashMap<>();
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    private static final class Entry {
+        final Template template;
+        volatile boolean referenced;
+
+        Entry(Template template) {
+            this.template = template;
+        }
+    }
+
+    public TemplateCache() {
+        this(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    public TemplateCache(int maximumSize) {
+        if (maximumSize <= 0) throw new IllegalArgumentException("maximumSize must be positive: " + maximumSize);
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * @return the cached template, compiled by this call if it is not in the cache
+     * @throws IllegalArgumentException if the template does not compile
+     */
+    public Template get(String source) {
+        Entry entry = templates.get(source);
+        if (entry != null) {
+            hitCount.increment();
+            if (!entry.referenced) entry.referenced = true;
+            return entry.template;
+        }
+
+        missCount.increment();
+        Entry compiled = new Entry(Template.compile(source));
+        entry = templates.putIfAbsent(source, compiled);
+        if (entry != null) return entry.template;
+        if (templates.size() > maximumSize) evict();
+        return compiled.template;
+    }
+
+    public String render(String source, Object root) {
+        return get(source).render(root);
+    }
+
+    private void evict() {
+        for (int pass = 0; pass < 2 && templates.size() > maximumSize; pass++) {
+            for (Iterator<Map.Entry<String, Entry>> it = templates.entrySet().iterator();
+                 it.hasNext() && templates.size() > maximumSize; ) {
+                Map.Entry<String, Entry> e = it.next();
+                if (e.getValue().referenced) {
+                    e.getValue().referenced = false;
+                } else if (templates.remove(e.getKey(), e.getValue())) {
+                    evictionCount.increment();
+                }
+            }
+        }
+    }
+
+    public void clear() {
+        templates.clear();
+    }
+
+    public int size() {
+        return templates.size();
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * @return hits / requests, 1.0 if there was no request
+     */
+    public double getHitRate() {
+        long hits = hitCount.sum();
+        long requests = hits + missCount.sum();
+        return requests == 0 ? 1.0 : (double) hits / requests;
+    }
+
+    @Override
+    public String toString() {
+        return "TemplateCache{" +
+                "size=" + templates.size() +
+                ", hitCount=" + hitCount.sum() +
+                ", missCount=" + missCount.sum() +
+                ", evictionCount=" + evictionCount.sum() +
+                '}';
+    }
+}
@@ -16,10 +16,8 @@
 package com.github.gg_a.interpolator.token;
 
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import com.github.gg_a.interpolator.InterpolationMode;
 
@@ -27,6 +25,14 @@ import static com.github.gg_a.interpolator.token.TokenType.*;
 
 /**
  * Extracting expression from ${}
+ * <p>
+ * A single pass scanner over the chars of the string literal, tokens are created as
+ * offset ranges into the literal. Braces inside ${} may be nested (lambdas, array
+ * initializers) and braces in string or char literals are ignored, e.g.
+ * {@code ${map.get("{")}}. A quote without a closing quote on the line, or a {@code '}
+ * which does not start a char literal, is an ordinary char, e.g. {@code ${y's}} is an
+ * expression as before. A ${ without matching }, with a line terminator or with
+ * another ${ before the matching } is not a placeholder.
  *
  * @author GG-A
  * @since 0.0.1
@@ -39,82 +45,223 @@ public class ExpressionExtractor {
      */
     private static final String $ = "${}";
 
-    private static final List<String> KEYWORDS = Arrays.asList(
+    private static final String[] KEYWORDS = {
             "abstract", "assert", "boolean", "break", "byte", "case", "catch", "char", "class",
             "const", "continue", "default", "double", "do", "else", "enum", "extends", "false",
             "final", "finally", "float", "for", "goto", "if", "implements", "import", "instanceof",
             "int", "interface", "long", "native", "new", "null", "package", "private", "protected",
             "public", "return", "short", "static", "strictfp", "super", "switch", "synchronized",
             "this", "throw", "throws", "transient", "true", "try", "void", "volatile", "while", "_"
-    );
+    };
 
     /**
-     * regex for valid identifiers
+     * Perfect hash table of {@link #KEYWORDS}: {@code (s.hashCode() * KEYWORD_HASH_MULTIPLIER) >>> 25}
+     * is collision free for all keywords.
      */
-    private static final Pattern VALID_IDENTIFIERS = Pattern.compile("^[$A-Za-z_][$\\w]*$");
+    private static final int KEYWORD_HASH_MULTIPLIER = 0x1ABF1B;
+    private static final String[] KEYWORD_TABLE = new String[128];
 
     /**
-     * Regex for extracting expression from ${}, but { or } can't be included in ${}
-     */
-    private static final Pattern PATTERN = Pattern.compile("\\$\\{((?![{}]).)*}", Pattern.MULTILINE);
-    /**
+     * char classes: valid identifier start, valid identifier part, special char. <br>
      * StringInterpolator will ignore the parsing when only special characters(exclude $ and _) <br>
      * and numbers are included in ${}. <br>
      * 如果${}中只包含特殊字符（除了$和_以外）和数字，StringInterpolator将会忽略解析。
      */
-    private static final Pattern SPECIAL_CHAR = Pattern.compile("^\\$\\{[\\s`!-#%-@\\[-^\\{-~]+}$");
+    private static final byte IDENTIFIER_START = 1;
+    private static final byte IDENTIFIER_PART = 2;
+    private static final byte SPECIAL_CHAR = 4;
+    private static final byte[] CHAR_CLASSES = new byte[128];
+
+    static {
+        for (String keyword : KEYWORDS) {
+            int index = keywordIndex(keyword, 0, keyword.length());
+            if (KEYWORD_TABLE[index] != null) throw new AssertionError("keyword hash collision: " + keyword);
+            KEYWORD_TABLE[index] = keyword;
+        }
+
+        for (char c = 'a'; c <= 'z'; c++) CHAR_CLASSES[c] = IDENTIFIER_START | IDENTIFIER_PART;
+        for (char c = 'A'; c <= 'Z'; c++) CHAR_CLASSES[c] = IDENTIFIER_START | IDENTIFIER_PART;
+        CHAR_CLASSES['$'] = IDENTIFIER_START | IDENTIFIER_PART;
+        CHAR_CLASSES['_'] = IDENTIFIER_START | IDENTIFIER_PART;
+        for (char c = '0'; c <= '9'; c++) CHAR_CLASSES[c] = IDENTIFIER_PART | SPECIAL_CHAR;
+        // [\s`!-#%-@\[-^\{-~]
+        for (char c : " \t\n\u000B\f\r`".toCharArray()) CHAR_CLASSES[c] = SPECIAL_CHAR;
+        for (char c = '!'; c <= '#'; c++) CHAR_CLASSES[c] = SPECIAL_CHAR;
+        for (char c = '%'; c <= '@'; c++) CHAR_CLASSES[c] |= SPECIAL_CHAR;
+        for (char c = '['; c <= '^'; c++) CHAR_CLASSES[c] = SPECIAL_CHAR;
+        for (char c = '{'; c <= '~'; c++) CHAR_CLASSES[c] = SPECIAL_CHAR;
+    }
 
     public List<StringToken> split(String literalValue, int originalOffset, InterpolationMode parseMode) {
-        List<StringToken> stringTokens = new ArrayList<>();
-        final Matcher matcher = PATTERN.matcher(literalValue);
+        return split(literalValue, originalOffset, parseMode, false);
+    }
+
+    /**
+     * @param formatSpecs whether split format specifiers from expressions, e.g. {@code ${price%.2f}}
+     * @since 0.0.3
+     */
+    public List<StringToken> split(String literalValue, int originalOffset, InterpolationMode parseMode, boolean formatSpecs) {
+        int start = literalValue.indexOf("${");
+        if (start < 0) return Collections.emptyList();
 
+        List<StringToken> stringTokens = new ArrayList<>(4);
+        int length = literalValue.length();
         int startIndex = 0;
-        while (matcher.find()) {
-            String matchStr = matcher.group();
-            int start = matcher.start();    // 起始字符位置
-            int end = matcher.end();        // 结束字符+1 的位置
+        while (start >= 0) {
+            int end = closingBrace(literalValue, start + 2);   // 结束字符+1 的位置
+            if (end < 0) {
+                start = literalValue.indexOf("${", start + 1);
+                continue;
+            }
             int offset = originalOffset + start + $.length();
 
-            if ($.equals(matchStr)) {
-                String value = literalValue.substring(startIndex, start + 1);
-                stringTokens.add(new StringToken(value, value, STRING_LITERAL, offset));
+            if (end == start + $.length()) {    // ${}
+                stringTokens.add(new StringToken(literalValue, startIndex, start + 1, startIndex, start + 1, STRING_LITERAL, offset));
+            } else if (isSpecialChars(literalValue, start + 2, end - 1)) {   // only contains special chars in ${}
+                stringTokens.add(new StringToken(literalValue, startIndex, end, startIndex, end, STRING_LITERAL, offset + end - start));
             } else {
-                Matcher mt = SPECIAL_CHAR.matcher(matchStr);
-                if (mt.find()) {  // only contains special chars in ${}
-                    String value = literalValue.substring(startIndex, end);
-                    stringTokens.add(new StringToken(value, value, STRING_LITERAL, offset + matchStr.length()));
-                } else {
-                    String strInBrace = matchStr.substring(2, matchStr.length() - 1);
-                    String afterTrim = strInBrace.trim();
-
-                    if (parseMode == InterpolationMode.EXPRESSION) {
-                        if (start != startIndex) {  // 不相等说明${}前面有一段常量还未添加进StringToken
-                            String value = literalValue.substring(startIndex, start);
-                            stringTokens.add(new StringToken(value, value, STRING_LITERAL, offset));
-                        }
-                        stringTokens.add(new StringToken(afterTrim, matchStr, EXPRESSION, offset));
-                    } else {
-                        if (!KEYWORDS.contains(afterTrim) && VALID_IDENTIFIERS.matcher(afterTrim).find()) {
-                            if (start != startIndex) {  // 不相等说明${}前面有一段常量还未添加进StringToken
-                                String value = literalValue.substring(startIndex, start);
-                                stringTokens.add(new StringToken(value, value, STRING_LITERAL, offset));
-                            }
-                            stringTokens.add(new StringToken(afterTrim, matchStr, EXPRESSION, offset));
-                        } else {
-                            String value = literalValue.substring(startIndex, end);
-                            stringTokens.add(new StringToken(value, value, STRING_LITERAL, offset + matchStr.length()));
-                        }
+                int valueBegin = start + 2;
+                int valueEnd = end - 1;
+                while (valueBegin < valueEnd && literalValue.charAt(valueBegin) <= ' ') valueBegin++;
+                while (valueBegin < valueEnd && literalValue.charAt(valueEnd - 1) <= ' ') valueEnd--;
+                int formatBegin = formatSpecs ? formatSpecBegin(literalValue, valueBegin, valueEnd) : -1;
+                int exprEnd = formatBegin < 0 ? valueEnd : formatBegin - 1;
+
+                if (parseMode == InterpolationMode.EXPRESSION || isIdentifier(literalValue, valueBegin, exprEnd)) {
+                    if (start != startIndex) {  // 不相等说明${}前面有一段常量还未添加进StringToken
+                        stringTokens.add(new StringToken(literalValue, startIndex, start, startIndex, start, STRING_LITERAL, offset));
                     }
+                    StringToken token = new StringToken(literalValue, valueBegin, exprEnd, start, end, EXPRESSION, offset);
+                    if (formatBegin >= 0) token.setFormat(literalValue.substring(formatBegin, valueEnd));
+                    stringTokens.add(token);
+                } else {
+                    stringTokens.add(new StringToken(literalValue, startIndex, end, startIndex, end, STRING_LITERAL, offset + end - start));
                 }
             }
             startIndex = end;
+            start = literalValue.indexOf("${", end);
         }
 
-        if (startIndex < literalValue.length()) {
-            String value = literalValue.substring(startIndex);
-            stringTokens.add(new StringToken(value, value, STRING_LITERAL, originalOffset + startIndex + $.length()));
+        if (startIndex < length) {
+            stringTokens.add(new StringToken(literalValue, startIndex, length, startIndex, length, STRING_LITERAL,
+                    originalOffset + startIndex + $.length()));
         }
 
         return stringTokens;
     }
+
+    /**
+     * Find the } which closes the ${ before {@code from}.
+     *
+     * @return index after the closing }, or -1 if the placeholder is not closed
+     */
+    private static int closingBrace(String s, int from) {
+        int depth = 0;
+        char quote = 0;
+        for (int i = from, length = s.length(); i < length; i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '\n': case '\r': case '\u0085': case '\u2028': case '\u2029':
+                    return -1;
+                case '\\':
+                    if (quote != 0) i++;
+                    break;
+                case '"': case '\'':
+                    if (quote == 0) {
+                        if (closingQuote(s, i) >= 0) quote = c;
+                    } else if (quote == c) {
+                        quote = 0;
+                    }
+                    break;
+                case '{':
+                    if (quote == 0) {
+                        if (s.charAt(i - 1) == '$' && i > from) return -1;   // nested ${
+                        depth++;
+                    }
+                    break;
+                case '}':
+                    if (quote == 0 && depth-- == 0) return i + 1;
+                    break;
+                default:
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param open index of a {@code "} or {@code '}
+     * @return index of the quote which closes the string or char literal, or -1 if there is none on the line
+     * or {@code '} does not start a char literal ({@code 'c'}, {@code '\n'} or an octal escape)
+     */
+    private static int closingQuote(String s, int open) {
+        char quote = s.charAt(open);
+        int limit = quote == '\'' ? Math.min(s.length(), open + 6) : s.length();
+        for (int i = open + 1; i < limit; i++) {
+            char c = s.charAt(i);
+            if (c == quote) return quote == '\'' && i == open + 1 ? -1 : i;
+            if (c == '\\') i++;
+            else if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') return -1;
+            else if (quote == '\'' && i > open + 1 && s.charAt(open + 1) != '\\') return -1;   // only one char
+        }
+        return -1;
+    }
+
+    /**
+     * Format specifier at the end of an expression: {@code %[flags][width][.precision]conversion}, flags are
+     * {@code -#+ 0,(} and conversion is one of {@code doxXeEfsS}. The char before {@code %} must not be a whitespace.
+     *
+     * @return index after {@code %}, or -1 if there is no format specifier
+     */
+    private static int formatSpecBegin(String s, int begin, int end) {
+        int i = end - 1;
+        if (i <= begin || "doxXeEfsS".indexOf(s.charAt(i)) < 0) return -1;
+        i--;
+        int digits = i;
+        while (i > begin && isDigit(s.charAt(i))) i--;
+        if (s.charAt(i) == '.') {
+            if (i == digits) return -1;   // no digits after .
+            i--;
+            while (i > begin && isDigit(s.charAt(i))) i--;
+        }
+        while (i > begin && "-#+ 0,(".indexOf(s.charAt(i)) >= 0) i--;
+        if (s.charAt(i) != '%' || i == begin || s.charAt(i - 1) <= ' ') return -1;
+        return i + 1;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isSpecialChars(String s, int begin, int end) {
+        for (int i = begin; i < end; i++) {
+            char c = s.charAt(i);
+            if (c >= 128 || (CHAR_CLASSES[c] & SPECIAL_CHAR) == 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * valid Java identifier ({@code [$A-Za-z_][$\w]*}) and not a keyword
+     */
+    private static boolean isIdentifier(String s, int begin, int end) {
+        if (begin == end) return false;
+        char c = s.charAt(begin);
+        if (c >= 128 || (CHAR_CLASSES[c] & IDENTIFIER_START) == 0) return false;
+        for (int i = begin + 1; i < end; i++) {
+            c = s.charAt(i);
+            if (c >= 128 || (CHAR_CLASSES[c] & IDENTIFIER_PART) == 0) return false;
+        }
+        return !isKeyword(s, begin, end);
+    }
+
+    private static boolean isKeyword(String s, int begin, int end) {
+        String keyword = KEYWORD_TABLE[keywordIndex(s, begin, end)];
+        return keyword != null && keyword.length() == end - begin && s.startsWith(keyword, begin);
+    }
+
+    private static int keywordIndex(String s, int begin, int end) {
+        int h = 0;
+        for (int i = begin; i < end; i++) h = 31 * h + s.charAt(i);
+        return (h * KEYWORD_HASH_MULTIPLIER) >>> 25;
+    }
 }
@@ -28,10 +28,23 @@ package com.github.gg_a.interpolator.token;
  */
 public class StringToken {
 
+    /*
+     * Modified by GG-A
+     *
+     * Tokens created by ExpressionExtractor only keep offset ranges into the
+     * string literal, value and originValue are substring-ed on first use.
+     */
+    private String source;
+    private int valueBegin;
+    private int valueEnd;
+    private int begin;
+    private int end;
+
     private String value;
     private String originValue;
     private TokenType type;
     private int offset;
+    private String format;
 
     public StringToken(String value, String originValue, TokenType type, int offset) {
         this.value = value;
@@ -40,7 +53,28 @@ public class StringToken {
         this.offset = offset;
     }
 
+    /**
+     * @param source      the string literal
+     * @param valueBegin  begin index of value in {@code source}, inclusive
+     * @param valueEnd    end index of value in {@code source}, exclusive
+     * @param begin       begin index of origin value in {@code source}, inclusive
+     * @param end         end index of origin value in {@code source}, exclusive
+     * @param type        token type
+     * @param offset      position of the token
+     * @since 0.0.3
+     */
+    public StringToken(String source, int valueBegin, int valueEnd, int begin, int end, TokenType type, int offset) {
+        this.source = source;
+        this.valueBegin = valueBegin;
+        this.valueEnd = valueEnd;
+        this.begin = begin;
+        this.end = end;
+        this.type = type;
+        this.offset = offset;
+    }
+
     public String getValue() {
+        if (value == null && source != null) value = source.substring(valueBegin, valueEnd);
         return value;
     }
 
@@ -49,6 +83,7 @@ public class StringToken {
     }
 
     public String getOriginValue() {
+        if (originValue == null && source != null) originValue = source.substring(begin, end);
         return originValue;
     }
 
@@ -56,6 +91,42 @@ public class StringToken {
         this.originValue = originValue;
     }
 
+    /**
+     * @return the string literal this token was extracted from, or {@code null}
+     * @since 0.0.3
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * @return begin index of origin value in {@link #getSource()}
+     * @since 0.0.3
+     */
+    public int getBegin() {
+        return begin;
+    }
+
+    /**
+     * @return end index of origin value in {@link #getSource()}
+     * @since 0.0.3
+     */
+    public int getEnd() {
+        return end;
+    }
+
+    /**
+     * @return format specifier of an expression without {@code %}, e.g. {@code .2f} of {@code ${price%.2f}}, or {@code null}
+     * @since 0.0.3
+     */
+    public String getFormat() {
+        return format;
+    }
+
+    public void setFormat(String format) {
+        this.format = format;
+    }
+
     public TokenType getType() {
         return type;
     }
@@ -75,10 +146,11 @@ public class StringToken {
     @Override
     public String toString() {
         return "StringToken{" +
-                "value='" + value + '\'' +
-                ", originValue='" + originValue + '\'' +
+                "value='" + getValue() + '\'' +
+                ", originValue='" + getOriginValue() + '\'' +
                 ", type=" + type +
                 ", offset=" + offset +
+                (format == null ? "" : ", format='" + format + '\'') +
                 '}';
     }
 }
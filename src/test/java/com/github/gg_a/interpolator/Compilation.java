@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator;
+
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compiles sources with the processor into a temporary directory and runs their static methods,
+ * for the tests which compare the output of interpolated literals with the output of plain Java code.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+final class Compilation {
+
+    private static final Pattern CLASS_NAME = Pattern.compile("(?:class|interface|enum)\\s+(\\w+)");
+
+    private final Path dir;
+    private final List<Diagnostic<? extends JavaFileObject>> diagnostics;
+    private final boolean success;
+    private final long nanos;
+    private ClassLoader classLoader;
+
+    private Compilation(Path dir, List<Diagnostic<? extends JavaFileObject>> diagnostics, boolean success, long nanos) {
+        this.dir = dir;
+        this.diagnostics = diagnostics;
+        this.success = success;
+        this.nanos = nanos;
+    }
+
+    /**
+     * @param source  source of a top level class, the file is named after the first class
+     * @param options javac options, e.g. {@code -Ainterpolator.concat=INLINE}
+     */
+    static Compilation compile(String source, String... options) throws Exception {
+        return compile(Arrays.asList(source), 0, options);
+    }
+
+    /**
+     * @param stackSize stack size of the thread which runs javac, 0 for the default
+     */
+    static Compilation compile(List<String> sources, long stackSize, String... options) throws Exception {
+        Path dir = Files.createTempDirectory("interpolator-test");
+        List<File> files = new ArrayList<>();
+        for (String source : sources) {
+            Matcher name = CLASS_NAME.matcher(source);
+            if (!name.find()) throw new IllegalArgumentException("no class in " + source);
+            Path file = dir.resolve(name.group(1) + ".java");
+            Files.write(file, source.getBytes(StandardCharsets.UTF_8));
+            files.add(file.toFile());
+        }
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        String classes = new File(StringInterpolator.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+        List<String> javacOptions = new ArrayList<>(Arrays.asList("-classpath", classes, "-processorpath", classes,
+                "-d", dir.toString(), "-encoding", "UTF-8"));
+        javacOptions.addAll(Arrays.asList(options));
+        boolean[] success = new boolean[1];
+        long[] nanos = new long[1];
+        Throwable[] error = new Throwable[1];
+        Thread javac = new Thread(null, () -> {
+            try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, Locale.ROOT, StandardCharsets.UTF_8)) {
+                long start = System.nanoTime();
+                success[0] = compiler.getTask(null, fileManager, diagnostics, javacOptions, null,
+                        fileManager.getJavaFileObjects(files.toArray(new File[0]))).call();
+                nanos[0] = System.nanoTime() - start;
+            } catch (Throwable t) {
+                error[0] = t;
+            }
+        }, "javac", stackSize);
+        javac.start();
+        javac.join();
+
+        if (error[0] != null) {
+            delete(dir);
+            throw new AssertionError("javac failed", error[0]);
+        }
+        return new Compilation(dir, diagnostics.getDiagnostics(), success[0], nanos[0]);
+    }
+
+    /**
+     * @return the messages of the diagnostics of {@code kind}
+     */
+    List<String> messages(Diagnostic.Kind kind) {
+        List<String> messages = new ArrayList<>();
+        for (Diagnostic<? extends JavaFileObject> d : diagnostics) {
+            if (d.getKind() == kind) messages.add(d.getMessage(Locale.ROOT));
+        }
+        return messages;
+    }
+
+    boolean success() {
+        return success && messages(Diagnostic.Kind.ERROR).isEmpty();
+    }
+
+    /**
+     * @return time javac took
+     */
+    long nanos() {
+        return nanos;
+    }
+
+    Class<?> load(String className) throws Exception {
+        assertTrue("compilation failed: " + messages(Diagnostic.Kind.ERROR), success());
+        if (classLoader == null) classLoader = new URLClassLoader(new URL[]{dir.toUri().toURL()}, Compilation.class.getClassLoader());
+        return classLoader.loadClass(className);
+    }
+
+    /**
+     * Invokes the static method {@code method} with {@code args.length} parameters,
+     * an exception thrown by the method is thrown unwrapped.
+     */
+    Object invoke(String className, String method, Object... args) throws Exception {
+        for (Method m : load(className).getDeclaredMethods()) {
+            if (m.getName().equals(method) && m.getParameterCount() == args.length) {
+                m.setAccessible(true);
+                try {
+                    return m.invoke(null, args);
+                } catch (InvocationTargetException e) {
+                    if (e.getCause() instanceof Exception) throw (Exception) e.getCause();
+                    throw e;
+                }
+            }
+        }
+        throw new NoSuchMethodException(className + "." + method);
+    }
+
+    void delete() throws Exception {
+        delete(dir);
+    }
+
+    private static void delete(Path dir) throws Exception {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted((p1, p2) -> p2.compareTo(p1)).forEach(p -> p.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator;
+
+import java.util.List;
+import javax.tools.Diagnostic;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Every concat strategy, with and without {@code -Ainterpolator.fastNumbers}, against the same literal
+ * written by hand with {@code String.valueOf}: values of every type, {@code null} and {@code char[]} values,
+ * and {@code char[]} values whose type is unknown to the processor. An expression which does not parse is
+ * left in the literal and reported once as a warning.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+public class ConcatStrategyCompileTest {
+
+    private static final String[] EXPRESSIONS = {
+            "i", "l", "d", "f", "c", "b", "s", "nullString", "nullObject", "boxed", "object", "chars", "local", "chars()",
+            "(char[]) chars", "array[0]", "d + i", "-i", "s + c", "local.length",
+    };
+
+    private static Compilation compilation;
+    private static Compilation fastNumbers;
+
+    @BeforeClass
+    public static void compile() throws Exception {
+        compilation = Compilation.compile(source());
+        fastNumbers = Compilation.compile(source(), "-Ainterpolator.fastNumbers");
+    }
+
+    @AfterClass
+    public static void delete() throws Exception {
+        if (compilation != null) compilation.delete();
+        if (fastNumbers != null) fastNumbers.delete();
+    }
+
+    @Test
+    public void sameAsValueOf() throws Exception {
+        char[] local = {'l', 'o', 'c'};
+        String expected = (String) compilation.invoke("Concat", "reference", (Object) local);
+        for (Compilation c : new Compilation[]{compilation, fastNumbers}) {
+            for (ConcatStrategy concat : ConcatStrategy.values()) {
+                assertEquals(concat.name(), expected, c.invoke("Concat", "concat_" + concat.name(), (Object) local));
+            }
+        }
+    }
+
+    @Test
+    public void nullCharArray() throws Exception {
+        for (Compilation c : new Compilation[]{compilation, fastNumbers}) {
+            for (ConcatStrategy concat : ConcatStrategy.values()) {
+                try {
+                    c.invoke("Concat", "chars_" + concat.name(), (Object) null);
+                    fail(concat.name() + ": String.valueOf((char[]) null) throws NullPointerException");
+                } catch (NullPointerException expected) {
+                    // as String.valueOf
+                }
+            }
+        }
+    }
+
+    @Test
+    public void unparsableExpression() throws Exception {
+        Compilation c = Compilation.compile("import com.github.gg_a.interpolator.*;\n"
+                + "@StringInterpolator\n"
+                + "class Unparsable {\n"
+                + "    static String first(int i) { return \"a${i +}b\"; }\n"
+                + "    static String second(int i) { return \"c${i +}d\"; }\n"
+                + "}\n");
+        try {
+            assertTrue(c.success());
+            List<String> warnings = c.messages(Diagnostic.Kind.WARNING);
+            assertEquals(warnings.toString(), 1, warnings.size());
+            assertTrue(warnings.get(0), warnings.get(0).contains("symbol: i +"));
+            assertEquals("a${i +}b", c.invoke("Unparsable", "first", 1));
+            assertEquals("c${i +}d", c.invoke("Unparsable", "second", 1));
+        } finally {
+            c.delete();
+        }
+    }
+
+    /*
+     * "${i}${l}|${i} ${l} ${d}..."
+     */
+    private static String template() {
+        StringBuilder template = new StringBuilder("${i}${l}|");
+        for (String expression : EXPRESSIONS) template.append("${").append(expression).append("} ");
+        return template.toString();
+    }
+
+    private static String source() {
+        String template = template();
+        StringBuilder source = new StringBuilder()
+                .append("import com.github.gg_a.interpolator.*;\n")
+                .append("class Concat {\n")
+                .append("    static int i = -7; static long l = 1L << 40; static double d = 0.1 + 0.2; static float f = 1.1f;\n")
+                .append("    static char c = 'x'; static boolean b = true; static String s = \"s\";\n")
+                .append("    static String nullString = null; static Object nullObject = null; static Integer boxed = 42;\n")
+                .append("    static Object object = java.util.Arrays.asList(1, 2); static char[] chars = {'a', 'b'};\n")
+                .append("    static char[][] array = {chars};\n")
+                .append("    static char[] chars() { return chars; }\n")
+                .append("    static String reference(char[] local) { return \"")
+                .append(template.replaceAll("\\$\\{([^}]*)}", "\" + String.valueOf($1) + \"")).append("\"; }\n");
+        for (ConcatStrategy concat : ConcatStrategy.values()) {
+            source.append("    @StringInterpolator(concat = ConcatStrategy.").append(concat.name()).append(")\n")
+                    .append("    static String concat_").append(concat.name())
+                    .append("(char[] local) { return \"").append(template).append("\"; }\n")
+                    .append("    @StringInterpolator(concat = ConcatStrategy.").append(concat.name()).append(")\n")
+                    .append("    static String chars_").append(concat.name()).append("(char[] local) { return \"a ${local} b\"; }\n");
+        }
+        return source.append("}\n").toString();
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator;
+
+import java.net.URLEncoder;
+import java.util.Arrays;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * {@link StringInterpolator#escape()} against escaping {@code String.valueOf} of each value by a straightforward
+ * implementation of each context ({@link URLEncoder} for URL): values of every type, enums whose
+ * {@code toString()} is overridden, constants escaped at compile time, formatted values and a literal which is
+ * put in chunks. The literal parts are not escaped.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+public class EscapeCompileTest {
+
+    private static final Escape[] CONTEXTS = {Escape.JSON, Escape.HTML, Escape.CSV, Escape.URL};
+    private static final String[] STRATEGIES = {"VALUE_OF", "INLINE", "BUILDER", "POOLED"};
+
+    private static final String[] NAMES = {"s", "n", "cs", "c", "e", "b", "i", "l", "f", "d", "o", "seq"};
+    private static final String PARAMETERS = "String s, String n, char[] cs, char c, Color e, boolean b, int i, long l, "
+            + "float f, double d, Object o, CharSequence seq";
+    private static final String K = "k\"<,&> ~";
+    private static final String SPECIALS = "a\"b\\c\n\t\u0001\b\f\u001F<&>',\r é€😀\u2028\u2029 ~-._*+$";
+
+    private static Compilation compilation;
+
+    @BeforeClass
+    public static void compile() throws Exception {
+        StringBuilder template = new StringBuilder();
+        for (String name : NAMES) template.append(name).append("=${").append(name).append("} ");
+        template.append("k=${K} sum=${i + d} fmt=${s%8s} <\\\"&,'>");
+        StringBuilder longTemplate = new StringBuilder();
+        for (int k = 0; k < 100; k++) longTemplate.append("${s}|");
+
+        StringBuilder source = new StringBuilder()
+                .append("import com.github.gg_a.interpolator.*;\n")
+                .append("class Escaped {\n")
+                .append("    enum Color { PLAIN, A$B, CUSTOM { public String toString() { return \"x\\\"<,&y z\"; } } }\n")
+                .append("    static final String K = \"k\\\"<,&> ~\";\n")
+                .append("    static Object color(String name) { return Color.valueOf(name); }\n");
+        for (Escape context : CONTEXTS) {
+            for (String strategy : STRATEGIES) {
+                source.append("    @StringInterpolator(escape = Escape.").append(context).append(", concat = ConcatStrategy.").append(strategy)
+                        .append(", format = true)\n")
+                        .append("    static String ").append(context).append('_').append(strategy).append('(').append(PARAMETERS)
+                        .append(") { return \"").append(template).append("\"; }\n");
+            }
+            source.append("    @StringInterpolator(escape = Escape.").append(context).append(")\n")
+                    .append("    static String long_").append(context).append("(String s) { return \"").append(longTemplate).append("\"; }\n");
+        }
+        compilation = Compilation.compile(source.append("}\n").toString());
+    }
+
+    @AfterClass
+    public static void delete() throws Exception {
+        if (compilation != null) compilation.delete();
+    }
+
+    @Test
+    public void values() throws Exception {
+        Object[][] arguments = {
+                {SPECIALS, null, SPECIALS.toCharArray(), '"', color("CUSTOM"), true, -42, Long.MIN_VALUE, -1.5e-10f, Double.NaN,
+                        Arrays.asList("a,b", "c&d"), new StringBuilder(SPECIALS)},
+                {"plain", null, new char[]{'p'}, 'x', color("A$B"), false, 0, 1L << 40, Float.MAX_VALUE, -0.0, null, "plain"},
+                {"", "", new char[0], '\n', color("PLAIN"), false, Integer.MAX_VALUE, 7L, 1.1f, 1234.5678, 'ß', null},
+                {"é€😀", "<", new char[]{'&', '<'}, ',', null, true, 1, -1L, Float.NaN, 1e300, ' ', "\r\n"},
+        };
+        for (Escape context : CONTEXTS) {
+            for (Object[] args : arguments) {
+                String expected = expected(context, args);
+                for (String strategy : STRATEGIES) {
+                    assertEquals(context + " " + strategy, expected, compilation.invoke("Escaped", context + "_" + strategy, args));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void longLiteral() throws Exception {
+        for (Escape context : CONTEXTS) {
+            for (String s : new String[]{SPECIALS, "plain", null}) {
+                StringBuilder expected = new StringBuilder();
+                for (int k = 0; k < 100; k++) expected.append(escape(context, String.valueOf(s))).append('|');
+                assertEquals(context.toString(), expected.toString(), compilation.invoke("Escaped", "long_" + context, s));
+            }
+        }
+    }
+
+    private static Object color(String name) throws Exception {
+        return compilation.invoke("Escaped", "color", name);
+    }
+
+    private static String expected(Escape context, Object[] args) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < NAMES.length; i++) {
+            Object value = args[i];
+            sb.append(NAMES[i]).append('=').append(escape(context, value instanceof char[] ? new String((char[]) value) : String.valueOf(value)))
+                    .append(' ');
+        }
+        sb.append("k=").append(escape(context, K));
+        sb.append(" sum=").append(escape(context, String.valueOf((Integer) args[6] + (Double) args[9])));
+        sb.append(" fmt=").append(escape(context, String.format("%8s", args[0])));
+        return sb.append(" <\"&,'>").toString();
+    }
+
+    private static String escape(Escape context, String s) {
+        switch (context) {
+            case JSON:
+                StringBuilder json = new StringBuilder();
+                for (char c : s.toCharArray()) {
+                    if (c == '"' || c == '\\') json.append('\\').append(c);
+                    else if (c == '\n') json.append("\\n");
+                    else if (c == '\r') json.append("\\r");
+                    else if (c == '\t') json.append("\\t");
+                    else if (c == '\b') json.append("\\b");
+                    else if (c == '\f') json.append("\\f");
+                    else if (c < 0x20 || c == '\u2028' || c == '\u2029') json.append(String.format("\\u%04X", (int) c));
+                    else json.append(c);
+                }
+                return json.toString();
+            case HTML:
+                return s.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;").replace("'", "&#39;");
+            case CSV:
+                return s.matches("(?s).*[,\"\r\n].*") ? '"' + s.replace("\"", "\"\"") + '"' : s;
+            default:
+                try {
+                    return URLEncoder.encode(s, "UTF-8").replace("+", "%20").replace("*", "%2A").replace("%7E", "~");
+                } catch (java.io.UnsupportedEncodingException e) {
+                    throw new AssertionError(e);
+                }
+        }
+    }
+}
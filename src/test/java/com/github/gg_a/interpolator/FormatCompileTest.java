@@ -0,0 +1,207 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import javax.tools.Diagnostic;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Format specifiers in ${} against {@code String.format}: every flag, width and precision of each conversion,
+ * for values of every type, constants formatted at compile time, and {@link FormatLocale#DEFAULT} with
+ * default locales which have other separators.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+public class FormatCompileTest {
+
+    private static final String[] INTEGER_SPECS = {
+            "d", "5d", "-5d", "05d", "+d", " d", ",d", "(d", "+,012d", "-,12d", "(,d", " 08d",
+            "x", "X", "#x", "08X", "-8x", "#10X", "o", "#o", "010o",
+            "s", "S", "10s", "-10s", ".2s",
+    };
+    private static final String[] FLOAT_SPECS = {
+            "f", ".2f", "10.3f", "-10.1f", "+.1f", ",.2f", "(.2f", "012.4f", " f", ".0f", "#.0f", "+,015.3f",
+            "e", ".3E", "12.2e", "-12e", "+e", "(e", "#.0e", "010.1e",
+            "s", "S", "12s", ".3s",
+    };
+    private static final String[] STRING_SPECS = {"s", "S", "8s", "-8s", ".3s", "10.2S", "-6.1s"};
+
+    private static final Object[] INTS = {0, 42, -42, 7, Integer.MIN_VALUE, Integer.MAX_VALUE};
+    private static final Object[] LONGS = {0L, -1L, 1L << 40, Long.MIN_VALUE, Long.MAX_VALUE};
+    private static final Object[] BOXED = {-3, null};
+    private static final Object[] DOUBLES = {
+            0.0, -0.0, 0.5, 2.5, -1.25, 1234567.891, -0.000123, 0.0005, 9.9999, 1e300, 1e-300,
+            Double.MIN_VALUE, Double.MAX_VALUE, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+    };
+    private static final Object[] FLOATS = {1.1f, -3.75f, 1e10f, Float.NaN};
+    private static final Object[] STRINGS = {"abc", "", "straße", null};
+    private static final Object[] CHARS = {'x', 'ß'};
+    private static final Object[] BOOLEANS = {true, false};
+
+    private static final Locale[] LOCALES = {Locale.ROOT, Locale.US, Locale.GERMANY, Locale.FRANCE, new Locale("de", "CH")};
+
+    private static Compilation compilation;
+
+    @BeforeClass
+    public static void compile() throws Exception {
+        compilation = Compilation.compile(source("FormatRoot", "ROOT"));
+        assertTrue(compilation.messages(Diagnostic.Kind.WARNING).toString(), compilation.messages(Diagnostic.Kind.WARNING).isEmpty());
+    }
+
+    @AfterClass
+    public static void delete() throws Exception {
+        if (compilation != null) compilation.delete();
+    }
+
+    @Test
+    public void rootLocale() throws Exception {
+        Locale defaultLocale = Locale.getDefault(Locale.Category.FORMAT);
+        try {
+            for (Locale locale : LOCALES) {
+                // the default locale does not change the output
+                Locale.setDefault(Locale.Category.FORMAT, locale);
+                assertFormats("FormatRoot", Locale.ROOT);
+            }
+        } finally {
+            Locale.setDefault(Locale.Category.FORMAT, defaultLocale);
+        }
+    }
+
+    @Test
+    public void defaultLocale() throws Exception {
+        Compilation defaults = Compilation.compile(source("FormatDefault", "DEFAULT"));
+        Locale defaultLocale = Locale.getDefault(Locale.Category.FORMAT);
+        try {
+            for (Locale locale : LOCALES) {
+                Locale.setDefault(Locale.Category.FORMAT, locale);
+                assertFormats(defaults, "FormatDefault", locale);
+            }
+        } finally {
+            Locale.setDefault(Locale.Category.FORMAT, defaultLocale);
+            defaults.delete();
+        }
+    }
+
+    @Test
+    public void constants() throws Exception {
+        String[] formatted = (String[]) compilation.invoke("FormatRoot", "constants");
+        String[] expected = new String[INTEGER_SPECS.length + FLOAT_SPECS.length];
+        for (int i = 0; i < INTEGER_SPECS.length; i++) expected[i] = String.format(Locale.ROOT, "%" + INTEGER_SPECS[i], -42);
+        for (int i = 0; i < FLOAT_SPECS.length; i++) {
+            expected[INTEGER_SPECS.length + i] = String.format(Locale.ROOT, "%" + FLOAT_SPECS[i], 1234.5678);
+        }
+        assertArrayEquals(expected, formatted);
+    }
+
+    @Test
+    public void remainderWarning() throws Exception {
+        Compilation c = Compilation.compile("import com.github.gg_a.interpolator.*;\n"
+                + "class Remainder {\n"
+                + "    @StringInterpolator(format = true)\n"
+                + "    static String get(int a, int d) { return \"${a%d}\"; }\n"
+                + "}\n");
+        try {
+            List<String> warnings = c.messages(Diagnostic.Kind.WARNING);
+            assertEquals(warnings.toString(), 1, warnings.size());
+            assertTrue(warnings.get(0), warnings.get(0).contains("${a % d}"));
+            assertEquals("7", c.invoke("Remainder", "get", 7, 2));
+        } finally {
+            c.delete();
+        }
+    }
+
+    @Test
+    public void unparsableExpression() throws Exception {
+        Compilation c = Compilation.compile("import com.github.gg_a.interpolator.*;\n"
+                + "class Unparsable {\n"
+                + "    @StringInterpolator(format = true)\n"
+                + "    static String get(int a) { return \"${a +%d}\"; }\n"
+                + "}\n");
+        try {
+            assertFalse(c.success());
+        } finally {
+            c.delete();
+        }
+    }
+
+    private void assertFormats(String className, Locale locale) throws Exception {
+        assertFormats(compilation, className, locale);
+    }
+
+    private static void assertFormats(Compilation c, String className, Locale locale) throws Exception {
+        assertFormats(c, className, locale, "int", INTEGER_SPECS, INTS);
+        assertFormats(c, className, locale, "long", INTEGER_SPECS, LONGS);
+        assertFormats(c, className, locale, "Integer", INTEGER_SPECS, BOXED);
+        assertFormats(c, className, locale, "double", FLOAT_SPECS, DOUBLES);
+        assertFormats(c, className, locale, "float", FLOAT_SPECS, FLOATS);
+        assertFormats(c, className, locale, "String", STRING_SPECS, STRINGS);
+        assertFormats(c, className, locale, "char", STRING_SPECS, CHARS);
+        assertFormats(c, className, locale, "boolean", STRING_SPECS, BOOLEANS);
+    }
+
+    private static void assertFormats(Compilation c, String className, Locale locale, String type, String[] specs,
+                                      Object[] values) throws Exception {
+        for (Object value : values) {
+            String[] formatted = (String[]) c.invoke(className, "format_" + type, value);
+            for (int i = 0; i < specs.length; i++) {
+                String expected = String.format(locale, "%" + specs[i], value);
+                assertEquals(locale + " %" + specs[i] + " " + type + " " + value, expected, formatted[i]);
+            }
+        }
+    }
+
+    private static String source(String className, String formatLocale) {
+        StringBuilder source = new StringBuilder()
+                .append("import com.github.gg_a.interpolator.*;\n")
+                .append("@StringInterpolator(format = true, formatLocale = FormatLocale.").append(formatLocale).append(")\n")
+                .append("class ").append(className).append(" {\n")
+                .append("    static final int K = -42;\n")
+                .append("    static final double D = 1234.5678;\n");
+        method(source, "int", INTEGER_SPECS);
+        method(source, "long", INTEGER_SPECS);
+        method(source, "Integer", INTEGER_SPECS);
+        method(source, "double", FLOAT_SPECS);
+        method(source, "float", FLOAT_SPECS);
+        method(source, "String", STRING_SPECS);
+        method(source, "char", STRING_SPECS);
+        method(source, "boolean", STRING_SPECS);
+        source.append("    static String[] constants() { return new String[]{");
+        for (String spec : INTEGER_SPECS) source.append("\"${K%").append(spec).append("}\", ");
+        for (String spec : FLOAT_SPECS) source.append("\"${D%").append(spec).append("}\", ");
+        return source.append("}; }\n}\n").toString();
+    }
+
+    /*
+     * static String[] format_int(int v) { return new String[]{"${v%d}", "${v%5d}", ...}; }
+     */
+    private static void method(StringBuilder source, String type, String[] specs) {
+        source.append("    static String[] format_").append(type).append('(').append(type).append(" v) { return new String[]{");
+        source.append(String.join(", ", Arrays.stream(specs).map(spec -> "\"${v%" + spec + "}\"").toArray(String[]::new)));
+        source.append("}; }\n");
+    }
+}
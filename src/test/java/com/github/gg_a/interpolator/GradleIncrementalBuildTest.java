@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Builds a project with Gradle twice and checks which classes the second, incremental build recompiles:
+ * the processor is isolating, so editing one annotated class recompiles only that class and the classes which use it
+ * (Gradle recompiles those anyway), not every annotated class.
+ * Needs a Gradle distribution (GRADLE_HOME or {@code gradle} on the PATH) and Java 17, it is skipped otherwise.
+ * Gradle runs offline, the project has no dependencies besides the processor.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+public class GradleIncrementalBuildTest {
+
+    private static final long OLD = 0;
+    private static final String[] JAVAC_PACKAGES = {"api", "code", "comp", "file", "jvm", "main", "model", "parser", "processing", "tree", "util"};
+
+    private Path dir;
+    private int builds;
+
+    @Before
+    public void createProject() throws Exception {
+        assumeTrue("Gradle needs Java 17", !System.getProperty("java.specification.version").startsWith("1.")
+                && Integer.parseInt(System.getProperty("java.specification.version")) >= 17);
+        assumeTrue("no Gradle distribution", gradle() != null);
+
+        dir = Files.createTempDirectory("interpolator-gradle");
+        String classes = new File(StringInterpolator.class.getProtectionDomain().getCodeSource().getLocation().toURI())
+                .getPath().replace('\\', '/');
+        String opens = Arrays.stream(JAVAC_PACKAGES)
+                .map(p -> "'--add-opens=jdk.compiler/com.sun.tools.javac." + p + "=ALL-UNNAMED'")
+                .collect(Collectors.joining(", "));
+        write("settings.gradle", "rootProject.name = 'incremental'\n");
+        write("build.gradle", "plugins { id 'java' }\n"
+                + "dependencies {\n"
+                + "    implementation files('" + classes + "')\n"
+                + "    annotationProcessor files('" + classes + "')\n"
+                + "}\n"
+                + "tasks.withType(JavaCompile).configureEach {\n"
+                + "    options.fork = true\n"
+                + "    options.forkOptions.jvmArgs += [" + opens + "]\n"
+                + "}\n");
+        write("src/main/java/p/A.java", annotated("A", "a ${x}"));
+        write("src/main/java/p/B.java", annotated("B", "b ${x}"));
+        write("src/main/java/p/D.java", annotated("D", "${p.Constants.NAME} ${x}"));
+        write("src/main/java/p/C.java", "package p;\nclass C {\n    static String c() { return B.get(1); }\n}\n");
+        write("src/main/java/p/Constants.java", constants("one"));
+    }
+
+    @After
+    public void delete() throws Exception {
+        if (dir == null) return;
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted((p1, p2) -> p2.compareTo(p1)).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Test
+    public void editAnnotatedClass() throws Exception {
+        build();
+        write("src/main/java/p/A.java", annotated("A", "A ${x}"));
+        assertEquals(new TreeSet<>(Arrays.asList("p/A.class")), build());
+    }
+
+    @Test
+    public void editConstant() throws Exception {
+        build();
+        write("src/main/java/p/Constants.java", constants("two"));
+        // D uses the constant in ${}, it is recompiled although the value is inlined
+        assertEquals(new TreeSet<>(Arrays.asList("p/Constants.class", "p/D.class")), build());
+    }
+
+    /**
+     * Runs {@code gradle compileJava} and marks every class file as old.
+     *
+     * @return the class files which the build wrote
+     */
+    private Set<String> build() throws Exception {
+        Path log = dir.resolve("build.log");
+        ProcessBuilder builder = new ProcessBuilder(gradle(), "--offline", "--no-daemon", "--info", "compileJava")
+                .directory(dir.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile());
+        builder.environment().put("JAVA_HOME", System.getProperty("java.home"));
+        Process gradle = builder.start();
+        if (!gradle.waitFor(5, TimeUnit.MINUTES)) {
+            gradle.destroyForcibly();
+            throw new AssertionError("Gradle did not finish in 5 minutes");
+        }
+        String output = new String(Files.readAllBytes(log), StandardCharsets.UTF_8);
+        assertEquals(output, 0, gradle.exitValue());
+        // the first build has no history
+        if (builds++ > 0) assertFalse(output, output.contains("Full recompilation is required"));
+
+        Set<String> written = new TreeSet<>();
+        Path classes = dir.resolve("build/classes/java/main");
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(classes)) {
+            files = paths.filter(p -> p.toString().endsWith(".class")).collect(Collectors.toCollection(ArrayList::new));
+        }
+        assertTrue(output, !files.isEmpty());
+        for (Path file : files) {
+            if (Files.getLastModifiedTime(file).toMillis() != OLD) {
+                written.add(classes.relativize(file).toString().replace(File.separatorChar, '/'));
+                Files.setLastModifiedTime(file, FileTime.fromMillis(OLD));
+            }
+        }
+        return written;
+    }
+
+    private void write(String path, String content) throws IOException {
+        Path file = dir.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String annotated(String name, String literal) {
+        return "package p;\n"
+                + "import com.github.gg_a.interpolator.StringInterpolator;\n"
+                + "@StringInterpolator\n"
+                + "class " + name + " {\n"
+                + "    static String get(int x) { return \"" + literal + "\"; }\n"
+                + "}\n";
+    }
+
+    private static String constants(String name) {
+        return "package p;\npublic class Constants {\n    public static final String NAME = \"" + name + "\";\n}\n";
+    }
+
+    private static String gradle() {
+        String executable = File.separatorChar == '\\' ? "gradle.bat" : "gradle";
+        List<String> dirs = new ArrayList<>();
+        if (System.getenv("GRADLE_HOME") != null) dirs.add(System.getenv("GRADLE_HOME") + File.separator + "bin");
+        if (System.getenv("PATH") != null) dirs.addAll(Arrays.asList(System.getenv("PATH").split(File.pathSeparator)));
+        for (String d : dirs) {
+            File file = new File(d, executable);
+            if (file.canExecute()) return file.getPath();
+        }
+        return null;
+    }
+}
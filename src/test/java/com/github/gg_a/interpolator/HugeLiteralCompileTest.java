@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compiles literals with {@value #PLACEHOLDERS} placeholders with the processor, with each concat strategy and
+ * {@code Interpolate.sql}, which binds its parameters in chunks. javac runs on a thread with a small stack:
+ * a literal which is not split into chunks overflows it. The compilation takes about as long per placeholder as
+ * that of literals with a tenth of the placeholders, and less than {@value #MAX_SECONDS} seconds.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+public class HugeLiteralCompileTest {
+
+    private static final int PLACEHOLDERS = 5000;
+    private static final int BASELINE_PLACEHOLDERS = PLACEHOLDERS / 10;
+    private static final long MAX_SECONDS = 120;
+    /**
+     * time per placeholder relative to the baseline, generous for timing noise; it is about 10 if the time grows
+     * with the square of the placeholders
+     */
+    private static final int MAX_SLOWDOWN = 4;
+    private static final String[] FIELDS = {"a", "b", "c", "s", "ch"};
+    private static final Object[] VALUES = {1, 2L, 0.5, "q\"", "c"};
+
+    private static Compilation compilation;
+    private static Compilation baseline;
+
+    @BeforeClass
+    public static void compile() throws Exception {
+        compilation = Compilation.compile(Arrays.asList(source("Huge", PLACEHOLDERS)), 512 * 1024);
+        compilation.load("Huge");
+        // after the huge literals, javac and the processor are warmed up
+        baseline = Compilation.compile(Arrays.asList(source("Baseline", BASELINE_PLACEHOLDERS)), 512 * 1024);
+        baseline.load("Baseline");
+    }
+
+    @AfterClass
+    public static void delete() throws Exception {
+        if (compilation != null) compilation.delete();
+        if (baseline != null) baseline.delete();
+    }
+
+    @Test
+    public void compileTime() {
+        long nanos = compilation.nanos();
+        assertTrue("javac took " + TimeUnit.NANOSECONDS.toMillis(nanos) + " ms", nanos < TimeUnit.SECONDS.toNanos(MAX_SECONDS));
+        double perPlaceholder = (double) nanos / PLACEHOLDERS;
+        double baselinePerPlaceholder = (double) baseline.nanos() / BASELINE_PLACEHOLDERS;
+        assertTrue(String.format("%.0f ns per placeholder, %.0f ns with %d placeholders", perPlaceholder, baselinePerPlaceholder,
+                BASELINE_PLACEHOLDERS), perPlaceholder < MAX_SLOWDOWN * baselinePerPlaceholder);
+    }
+
+    @Test
+    public void concatStrategies() throws Exception {
+        String expected = expected(false);
+        for (ConcatStrategy concat : ConcatStrategy.values()) {
+            assertEquals(concat.name(), expected, invoke("concat_" + concat.name()));
+        }
+    }
+
+    @Test
+    public void escape() throws Exception {
+        assertEquals(expected(true), invoke("json"));
+    }
+
+    @Test
+    public void sqlParams() throws Exception {
+        SqlQuery query = (SqlQuery) invoke("sql");
+        StringBuilder sql = new StringBuilder("SELECT ");
+        Object[] parameters = new Object[PLACEHOLDERS];
+        for (int i = 0; i < PLACEHOLDERS; i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+            parameters[i] = VALUES[i % VALUES.length];
+        }
+        assertEquals(sql.toString(), query.getSql());
+        assertEquals(PLACEHOLDERS, query.getParameterCount());
+        assertArrayEquals(parameters, query.getParameters());
+    }
+
+    private static Object invoke(String method) throws Exception {
+        Object result = compilation.invoke("Huge", method);
+        assertNotNull(method, result);
+        return result;
+    }
+
+    /*
+     * "${a}${b}${c}${s}${ch}${a}${b}|${c}..."
+     */
+    private static String template(int placeholders) {
+        StringBuilder template = new StringBuilder();
+        for (int i = 0; i < placeholders; i++) {
+            if (i % 7 == 6) template.append('|');
+            template.append("${").append(FIELDS[i % FIELDS.length]).append('}');
+        }
+        return template.toString();
+    }
+
+    private static String expected(boolean json) {
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < PLACEHOLDERS; i++) {
+            if (i % 7 == 6) expected.append('|');
+            Object value = VALUES[i % VALUES.length];
+            expected.append(json && value instanceof String ? ((String) value).replace("\"", "\\\"") : value);
+        }
+        return expected.toString();
+    }
+
+    private static String source(String className, int placeholders) {
+        String template = template(placeholders);
+        StringBuilder source = new StringBuilder()
+                .append("import com.github.gg_a.interpolator.*;\n")
+                .append("class ").append(className).append(" {\n")
+                .append("    static int a = 1; static long b = 2L; static double c = 0.5; static String s = \"q\\\"\"; static char ch = 'c';\n");
+        for (ConcatStrategy concat : ConcatStrategy.values()) {
+            source.append("    @StringInterpolator(concat = ConcatStrategy.").append(concat.name()).append(")\n")
+                    .append("    static String concat_").append(concat.name())
+                    .append("() { return \"").append(template).append("\"; }\n");
+        }
+        source.append("    @StringInterpolator(escape = Escape.JSON)\n")
+                .append("    static String json() { return \"").append(template).append("\"; }\n");
+
+        StringBuilder sql = new StringBuilder("SELECT ");
+        for (int i = 0; i < placeholders; i++) sql.append(i == 0 ? "" : ", ").append("${").append(FIELDS[i % FIELDS.length]).append('}');
+        source.append("    @StringInterpolator\n")
+                .append("    static SqlQuery sql() { return Interpolate.sql(\"").append(sql).append("\"); }\n")
+                .append("}\n");
+        return source.toString();
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator;
+
+import java.io.StringWriter;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * {@code Interpolate.into} a {@link StringBuilder}, a {@link StringBuffer} and a {@link java.io.Writer} against
+ * appending the eager interpolation of the same literal, for values of every type and a literal which is
+ * appended in chunks.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+public class IntoCompileTest {
+
+    private static final String TEMPLATE = "${i}${d}|i=${i} l=${l} d=${d} f=${f} c=${c} b=${b} s=${s} n=${n} seq=${seq} nseq=${nseq} "
+            + "cs=${cs} o=${o} sum=${i + d} call=${cs()}\\n";
+    private static final String PARAMETERS = "int i, long l, double d, float f, char c, boolean b, String s, String n, "
+            + "CharSequence seq, CharSequence nseq, char[] cs, Object o";
+
+    private static Compilation compilation;
+
+    @BeforeClass
+    public static void compile() throws Exception {
+        StringBuilder longTemplate = new StringBuilder();
+        for (int k = 0; k < 200; k++) longTemplate.append("${i + ").append(k).append("},");
+        compilation = Compilation.compile("import com.github.gg_a.interpolator.*;\n"
+                + "class Into {\n"
+                + "    static int targets;\n"
+                + "    static int targets() { return targets; }\n"
+                + "    static char[] cs() { return new char[]{'x', 'y'}; }\n"
+                + "    static StringBuilder target(StringBuilder sb) { targets++; return sb; }\n"
+                + "    @StringInterpolator\n"
+                + "    static String eager(" + PARAMETERS + ") { return \"" + TEMPLATE + "\"; }\n"
+                + "    @StringInterpolator\n"
+                + "    static StringBuilder builder(StringBuilder sb, " + PARAMETERS + ") {\n"
+                + "        return Interpolate.into(target(sb), \"" + TEMPLATE + "\");\n"
+                + "    }\n"
+                + "    @StringInterpolator\n"
+                + "    static StringBuffer buffer(StringBuffer sb, " + PARAMETERS + ") { return Interpolate.into(sb, \"" + TEMPLATE + "\"); }\n"
+                + "    @StringInterpolator\n"
+                + "    static Appendable writer(java.io.Writer w, " + PARAMETERS + ") throws java.io.IOException {\n"
+                + "        return Interpolate.into(w, \"" + TEMPLATE + "\");\n"
+                + "    }\n"
+                + "    @StringInterpolator\n"
+                + "    static String longEager(int i) { return \"" + longTemplate + "\"; }\n"
+                + "    @StringInterpolator\n"
+                + "    static StringBuilder longInto(StringBuilder sb, int i) { return Interpolate.into(sb, \"" + longTemplate + "\"); }\n"
+                + "}\n");
+    }
+
+    @AfterClass
+    public static void delete() throws Exception {
+        if (compilation != null) compilation.delete();
+    }
+
+    @Test
+    public void sameAsEager() throws Exception {
+        Object[][] arguments = {
+                {42, 1L << 40, 0.1 + 0.2, 1.1f, 'c', true, "s", null, new StringBuilder("sb"), null, new char[]{'a', 'b'},
+                        java.util.Arrays.asList(1, 2)},
+                {-1, Long.MIN_VALUE, Double.NaN, -0.0f, 'ß', false, "", null, "", null, new char[0], null},
+        };
+        for (Object[] args : arguments) {
+            String expected = "> " + compilation.invoke("Into", "eager", args);
+
+            StringBuilder sb = new StringBuilder("> ");
+            int targets = (Integer) compilation.invoke("Into", "targets");
+            assertSame(sb, compilation.invoke("Into", "builder", prepend(sb, args)));
+            assertEquals(expected, sb.toString());
+            // the target is evaluated once
+            assertEquals(targets + 1, compilation.invoke("Into", "targets"));
+
+            StringBuffer buffer = new StringBuffer("> ");
+            assertSame(buffer, compilation.invoke("Into", "buffer", prepend(buffer, args)));
+            assertEquals(expected, buffer.toString());
+
+            StringWriter writer = new StringWriter();
+            writer.write("> ");
+            assertSame(writer, compilation.invoke("Into", "writer", prepend(writer, args)));
+            assertEquals(expected, writer.toString());
+        }
+    }
+
+    @Test
+    public void longLiteral() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        compilation.invoke("Into", "longInto", sb, 7);
+        assertEquals(compilation.invoke("Into", "longEager", 7), sb.toString());
+    }
+
+    private static Object[] prepend(Object target, Object[] args) {
+        Object[] all = new Object[args.length + 1];
+        all[0] = target;
+        System.arraycopy(args, 0, all, 1, args.length);
+        return all;
+    }
+}
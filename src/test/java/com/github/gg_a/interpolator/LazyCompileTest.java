@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator;
+
+import com.github.gg_a.interpolator.runtime.LazyString;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@code Interpolate.lazy} against the eager interpolation of the same literal: the values are evaluated
+ * where {@code lazy} is called, their {@code toString()} only by the first {@code toString()} of the result.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+public class LazyCompileTest {
+
+    private static final String TEMPLATE = "${i}${d}|i=${i} d=${d} f=${f} c=${c} s=${s} n=${n} cs=${cs} o=${o} sum=${i + d} call=${cs()}";
+
+    private static Compilation compilation;
+
+    @BeforeClass
+    public static void compile() throws Exception {
+        compilation = Compilation.compile("import com.github.gg_a.interpolator.*;\n"
+                + "class Lazy {\n"
+                + "    static int calls;\n"
+                + "    static int calls() { return calls; }\n"
+                + "    static Object counter() { return new Object() { public String toString() { return \"n\" + (++calls); } }; }\n"
+                + "    static char[] cs() { return new char[]{'x', 'y'}; }\n"
+                + "    @StringInterpolator\n"
+                + "    static CharSequence lazy(int i, double d, float f, char c, String s, String n, char[] cs, Object o) {\n"
+                + "        return Interpolate.lazy(\"" + TEMPLATE + "\");\n"
+                + "    }\n"
+                + "    @StringInterpolator\n"
+                + "    static String eager(int i, double d, float f, char c, String s, String n, char[] cs, Object o) {\n"
+                + "        return \"" + TEMPLATE + "\";\n"
+                + "    }\n"
+                + "    @StringInterpolator\n"
+                + "    static CharSequence captured() { int i = 1; CharSequence lazy = Interpolate.lazy(\"i=${i}\"); i = 2; return lazy; }\n"
+                + "    @StringInterpolator\n"
+                + "    static CharSequence deferred() { return Interpolate.lazy(\"${counter()}\"); }\n"
+                + "    @StringInterpolator\n"
+                + "    static CharSequence constant() { return Interpolate.lazy(\"no placeholders\"); }\n"
+                + "}\n");
+    }
+
+    @AfterClass
+    public static void delete() throws Exception {
+        if (compilation != null) compilation.delete();
+    }
+
+    @Test
+    public void sameAsEager() throws Exception {
+        Object[][] arguments = {
+                {42, 0.1 + 0.2, 1.1f, 'c', "s", null, new char[]{'a', 'b'}, java.util.Arrays.asList(1, 2)},
+                {-1, Double.NaN, -0.0f, 'ß', "", null, new char[0], null},
+        };
+        for (Object[] args : arguments) {
+            CharSequence lazy = (CharSequence) compilation.invoke("Lazy", "lazy", args);
+            assertTrue(lazy instanceof LazyString);
+            String expected = (String) compilation.invoke("Lazy", "eager", args);
+            assertEquals(expected, lazy.toString());
+            assertSame(lazy.toString(), lazy.toString());
+            assertEquals(expected.length(), lazy.length());
+            assertEquals(expected.charAt(3), lazy.charAt(3));
+            assertEquals(expected.subSequence(2, 9), lazy.subSequence(2, 9));
+        }
+    }
+
+    @Test
+    public void valuesAreCaptured() throws Exception {
+        assertEquals("i=1", compilation.invoke("Lazy", "captured").toString());
+    }
+
+    @Test
+    public void toStringIsDeferred() throws Exception {
+        int calls = (Integer) compilation.invoke("Lazy", "calls");
+        CharSequence lazy = (CharSequence) compilation.invoke("Lazy", "deferred");
+        assertEquals(calls, compilation.invoke("Lazy", "calls"));
+        assertEquals("n" + (calls + 1), lazy.toString());
+        assertEquals("n" + (calls + 1), lazy.toString());
+        assertEquals(calls + 1, compilation.invoke("Lazy", "calls"));
+    }
+
+    @Test
+    public void constantIsString() throws Exception {
+        assertEquals(String.class, compilation.invoke("Lazy", "constant").getClass());
+    }
+}
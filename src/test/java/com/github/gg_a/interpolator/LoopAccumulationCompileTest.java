@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.tools.Diagnostic;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * {@code s += "...${x}..."} in loops, rewritten to a hoisted {@code StringBuilder}, against the same loops written
+ * as {@code s = s + "...${x}..."}, which are not rewritten: the value of the variable after the loop ends, after a
+ * {@code break}, a labelled {@code continue}, a {@code return} and an exception, in every kind of loop.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+public class LoopAccumulationCompileTest {
+
+    /**
+     * name -> body with {@code ACC} for the accumulation, parameters {@code int n, int stop}, the value is returned or
+     * stored in {@code last}
+     */
+    private static final Map<String, String> LOOPS = new LinkedHashMap<>();
+
+    static {
+        LOOPS.put("complete", "String s = \"\"; for (int i = 0; i < n; i++) { ACC(\"${i},\") } return s;");
+        LOOPS.put("initialNull", "String s = null; for (int i = 0; i < n; i++) { ACC(\"${i},\") } return s;");
+        LOOPS.put("breakLoop", "String s = \"start:\"; for (int i = 0; i < n; i++) { if (i == stop) break; ACC(\"${i},\") } return s;");
+        LOOPS.put("continueOuter", "String s = \"\"; outer: for (int i = 0; i < n; i++) { for (int j = 0; j < 3; j++) {\n"
+                + "    if (j == stop) continue outer; ACC(\"${i}.${j},\") } } return s;");
+        LOOPS.put("whileLoop", "String s = \"\"; int i = 0; while (i < n) { ACC(\"${i++};\") } return s;");
+        LOOPS.put("doLoop", "String s = \"\"; int i = 0; do { ACC(\"${i};\") } while (++i < n); return s;");
+        LOOPS.put("foreach", "String s = \"\"; for (int i : new int[n]) { ACC(\"${i + stop};\") } return s;");
+        LOOPS.put("innerBlock", "String s = \"\"; if (n >= 0) { for (int i = 0; i < n; i++) { ACC(\"${i},\") } } return s;");
+        LOOPS.put("returnInLoop", "String s = \"\"; try { for (int i = 0; i < n; i++) { if (i == stop) return \"returned\"; ACC(\"${i},\") } }\n"
+                + "    finally { last = s; } return \"completed\";");
+        LOOPS.put("exceptionInValue", "String s = \"\"; try { for (int i = 0; i < n; i++) { ACC(\"${check(i, stop)},\") } }\n"
+                + "    catch (IllegalStateException e) { return s + \"!\"; } return s;");
+        LOOPS.put("exceptionAfterAppend", "String s = \"\"; try { for (int i = 0; i < n; i++) { ACC(\"${i},\") check(i, stop); } }\n"
+                + "    catch (IllegalStateException e) { return s + \"!\"; } return s;");
+        LOOPS.put("uncaught", "String s = \"\"; try { for (int i = 0; i < n; i++) { ACC(\"${i},\") check(i, stop); } }\n"
+                + "    finally { last = s; } return s;");
+    }
+
+    private static Compilation compilation;
+
+    @BeforeClass
+    public static void compile() throws Exception {
+        StringBuilder source = new StringBuilder()
+                .append("import com.github.gg_a.interpolator.*;\n")
+                .append("@StringInterpolator\n")
+                .append("class Loops {\n")
+                .append("    static String last;\n")
+                .append("    static String last() { return last; }\n")
+                .append("    static void reset() { last = null; }\n")
+                .append("    static int check(int i, int stop) { if (i == stop) throw new IllegalStateException(); return i; }\n");
+        for (Map.Entry<String, String> loop : LOOPS.entrySet()) {
+            source.append("    static String ").append(loop.getKey()).append("(int n, int stop) {\n        ")
+                    .append(loop.getValue().replaceAll("ACC\\((\".*?\")\\)", "s += $1;")).append("\n    }\n")
+                    .append("    static String ").append(loop.getKey()).append("_reference(int n, int stop) {\n        ")
+                    .append(loop.getValue().replaceAll("ACC\\((\".*?\")\\)", "s = s + $1;")).append("\n    }\n");
+        }
+        compilation = Compilation.compile(source.append("}\n").toString());
+    }
+
+    @AfterClass
+    public static void delete() throws Exception {
+        if (compilation != null) compilation.delete();
+    }
+
+    @Test
+    public void rewritten() {
+        List<String> rewritten = new ArrayList<>();
+        for (String note : compilation.messages(Diagnostic.Kind.NOTE)) {
+            if (note.contains("rewritten to a StringBuilder") && !note.contains("not rewritten")) rewritten.add(note);
+        }
+        assertEquals(rewritten.toString(), LOOPS.size(), rewritten.size());
+    }
+
+    @Test
+    public void sameAsReference() throws Exception {
+        for (String name : LOOPS.keySet()) {
+            for (int n : new int[]{0, 1, 5}) {
+                for (int stop : new int[]{-1, 0, 1, 3}) {
+                    String message = name + "(" + n + ", " + stop + ")";
+                    assertEquals(message, result(name + "_reference", n, stop), result(name, n, stop));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the returned value or the exception, and the value stored in {@code last}
+     */
+    private static String result(String method, int n, int stop) throws Exception {
+        compilation.invoke("Loops", "reset");
+        String result;
+        try {
+            result = String.valueOf(compilation.invoke("Loops", method, n, stop));
+        } catch (IllegalStateException e) {
+            result = "threw";
+        }
+        return result + " last=" + compilation.invoke("Loops", "last");
+    }
+}
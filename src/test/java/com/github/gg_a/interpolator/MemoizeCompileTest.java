@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.github.gg_a.interpolator.metrics.InterpolatorMetrics;
+import com.github.gg_a.interpolator.metrics.MemoSnapshot;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@code @StringInterpolator(memoize = ...)} against the same literals without memoize: values of every type,
+ * mutable values, escaped and formatted values, and a literal with many values; equal values return the same
+ * instance, and a literal with more combinations than the capacity still returns the right strings.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+public class MemoizeCompileTest {
+
+    private static final String PARAMETERS = "String s, int i, long l, double d, float f, char c, boolean b, char[] cs, Object o";
+    private static final String TEMPLATE = "requests.${s}.${i}.${l}.${d}.${f}.${c}.${b}.${cs}.${o}.${i + d}";
+
+    private static Compilation compilation;
+
+    @BeforeClass
+    public static void compile() throws Exception {
+        StringBuilder longTemplate = new StringBuilder();
+        for (int k = 0; k < 100; k++) longTemplate.append("${i + ").append(k).append("}.");
+        compilation = Compilation.compile("import com.github.gg_a.interpolator.*;\n"
+                + "class Memo {\n"
+                + "    @StringInterpolator(memoize = 64)\n"
+                + "    static String memo(" + PARAMETERS + ") { return \"" + TEMPLATE + "\"; }\n"
+                + "    @StringInterpolator\n"
+                + "    static String eager(" + PARAMETERS + ") { return \"" + TEMPLATE + "\"; }\n"
+                + "    @StringInterpolator(memoize = 64, escape = Escape.JSON, format = true)\n"
+                + "    static String memoEscaped(String s, double d) { return \"{\\\"s\\\": \\\"${s}\\\", \\\"d\\\": ${d%.2f}}\"; }\n"
+                + "    @StringInterpolator(escape = Escape.JSON, format = true)\n"
+                + "    static String eagerEscaped(String s, double d) { return \"{\\\"s\\\": \\\"${s}\\\", \\\"d\\\": ${d%.2f}}\"; }\n"
+                + "    @StringInterpolator(memoize = 16)\n"
+                + "    static String small(int i) { return \"topic.${i}\"; }\n"
+                + "    @StringInterpolator(memoize = 16)\n"
+                + "    static String memoLong(int i) { return \"" + longTemplate + "\"; }\n"
+                + "    @StringInterpolator\n"
+                + "    static String eagerLong(int i) { return \"" + longTemplate + "\"; }\n"
+                + "}\n");
+    }
+
+    @AfterClass
+    public static void delete() throws Exception {
+        if (compilation != null) compilation.delete();
+    }
+
+    @Test
+    public void sameAsEager() throws Exception {
+        StringBuilder mutable = new StringBuilder("m");
+        Object[][] arguments = {
+                {"eu", 200, 1L << 40, 0.5, 1.5f, 'x', true, new char[]{'a', 'b'}, mutable},
+                {null, -1, Long.MIN_VALUE, -0.0, Float.NaN, 'ß', false, new char[0], null},
+                {"eu", 200, 1L << 40, 0.0, 1.5f, 'x', true, new char[]{'a', 'b'}, mutable},
+                {"eu", 200, 1L << 40, 0.5, 1.5f, 'x', true, new char[]{'a', 'c'}, 1},
+                {"eu", 200, 1L << 40, 0.5, 1.5f, 'x', true, new char[]{'a', 'c'}, 1L},
+                {"eu", 200, 1L << 40, 0.5, 1.5f, 'x', true, new char[]{'a', 'c'}, "1"},
+        };
+        for (int round = 0; round < 3; round++) {
+            for (Object[] args : arguments) {
+                assertEquals(compilation.invoke("Memo", "eager", args), compilation.invoke("Memo", "memo", args));
+            }
+            // a hit is the string of the current value
+            mutable.append(round);
+        }
+        for (String s : new String[]{"a\"b\n", "plain", null}) {
+            for (double d : new double[]{1.005, -0.0, Double.NaN}) {
+                assertEquals(compilation.invoke("Memo", "eagerEscaped", s, d), compilation.invoke("Memo", "memoEscaped", s, d));
+                assertEquals(compilation.invoke("Memo", "eagerEscaped", s, d), compilation.invoke("Memo", "memoEscaped", s, d));
+            }
+        }
+        for (int i = 0; i < 3; i++) assertEquals(compilation.invoke("Memo", "eagerLong", i), compilation.invoke("Memo", "memoLong", i));
+    }
+
+    @Test
+    public void sameInstance() throws Exception {
+        Object[] args = {"us", 404, 7L, 0.25, 2f, 'g', false, new char[]{'q'}, "get"};
+        Object first = compilation.invoke("Memo", "memo", args);
+        assertNotSame(first, compilation.invoke("Memo", "eager", args));
+        assertSame(first, compilation.invoke("Memo", "memo", args));
+        args[7] = new char[]{'q'};
+        assertSame(first, compilation.invoke("Memo", "memo", args));
+        assertSame(compilation.invoke("Memo", "memoLong", 7), compilation.invoke("Memo", "memoLong", 7));
+    }
+
+    @Test
+    public void manyCombinations() throws Exception {
+        for (int i = 0; i < 200_000; i++) assertEquals("topic." + i, compilation.invoke("Memo", "small", i));
+        MemoSnapshot snapshot = snapshot("topic.${i}");
+        assertTrue(snapshot.toString(), snapshot.getBypassed() > 0);
+        assertTrue(snapshot.toString(), snapshot.getSize() <= 16);
+
+        // few combinations again, the table is used after the bypass
+        for (int i = 0; i < 200_000; i++) assertEquals("topic." + i % 4, compilation.invoke("Memo", "small", i % 4));
+        long hits = snapshot("topic.${i}").getHits();
+        for (int i = 0; i < 100; i++) compilation.invoke("Memo", "small", i % 4);
+        assertEquals(hits + 100, snapshot("topic.${i}").getHits());
+    }
+
+    @Test
+    public void threads() throws Exception {
+        int threads = 4 * Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(executor.submit(() -> {
+                    for (int i = 0; i < 5000; i++) {
+                        // fewer combinations than the capacity, other tests expect hits
+                        int k = i % 8;
+                        Object[] args = {"r" + k, k, (long) k, k / 2.0, 1f, 'c', k % 2 == 0, new char[]{'z'}, k};
+                        Object expected = compilation.invoke("Memo", "eager", args);
+                        Object actual = compilation.invoke("Memo", "memo", args);
+                        if (!expected.equals(actual)) throw new AssertionError(expected + " != " + actual);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) result.get();
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+        }
+    }
+
+    private static MemoSnapshot snapshot(String template) {
+        for (MemoSnapshot memo : InterpolatorMetrics.memoSnapshot()) {
+            if (memo.getClassName().equals("Memo") && memo.getTemplate().equals(template)) return memo;
+        }
+        throw new AssertionError(template);
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import javax.management.ObjectName;
+
+import com.github.gg_a.interpolator.metrics.CallSiteSnapshot;
+import com.github.gg_a.interpolator.metrics.InterpolatorMetrics;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * {@code -Ainterpolator.metrics}: the counts, total and maximum lengths recorded for each call site from many
+ * threads, the class, line and template of the sites, the MXBean, and the output compared with the same class
+ * compiled without the option, which has no metrics at all.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+public class MetricsCompileTest {
+
+    private static Compilation metered;
+    private static Compilation plain;
+
+    @BeforeClass
+    public static void compile() throws Exception {
+        metered = Compilation.compile(source("Metered"), "-A" + InterpolatorProcessor.METRICS_OPTION);
+        plain = Compilation.compile(source("Plain"));
+    }
+
+    @AfterClass
+    public static void delete() throws Exception {
+        if (metered != null) metered.delete();
+        if (plain != null) plain.delete();
+    }
+
+    @Test
+    public void counts() throws Exception {
+        int threads = 8;
+        int calls = 1000;
+        // other tests call the methods too
+        metered.invoke("Metered", "get", 0, "s");
+        metered.invoke("Metered", "pooled", 0, "s");
+        Map<String, CallSiteSnapshot> before = sites("Metered");
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(executor.submit(() -> {
+                    for (int i = 0; i < calls; i++) {
+                        for (String method : new String[]{"get", "pooled"}) {
+                            Object expected = plain.invoke("Plain", method, i, "s");
+                            Object actual = metered.invoke("Metered", method, i, "s");
+                            if (!expected.equals(actual)) throw new AssertionError(expected + " != " + actual);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) result.get();
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+        }
+        assertEquals("k!", metered.invoke("Metered", "constant"));
+
+        long getLength = 0;
+        long pooledLength = 0;
+        for (int i = 0; i < calls; i++) {
+            getLength += ("i=" + i + " s=s").length();
+            pooledLength += ("p" + i + "s").length();
+        }
+        Map<String, CallSiteSnapshot> sites = sites("Metered");
+        assertEquals(sites.toString(), 2, sites.size());
+        assertSite(before.get("i=${i} s=${s}"), sites.get("i=${i} s=${s}"), line("i=${i} s=${s}"), threads * calls, threads * getLength,
+                ("i=" + (calls - 1) + " s=s").length());
+        assertSite(before.get("p${i}${s}"), sites.get("p${i}${s}"), line("p${i}${s}"), threads * calls, threads * pooledLength,
+                ("p" + (calls - 1) + "s").length());
+    }
+
+    @Test
+    public void mxBean() throws Exception {
+        metered.invoke("Metered", "get", 1, "s");
+        ObjectName name = new ObjectName(InterpolatorMetrics.OBJECT_NAME);
+        assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+        assertTrue((Integer) ManagementFactory.getPlatformMBeanServer().getAttribute(name, "CallSiteCount") >= 2);
+    }
+
+    @Test
+    public void off() throws Exception {
+        plain.invoke("Plain", "get", 1, "s");
+        assertTrue(sites("Plain").isEmpty());
+        try {
+            plain.load("Plain$$InterpolatorMetrics");
+            fail();
+        } catch (ClassNotFoundException expected) {
+            // no metrics without the option
+        }
+        metered.load("Metered$$InterpolatorMetrics");
+    }
+
+    /**
+     * @param count       calls between {@code before} and {@code site}
+     * @param totalLength length of the strings of these calls
+     */
+    private static void assertSite(CallSiteSnapshot before, CallSiteSnapshot site, int line, long count, long totalLength, int maxLength) {
+        assertEquals(site.toString(), "Metered", site.getClassName());
+        assertEquals(site.toString(), line, site.getLine());
+        assertEquals(site.toString(), count, site.getCount() - before.getCount());
+        assertEquals(site.toString(), totalLength, site.getTotalLength() - before.getTotalLength());
+        assertEquals(site.toString(), maxLength, site.getMaxLength());
+    }
+
+    /**
+     * @return the call sites of {@code className} by template
+     */
+    private static Map<String, CallSiteSnapshot> sites(String className) {
+        Map<String, CallSiteSnapshot> sites = new HashMap<>();
+        for (CallSiteSnapshot site : InterpolatorMetrics.snapshot()) {
+            if (site.getClassName().equals(className)) sites.put(site.getTemplate(), site);
+        }
+        return sites;
+    }
+
+    /**
+     * @return line of {@code text} in the source
+     */
+    private static int line(String text) {
+        List<String> lines = Arrays.asList(source("Metered").split("\n"));
+        for (int i = 0; i < lines.size(); i++) {
+            if (lines.get(i).contains('"' + text + '"')) return i + 1;
+        }
+        throw new AssertionError(text);
+    }
+
+    private static String source(String className) {
+        return "import com.github.gg_a.interpolator.*;\n"
+                + "class " + className + " {\n"
+                + "    static final String K = \"k\";\n"
+                + "    @StringInterpolator\n"
+                + "    static String get(int i, String s) {\n"
+                + "        return \"i=${i} s=${s}\";\n"
+                + "    }\n"
+                + "    @StringInterpolator(concat = ConcatStrategy.POOLED)\n"
+                + "    static String pooled(int i, String s) { return \"p${i}${s}\"; }\n"
+                + "    @StringInterpolator\n"
+                + "    static String constant() { return \"${K}!\"; }\n"
+                + "}\n";
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator;
+
+import java.util.Random;
+
+import com.github.gg_a.interpolator.runtime.Numbers;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * {@code -Ainterpolator.fastNumbers} against {@code String.valueOf}: literals compiled with and without the option
+ * for every concat strategy, and {@link Numbers} for every decimal with up to 3 fraction digits below 2000,
+ * the bounds of the fast path, their neighbours and random bit patterns.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+public class NumbersCompileTest {
+
+    private static final String[] STRATEGIES = {"VALUE_OF", "INLINE", "BUILDER", "POOLED", "POOLED_STRIPED"};
+    private static final double[] BOUNDS = {0, 1e-3, 1e7, 8192, 0.1, 0.5, 1, 1234.5678, 9999999.999, 1e-4, 1e-300, 1e300};
+
+    private static Compilation fast;
+    private static Compilation plain;
+
+    @BeforeClass
+    public static void compile() throws Exception {
+        StringBuilder source = new StringBuilder()
+                .append("import com.github.gg_a.interpolator.*;\n")
+                .append("class Values {\n");
+        for (String strategy : STRATEGIES) {
+            source.append("    @StringInterpolator(concat = ConcatStrategy.").append(strategy).append(")\n")
+                    .append("    static String ").append(strategy).append("(double d, float f, int i, long l, Double boxed) {\n")
+                    .append("        return \"d=${d} f=${f} i=${i} l=${l} boxed=${boxed} scaled=${d * 100} sum=${f + i} only=${d}\";\n")
+                    .append("    }\n")
+                    .append("    @StringInterpolator(concat = ConcatStrategy.").append(strategy).append(")\n")
+                    .append("    static String ").append(strategy).append("_single(double d) { return \"${d}\"; }\n");
+        }
+        fast = Compilation.compile(source.append("}\n").toString(), "-A" + InterpolatorProcessor.FAST_NUMBERS_OPTION);
+        plain = Compilation.compile(source.toString());
+    }
+
+    @AfterClass
+    public static void delete() throws Exception {
+        if (fast != null) fast.delete();
+        if (plain != null) plain.delete();
+    }
+
+    @Test
+    public void sameAsWithoutOption() throws Exception {
+        Random random = new Random(1);
+        for (int n = 0; n < 2000; n++) {
+            double d = n < BOUNDS.length ? BOUNDS[n] : n % 2 == 0 ? random.nextInt(10_000_000) / 1000.0 : Double.longBitsToDouble(random.nextLong());
+            if (n % 3 == 0) d = -d;
+            Object[] args = {d, (float) d, (int) d, (long) d, n % 5 == 0 ? null : d};
+            for (String strategy : STRATEGIES) {
+                assertEquals(strategy, plain.invoke("Values", strategy, args), fast.invoke("Values", strategy, args));
+                assertEquals(strategy, plain.invoke("Values", strategy + "_single", d), fast.invoke("Values", strategy + "_single", d));
+            }
+        }
+    }
+
+    @Test
+    public void decimals() {
+        for (int unscaled = 0; unscaled < 2_000_000; unscaled++) {
+            for (int k = 0; k <= 3; k++) {
+                double d = unscaled / Math.pow(10, k);
+                assertDouble(d);
+                assertFloat((float) d);
+            }
+        }
+    }
+
+    @Test
+    public void neighbours() {
+        for (double bound : BOUNDS) {
+            double d = bound;
+            double up = bound;
+            for (int n = 0; n < 1000; n++) {
+                assertDouble(d);
+                assertDouble(-up);
+                assertFloat((float) d);
+                assertFloat(-(float) up);
+                d = Math.nextDown(d);
+                up = Math.nextUp(up);
+            }
+            float f = (float) bound;
+            for (int n = 0; n < 1000; n++, f = Math.nextUp(f)) assertFloat(f);
+        }
+        for (double special : new double[]{Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.MIN_VALUE,
+                Double.MAX_VALUE, -0.0}) {
+            assertDouble(special);
+            assertFloat((float) special);
+        }
+    }
+
+    @Test
+    public void randomBits() {
+        Random random = new Random(2);
+        for (int n = 0; n < 200_000; n++) {
+            assertDouble(Double.longBitsToDouble(random.nextLong()));
+            assertFloat(Float.intBitsToFloat(random.nextInt()));
+            assertDouble(random.nextDouble() * Math.pow(10, random.nextInt(12) - 4));
+        }
+    }
+
+    private static void assertDouble(double d) {
+        String expected = String.valueOf(d);
+        String actual = Numbers.toString(d);
+        if (!expected.equals(actual)) assertEquals(Double.doubleToRawLongBits(d) + "", expected, actual);
+        StringBuilder sb = Numbers.append(new StringBuilder("x"), d);
+        if (!sb.toString().equals("x" + expected)) assertEquals("x" + expected, sb.toString());
+    }
+
+    private static void assertFloat(float f) {
+        String expected = String.valueOf(f);
+        String actual = Numbers.toString(f);
+        if (!expected.equals(actual)) assertEquals(Float.floatToRawIntBits(f) + "", expected, actual);
+        StringBuilder sb = Numbers.append(new StringBuilder("x"), f);
+        if (!sb.toString().equals("x" + expected)) assertEquals("x" + expected, sb.toString());
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * {@link ConcatStrategy#POOLED} and {@link ConcatStrategy#POOLED_STRIPED} against {@code String.valueOf}
+ * concatenation when builders are reused: nested interpolations, exceptions while appending, strings longer than
+ * the largest pooled builder, and many threads at once.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+public class PooledCompileTest {
+
+    private static final String[] STRATEGIES = {"POOLED", "POOLED_STRIPED"};
+
+    private static Compilation compilation;
+
+    @BeforeClass
+    public static void compile() throws Exception {
+        StringBuilder source = new StringBuilder()
+                .append("import com.github.gg_a.interpolator.*;\n")
+                .append("class Pooled {\n")
+                .append("    static Object failing() { return new Object() { public String toString() { throw new IllegalStateException(); } }; }\n")
+                .append("    static String reference(int i, String s) { return \"a \" + i + \" [\" + (\"in \" + s + \" \" + i) + \"] \" + s; }\n")
+                .append("    static String longReference(String s) { return \"<\" + s + \">\"; }\n");
+        for (String strategy : STRATEGIES) {
+            source.append("    @StringInterpolator(concat = ConcatStrategy.").append(strategy).append(")\n")
+                    .append("    static String inner_").append(strategy).append("(int i, String s) { return \"in ${s} ${i}\"; }\n")
+                    .append("    @StringInterpolator(concat = ConcatStrategy.").append(strategy).append(")\n")
+                    .append("    static String get_").append(strategy)
+                    .append("(int i, String s) { return \"a ${i} [${inner_").append(strategy).append("(i, s)}] ${s}\"; }\n")
+                    .append("    @StringInterpolator(concat = ConcatStrategy.").append(strategy).append(")\n")
+                    .append("    static String failing_").append(strategy).append("(int i) { return \"a ${i} ${failing()} b\"; }\n")
+                    .append("    @StringInterpolator(concat = ConcatStrategy.").append(strategy).append(")\n")
+                    .append("    static String long_").append(strategy).append("(String s) { return \"<${s}>\"; }\n");
+        }
+        compilation = Compilation.compile(source.append("}\n").toString());
+    }
+
+    @AfterClass
+    public static void delete() throws Exception {
+        if (compilation != null) compilation.delete();
+    }
+
+    @Test
+    public void nested() throws Exception {
+        for (String strategy : STRATEGIES) {
+            for (int i = 0; i < 3; i++) {
+                assertEquals(strategy, compilation.invoke("Pooled", "reference", i, "s" + i), compilation.invoke("Pooled", "get_" + strategy, i, "s" + i));
+            }
+        }
+    }
+
+    @Test
+    public void exception() throws Exception {
+        for (String strategy : STRATEGIES) {
+            try {
+                compilation.invoke("Pooled", "failing_" + strategy, 1);
+                fail(strategy);
+            } catch (IllegalStateException expected) {
+                // the builder is not released
+            }
+            assertEquals(strategy, compilation.invoke("Pooled", "reference", 2, "s"), compilation.invoke("Pooled", "get_" + strategy, 2, "s"));
+        }
+    }
+
+    @Test
+    public void longerThanMaxCapacity() throws Exception {
+        StringBuilder s = new StringBuilder();
+        while (s.length() <= 2 * com.github.gg_a.interpolator.runtime.PooledBuilders.DEFAULT_MAX_CAPACITY) s.append("0123456789");
+        for (String strategy : STRATEGIES) {
+            assertEquals(strategy, compilation.invoke("Pooled", "longReference", s.toString()), compilation.invoke("Pooled", "long_" + strategy, s.toString()));
+            assertEquals(strategy, "<x>", compilation.invoke("Pooled", "long_" + strategy, "x"));
+        }
+    }
+
+    @Test
+    public void threads() throws Exception {
+        int threads = 4 * Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                String s = "thread" + t;
+                results.add(executor.submit(() -> {
+                    for (int i = 0; i < 2000; i++) {
+                        for (String strategy : STRATEGIES) {
+                            Object expected = compilation.invoke("Pooled", "reference", i, s);
+                            Object actual = compilation.invoke("Pooled", "get_" + strategy, i, s);
+                            if (!expected.equals(actual)) throw new AssertionError(strategy + ": " + expected + " != " + actual);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) result.get();
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+        }
+    }
+}
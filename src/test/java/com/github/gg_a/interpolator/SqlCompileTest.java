@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.tools.Diagnostic;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * {@code Interpolate.sql}: the SQL text and the parameters of the {@link SqlQuery}, the setters which bind them,
+ * constants bound as parameters, {@link SqlQuery#identifier(String)} written into the text, many parameters bound in
+ * chunks, and the compile errors for ${} in quoted strings, quoted identifiers and comments.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+public class SqlCompileTest {
+
+    private static final String PARAMETERS = "int i, long l, double d, float f, boolean b, char c, String s, BigDecimal bd, "
+            + "byte[] bytes, Object o, Integer boxed";
+
+    private static Compilation compilation;
+
+    @BeforeClass
+    public static void compile() throws Exception {
+        StringBuilder longTemplate = new StringBuilder("SELECT * FROM t WHERE id IN (");
+        for (int k = 0; k < 100; k++) longTemplate.append(k == 0 ? "" : ", ").append("${i + ").append(k).append('}');
+        compilation = Compilation.compile("import com.github.gg_a.interpolator.*;\n"
+                + "import java.math.BigDecimal;\n"
+                + "class Sql {\n"
+                + "    static final String TABLE = \"app.users\";\n"
+                + "    static final int LIMIT = 10;\n"
+                + "    @StringInterpolator\n"
+                + "    static SqlQuery types(" + PARAMETERS + ") {\n"
+                + "        return Interpolate.sql(\"INSERT INTO t VALUES (${i}, ${l}, ${d}, ${f}, ${b}, ${c}, ${s}, ${bd}, ${bytes}, ${o}, ${boxed})\");\n"
+                + "    }\n"
+                + "    @StringInterpolator\n"
+                + "    static SqlQuery constants(String name) {\n"
+                + "        return Interpolate.sql(\"SELECT * FROM ${SqlQuery.identifier(TABLE)} u JOIN \\\"${SqlQuery.identifier(TABLE)}\\\" v\"\n"
+                + "                + \" WHERE u.name = ${name} AND u.note <> 'it''s -- not /* a comment' LIMIT ${LIMIT} -- ${}{x}\");\n"
+                + "    }\n"
+                + "    @StringInterpolator\n"
+                + "    static SqlQuery plain() { return Interpolate.sql(\"SELECT 1\"); }\n"
+                + "    @StringInterpolator\n"
+                + "    static SqlQuery many(int i) { return Interpolate.sql(\"" + longTemplate + ")\"); }\n"
+                + "    static SqlQuery notRewritten() { return Interpolate.sql(\"SELECT 1\"); }\n"
+                + "}\n");
+    }
+
+    @AfterClass
+    public static void delete() throws Exception {
+        if (compilation != null) compilation.delete();
+    }
+
+    @Test
+    public void types() throws Exception {
+        byte[] bytes = {1, 2};
+        List<Object> list = Arrays.asList(1, 2);
+        Object[] args = {42, 1L << 40, 0.5, 1.5f, true, 'x', "s", new BigDecimal("1.10"), bytes, list, 7};
+        SqlQuery query = (SqlQuery) compilation.invoke("Sql", "types", args);
+        assertEquals("INSERT INTO t VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", query.getSql());
+        assertArrayEquals(new Object[]{42, 1L << 40, 0.5, 1.5f, true, "x", "s", new BigDecimal("1.10"), bytes, list, 7}, query.getParameters());
+        assertEquals(Arrays.asList("setInt(1, 42)", "setLong(2, 1099511627776)", "setDouble(3, 0.5)", "setFloat(4, 1.5)",
+                "setBoolean(5, true)", "setString(6, x)", "setString(7, s)", "setBigDecimal(8, 1.10)", "setBytes(9, [1, 2])",
+                "setObject(10, [1, 2])", "setObject(11, 7)"), bind(query));
+
+        Object[] nulls = {0, 0L, 0.0, 0.0f, false, ' ', null, null, null, null, null};
+        assertEquals(Arrays.asList("setInt(1, 0)", "setLong(2, 0)", "setDouble(3, 0.0)", "setFloat(4, 0.0)",
+                "setBoolean(5, false)", "setString(6,  )", "setNull(7, " + Types.VARCHAR + ")", "setNull(8, " + Types.NUMERIC + ")",
+                "setNull(9, " + Types.VARBINARY + ")", "setObject(10, null)", "setObject(11, null)"),
+                bind((SqlQuery) compilation.invoke("Sql", "types", nulls)));
+    }
+
+    @Test
+    public void constants() throws Exception {
+        SqlQuery query = (SqlQuery) compilation.invoke("Sql", "constants", "a' OR '1'='1");
+        assertEquals("SELECT * FROM app.users u JOIN \"app.users\" v WHERE u.name = ? AND u.note <> 'it''s -- not /* a comment' "
+                + "LIMIT ? -- ${x}", query.getSql());
+        // the constant is bound too
+        assertArrayEquals(new Object[]{"a' OR '1'='1", 10}, query.getParameters());
+    }
+
+    @Test
+    public void plain() throws Exception {
+        SqlQuery query = (SqlQuery) compilation.invoke("Sql", "plain");
+        assertEquals("SELECT 1", query.getSql());
+        assertEquals(0, query.getParameterCount());
+    }
+
+    @Test
+    public void chunks() throws Exception {
+        SqlQuery query = (SqlQuery) compilation.invoke("Sql", "many", 1000);
+        StringBuilder sql = new StringBuilder("SELECT * FROM t WHERE id IN (");
+        Object[] parameters = new Object[100];
+        for (int k = 0; k < 100; k++) {
+            sql.append(k == 0 ? "?" : ", ?");
+            parameters[k] = 1000 + k;
+        }
+        assertEquals(sql.append(')').toString(), query.getSql());
+        assertArrayEquals(parameters, query.getParameters());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void notRewritten() throws Exception {
+        compilation.invoke("Sql", "notRewritten");
+    }
+
+    @Test
+    public void errors() throws Exception {
+        String[] templates = {
+                "SELECT * FROM t WHERE name = '${name}'",
+                "SELECT * FROM t WHERE name = 'it''s ${name}'",
+                "SELECT * FROM \\\"${name}\\\"",
+                "SELECT * FROM t -- ${name}",
+                "SELECT * FROM t /* ${name} */ WHERE 1 = 1",
+                "SELECT * FROM ${SqlQuery.identifier(name)}",
+                "SELECT * FROM ${SqlQuery.identifier(NOT_IDENTIFIER)}",
+                "SELECT * FROM t WHERE name = '${SqlQuery.identifier(TABLE)}'",
+        };
+        for (String template : templates) {
+            Compilation c = Compilation.compile("import com.github.gg_a.interpolator.*;\n"
+                    + "class SqlError {\n"
+                    + "    static final String TABLE = \"t\";\n"
+                    + "    static final String NOT_IDENTIFIER = \"t; DROP TABLE t\";\n"
+                    + "    @StringInterpolator\n"
+                    + "    static SqlQuery get(String name) { return Interpolate.sql(\"" + template + "\"); }\n"
+                    + "}\n");
+            try {
+                assertFalse(template, c.success());
+                assertTrue(template, c.messages(Diagnostic.Kind.ERROR).toString().contains("${"));
+            } finally {
+                c.delete();
+            }
+        }
+    }
+
+    /**
+     * @return the setter calls of {@code query.bind(statement)}
+     */
+    private static List<String> bind(SqlQuery query) throws Exception {
+        List<String> calls = new ArrayList<>();
+        PreparedStatement statement = (PreparedStatement) Proxy.newProxyInstance(SqlCompileTest.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                    if (!method.getName().startsWith("set")) fail(method.getName());
+                    Object value = args[1] instanceof byte[] ? Arrays.toString((byte[]) args[1]) : args[1];
+                    calls.add(method.getName() + "(" + args[0] + ", " + value + ")");
+                    return null;
+                });
+        query.bind(statement);
+        return calls;
+    }
+}
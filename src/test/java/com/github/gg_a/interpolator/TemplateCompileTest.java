@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.github.gg_a.interpolator.template.Template;
+import com.github.gg_a.interpolator.template.TemplateCache;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * {@link Template} against the compile time interpolation of the same literal with the property paths written as
+ * calls: getters, {@code is} getters, public fields, methods named after the property, {@code Map} keys, nested
+ * paths, {@code char[]} values and {@code ${}{} escapes; and {@link TemplateCache} eviction, statistics and
+ * concurrent rendering.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+public class TemplateCompileTest {
+
+    private static final String TEMPLATE = "name=${name} active=${active} count=${count} chars=${chars} "
+            + "child=${child.name} key=${extra.key} missing=${extra.missing} ${}{name} $";
+    private static final String EAGER = "name=${b.getName()} active=${b.isActive()} count=${b.count} chars=${b.chars()} "
+            + "child=${b.getChild().getName()} key=${b.getExtra().get(KEY)} missing=${b.getExtra().get(MISSING)} ${}{name} $";
+
+    private static Compilation compilation;
+
+    @BeforeClass
+    public static void compile() throws Exception {
+        compilation = Compilation.compile("import com.github.gg_a.interpolator.*;\n"
+                + "import java.util.*;\n"
+                + "class Bean {\n"
+                + "    public int count;\n"
+                + "    private final String name;\n"
+                + "    private final boolean active;\n"
+                + "    private final Bean child;\n"
+                + "    private final Map<String, Object> extra = new HashMap<>();\n"
+                + "    Bean(String name, boolean active, int count, Bean child, Object key) {\n"
+                + "        this.name = name; this.active = active; this.count = count; this.child = child; extra.put(\"key\", key);\n"
+                + "    }\n"
+                + "    public String getName() { return name; }\n"
+                + "    public boolean isActive() { return active; }\n"
+                + "    public Bean getChild() { return child; }\n"
+                + "    public Map<String, Object> getExtra() { return extra; }\n"
+                + "    public char[] chars() { return name == null ? new char[0] : name.toCharArray(); }\n"
+                + "}\n"
+                + "class Templates {\n"
+                + "    static final String KEY = \"key\";\n"
+                + "    static final String MISSING = \"missing\";\n"
+                + "    static Object bean(String name, boolean active, int count, Object key) {\n"
+                + "        return new Bean(name, active, count, new Bean(\"child of \" + name, false, 0, null, null), key);\n"
+                + "    }\n"
+                + "    @StringInterpolator\n"
+                + "    static String eager(Bean b) { return \"" + EAGER + "\"; }\n"
+                + "}\n");
+    }
+
+    @AfterClass
+    public static void delete() throws Exception {
+        if (compilation != null) compilation.delete();
+    }
+
+    @Test
+    public void sameAsCompiled() throws Exception {
+        Template template = Template.compile(TEMPLATE);
+        Object[][] arguments = {
+                {"straße", true, 42, java.util.Arrays.asList(1, 2)},
+                {null, false, -1, null},
+                {"", false, Integer.MIN_VALUE, 1.5},
+        };
+        for (Object[] args : arguments) {
+            Object bean = compilation.invoke("Templates", "bean", args);
+            String expected = (String) compilation.invoke("Templates", "eager", bean);
+            assertEquals(expected, template.render(bean));
+            assertEquals("> " + expected, template.renderTo(new StringBuilder("> "), bean).toString());
+            assertEquals(expected, template.renderTo(new StringWriter(), bean).toString());
+        }
+    }
+
+    @Test
+    public void nullValues() throws Exception {
+        assertEquals("null null", Template.compile("${a.b} ${a}").render(null));
+        Map<String, Object> root = new HashMap<>();
+        root.put("a", null);
+        assertEquals("null", Template.compile("${a.b}").render(root));
+    }
+
+    @Test
+    public void record() throws Exception {
+        String version = System.getProperty("java.specification.version");
+        assumeTrue("records need Java 16", !version.startsWith("1.") && Integer.parseInt(version) >= 16);
+        Compilation records = Compilation.compile("import com.github.gg_a.interpolator.*;\n"
+                + "class Records {\n"
+                + "    private record Point(int x, String label) {}\n"
+                + "    static Object point(int x, String label) { return new Point(x, label); }\n"
+                + "    @StringInterpolator\n"
+                + "    static String eager(int x, String label) { Point p = new Point(x, label); return \"${p.label()}=${p.x()}\"; }\n"
+                + "}\n");
+        try {
+            assertEquals(records.invoke("Records", "eager", 3, "x"),
+                    Template.compile("${label}=${x}").render(records.invoke("Records", "point", 3, "x")));
+        } finally {
+            records.delete();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void expression() {
+        Template.compile("${a + b}");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void missingProperty() throws Exception {
+        Template.compile("${nothing}").render(compilation.invoke("Templates", "bean", "a", true, 1, null));
+    }
+
+    @Test
+    public void cache() {
+        TemplateCache cache = new TemplateCache(4);
+        Template template = cache.get("${a}");
+        assertSame(template, cache.get("${a}"));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(0.5, cache.getHitRate(), 0.0);
+
+        for (int i = 0; i < 100; i++) {
+            cache.get("${a} " + i);
+            assertTrue(cache.toString(), cache.size() <= 4);
+        }
+        assertEquals(97, cache.getEvictionCount());
+        assertEquals(101, cache.getMissCount());
+    }
+
+    @Test
+    public void threads() throws Exception {
+        TemplateCache cache = new TemplateCache(8);
+        int threads = 4 * Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                results.add(executor.submit(() -> {
+                    for (int i = 0; i < 2000; i++) {
+                        Object bean = compilation.invoke("Templates", "bean", "t" + thread, i % 2 == 0, i, i);
+                        String expected = (String) compilation.invoke("Templates", "eager", bean);
+                        String actual = cache.render(TEMPLATE, bean);
+                        if (!expected.equals(actual)) throw new AssertionError(expected + " != " + actual);
+                        // other templates evict the shared one now and then
+                        cache.get("${name} " + (i % 16));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) result.get();
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+        }
+        assertTrue(cache.toString(), cache.size() <= 8 + threads);
+    }
+}
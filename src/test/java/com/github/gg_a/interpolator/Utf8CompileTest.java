@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * {@code Interpolate.utf8} into a {@code byte[]}, an {@link java.io.OutputStream} and a {@link ByteBuffer} against
+ * {@code getBytes(UTF_8)} of the eager interpolation, for values of every type, non-ASCII and surrogate pairs,
+ * and a literal which is put in chunks.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+public class Utf8CompileTest {
+
+    private static final String TEMPLATE = "${i}${d}|i=${i} l=${l} d=${d} f=${f} c=${c} b=${b} s=${s} n=${n} cs=${cs} o=${o} "
+            + "ü€\\uD83D\\uDE00 sum=${i + d}\\r\\n";
+    private static final String PARAMETERS = "int i, long l, double d, float f, char c, boolean b, String s, String n, char[] cs, Object o";
+
+    private static Compilation compilation;
+
+    @BeforeClass
+    public static void compile() throws Exception {
+        StringBuilder longTemplate = new StringBuilder();
+        for (int k = 0; k < 200; k++) longTemplate.append("${i + ").append(k).append("}ü,");
+        compilation = Compilation.compile("import com.github.gg_a.interpolator.*;\n"
+                + "class Utf {\n"
+                + "    @StringInterpolator\n"
+                + "    static String eager(" + PARAMETERS + ") { return \"" + TEMPLATE + "\"; }\n"
+                + "    @StringInterpolator\n"
+                + "    static byte[] bytes(" + PARAMETERS + ") { return Interpolate.utf8(\"" + TEMPLATE + "\"); }\n"
+                + "    @StringInterpolator\n"
+                + "    static java.io.OutputStream stream(java.io.OutputStream out, " + PARAMETERS + ") throws java.io.IOException {\n"
+                + "        return Interpolate.utf8(out, \"" + TEMPLATE + "\");\n"
+                + "    }\n"
+                + "    @StringInterpolator\n"
+                + "    static java.nio.ByteBuffer buffer(java.nio.ByteBuffer buffer, " + PARAMETERS + ") {\n"
+                + "        return Interpolate.utf8(buffer, \"" + TEMPLATE + "\");\n"
+                + "    }\n"
+                + "    @StringInterpolator\n"
+                + "    static String longEager(int i) { return \"" + longTemplate + "\"; }\n"
+                + "    @StringInterpolator\n"
+                + "    static byte[] longBytes(int i) { return Interpolate.utf8(\"" + longTemplate + "\"); }\n"
+                + "    @StringInterpolator\n"
+                + "    static java.nio.ByteBuffer longBuffer(java.nio.ByteBuffer buffer, int i) { return Interpolate.utf8(buffer, \""
+                + longTemplate + "\"); }\n"
+                + "}\n");
+    }
+
+    @AfterClass
+    public static void delete() throws Exception {
+        if (compilation != null) compilation.delete();
+    }
+
+    @Test
+    public void sameAsGetBytes() throws Exception {
+        Object[][] arguments = {
+                {42, 1L << 40, 0.1 + 0.2, 1.1f, 'ß', true, "straße 😀", null, new char[]{'a', '€'}, Arrays.asList(1, 2)},
+                {-1, Long.MIN_VALUE, Double.NaN, -0.0f, '\uD83D', false, "", null, new char[0], null},
+        };
+        for (Object[] args : arguments) {
+            byte[] expected = ((String) compilation.invoke("Utf", "eager", args)).getBytes(StandardCharsets.UTF_8);
+            assertArrayEquals(expected, (byte[]) compilation.invoke("Utf", "bytes", args));
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            assertSame(out, compilation.invoke("Utf", "stream", prepend(out, args)));
+            assertArrayEquals(expected, out.toByteArray());
+
+            for (ByteBuffer buffer : new ByteBuffer[]{ByteBuffer.allocate(1024), ByteBuffer.allocateDirect(1024)}) {
+                assertSame(buffer, compilation.invoke("Utf", "buffer", prepend(buffer, args)));
+                assertArrayEquals(expected, written(buffer));
+            }
+        }
+    }
+
+    @Test
+    public void longLiteral() throws Exception {
+        byte[] expected = ((String) compilation.invoke("Utf", "longEager", 7)).getBytes(StandardCharsets.UTF_8);
+        assertArrayEquals(expected, (byte[]) compilation.invoke("Utf", "longBytes", 7));
+        ByteBuffer buffer = ByteBuffer.allocate(expected.length);
+        compilation.invoke("Utf", "longBuffer", buffer, 7);
+        assertArrayEquals(expected, written(buffer));
+    }
+
+    private static byte[] written(ByteBuffer buffer) {
+        buffer.flip();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static Object[] prepend(Object target, Object[] args) {
+        Object[] all = new Object[args.length + 1];
+        all[0] = target;
+        System.arraycopy(args, 0, all, 1, args.length);
+        return all;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator.ast;
+
+import java.net.URI;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Hits of {@link SourceIndex}: <code>${</code>, escapes and intrinsic calls are hits, names which only contain
+ * {@code utf8} or {@code sql} are not, so the members which have none of them are skipped.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+public class SourceIndexTest {
+
+    private static final String[] HITS = {
+            "s = \"a${x}\";", "s = \"$\\101{x}\";", "s = \"\\044{x}\";",
+            "q = Interpolate.sql(\"select 1\");", "b = Interpolate.utf8(\"a\");", "b = Interpolate . utf8 (\"a\");",
+            "b = Interpolate\n        .utf8(out, \"a\");", "q = com.github.gg_a.interpolator.Interpolate.sql(\"select 1\");",
+            "Object l = Interpolate.lazy(\"a\");",
+    };
+
+    private static final String[] NO_HITS = {
+            "String sql = \"select 1\";", "int utf8Length = sql.length();", "byte[] b = utf8Bytes(s);",
+            "s = \"$x {y}\";", "s = \"Interpolated\";", "s = MyInterpolate.of(sql);", "s = Interpolates.sql;",
+            "s = query.sqlText(utf8);", "// utf8 and sql", "s = \"\\\\044{x}\";",
+    };
+
+    @Test
+    public void hits() {
+        for (String statement : HITS) {
+            SourceIndex index = SourceIndex.of(source(statement));
+            assertTrue(statement, index.hasHits(0, index.length()));
+        }
+    }
+
+    @Test
+    public void noHits() {
+        for (String statement : NO_HITS) {
+            SourceIndex index = SourceIndex.of(source(statement));
+            assertFalse(statement, index.hasHits(0, index.length()));
+        }
+    }
+
+    @Test
+    public void membersWithoutHitsAreSkipped() {
+        String plain = "    String plain(String sql) { return utf8(sql) + \"$\"; }\n";
+        String interpolated = "    String interpolated(String sql) { return \"${sql}\"; }\n";
+        String intrinsic = "    byte[] intrinsic() { return Interpolate.utf8(\"sql\"); }\n";
+        String source = "class A {\n" + plain + interpolated + plain + intrinsic + plain + "}\n";
+        SourceIndex index = SourceIndex.of(source(source));
+
+        String[] members = {plain, interpolated, plain, intrinsic, plain};
+        boolean[] hits = {false, true, false, true, false};
+        int start = "class A {\n".length();
+        for (int i = 0; i < members.length; i++) {
+            assertEquals(members[i], hits[i], index.hasHits(start, start + members[i].length()));
+            start += members[i].length();
+        }
+    }
+
+    @Test
+    public void unicodeEscapes() {
+        assertNull(SourceIndex.of(source("s = \"\\u0024{x}\";")));
+    }
+
+    private static JavaFileObject source(String content) {
+        return new SimpleJavaFileObject(URI.create("string:///A.java"), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return content;
+            }
+        };
+    }
+}
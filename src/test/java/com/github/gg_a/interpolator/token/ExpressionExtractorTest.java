@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2021 GG-A, <yiyikela@qq.com, https://github.com/GG-A/string-interpolator>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.gg_a.interpolator.token;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.github.gg_a.interpolator.InterpolationMode;
+import org.junit.Test;
+
+import static com.github.gg_a.interpolator.token.TokenType.EXPRESSION;
+import static com.github.gg_a.interpolator.token.TokenType.STRING_LITERAL;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The scanner of {@link ExpressionExtractor} against the regex extractor of 0.0.2, which it replaced:
+ * the tokens are the same for every literal without braces in ${}, except that a literal without ${ has no tokens.
+ *
+ * @author GG-A
+ * @since 0.0.3
+ */
+public class ExpressionExtractorTest {
+
+    private static final String[] LITERALS = {
+            "", "a", "$", "${", "}", "${x}", "a${x}b", "${}", "a${}b", "${ }", "${ x }", "${1+2}", "${x.y()}", "$${x}",
+            "${a}${b}", "${a}}", "${${x}}", "${x\ny}", "${x}\n${y}", "${if}", "${_}", "${$a_1}", "${1a}", "${a b}",
+            "${\"a\"}", "${'a'}", "${c == '\\n'}", "${c == '\\''}", "${s + \"\\\"\"}",
+            // lone quotes
+            "${y's}", "${a\"}", "${y's} it's ${x}", "${a'} and ${b'}", "${it's}${x}", "${'}", "${\"}", "${''}",
+            "${a\\\"}", "${'ab'}", "x's ${y} \"z",
+    };
+
+    @Test
+    public void sameTokensAsRegex() {
+        for (InterpolationMode mode : InterpolationMode.values()) {
+            for (String literal : LITERALS) {
+                List<StringToken> tokens = new ExpressionExtractor().split(literal, 10, mode);
+                if (!literal.contains("${")) assertEquals(literal, 0, tokens.size());
+                else assertEquals(mode + " " + literal, toString(regexSplit(literal, 10, mode)), toString(tokens));
+            }
+        }
+    }
+
+    @Test
+    public void bracesInStringLiterals() {
+        List<StringToken> tokens = new ExpressionExtractor().split("a${map.get(\"{\")}b", 0, InterpolationMode.EXPRESSION);
+        assertEquals(3, tokens.size());
+        assertEquals(EXPRESSION, tokens.get(1).getType());
+        assertEquals("map.get(\"{\")", tokens.get(1).getValue());
+    }
+
+    private static List<String> toString(List<StringToken> tokens) {
+        List<String> strings = new ArrayList<>();
+        for (StringToken token : tokens) {
+            strings.add(token.getType() + " " + token.getValue() + " " + token.getOriginValue() + " @" + token.getOffset());
+        }
+        return strings;
+    }
+
+    private static final Pattern PATTERN = Pattern.compile("\\$\\{((?![{}]).)*}", Pattern.MULTILINE);
+    private static final Pattern SPECIAL_CHAR = Pattern.compile("^\\$\\{[\\s`!-#%-@\\[-^\\{-~]+}$");
+    private static final Pattern VALID_IDENTIFIERS = Pattern.compile("^[$A-Za-z_][$\\w]*$");
+    private static final List<String> KEYWORDS = Arrays.asList(
+            "abstract", "assert", "boolean", "break", "byte", "case", "catch", "char", "class",
+            "const", "continue", "default", "double", "do", "else", "enum", "extends", "false",
+            "final", "finally", "float", "for", "goto", "if", "implements", "import", "instanceof",
+            "int", "interface", "long", "native", "new", "null", "package", "private", "protected",
+            "public", "return", "short", "static", "strictfp", "super", "switch", "synchronized",
+            "this", "throw", "throws", "transient", "true", "try", "void", "volatile", "while", "_"
+    );
+
+    /*
+     * ExpressionExtractor.split of 0.0.2
+     */
+    private static List<StringToken> regexSplit(String literalValue, int originalOffset, InterpolationMode parseMode) {
+        List<StringToken> stringTokens = new ArrayList<>();
+        Matcher matcher = PATTERN.matcher(literalValue);
+        int startIndex = 0;
+        while (matcher.find()) {
+            String matchStr = matcher.group();
+            int start = matcher.start();
+            int end = matcher.end();
+            int offset = originalOffset + start + 3;
+
+            if ("${}".equals(matchStr)) {
+                String value = literalValue.substring(startIndex, start + 1);
+                stringTokens.add(new StringToken(value, value, STRING_LITERAL, offset));
+            } else if (SPECIAL_CHAR.matcher(matchStr).find()) {
+                String value = literalValue.substring(startIndex, end);
+                stringTokens.add(new StringToken(value, value, STRING_LITERAL, offset + matchStr.length()));
+            } else {
+                String afterTrim = matchStr.substring(2, matchStr.length() - 1).trim();
+                if (parseMode == InterpolationMode.EXPRESSION
+                        || !KEYWORDS.contains(afterTrim) && VALID_IDENTIFIERS.matcher(afterTrim).find()) {
+                    if (start != startIndex) {
+                        String value = literalValue.substring(startIndex, start);
+                        stringTokens.add(new StringToken(value, value, STRING_LITERAL, offset));
+                    }
+                    stringTokens.add(new StringToken(afterTrim, matchStr, EXPRESSION, offset));
+                } else {
+                    String value = literalValue.substring(startIndex, end);
+                    stringTokens.add(new StringToken(value, value, STRING_LITERAL, offset + matchStr.length()));
+                }
+            }
+            startIndex = end;
+        }
+        if (startIndex < literalValue.length()) {
+            String value = literalValue.substring(startIndex);
+            stringTokens.add(new StringToken(value, value, STRING_LITERAL, originalOffset + startIndex + 3));
+        }
+        return stringTokens;
+    }
+}